@@ -0,0 +1,32 @@
+package rp.fitkit.api.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import rp.fitkit.api.logging.GradientConcurrencyLimiter;
+import rp.fitkit.api.logging.RouteMatcher;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public RouteMatcher<GradientConcurrencyLimiter> concurrencyLimitRouteMatcher(ConcurrencyLimitProperties properties) {
+        RouteMatcher.Builder<GradientConcurrencyLimiter> builder = RouteMatcher.builder();
+        if (!properties.isEnabled()) {
+            return builder.build();
+        }
+        for (ConcurrencyLimitProperties.Group group : properties.getGroups()) {
+            GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(
+                    group.getName(),
+                    group.getPriority(),
+                    group.getMinLimit(),
+                    group.getMaxLimit(),
+                    group.getInitialLimit(),
+                    group.getTolerance()
+            );
+            group.getPaths().forEach(path -> builder.add(path, limiter));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,36 @@
+package rp.fitkit.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import rp.fitkit.api.logging.GradientConcurrencyLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route groups of the adaptive concurrency limiter, bound from {@code fitkit.api.concurrency-limit}.
+ * Paths use Spring's {@code PathPattern} syntax, optionally preceded by HTTP methods, e.g. {@code PUT /api/v1/log/*}.
+ * Long-lived streams should not share a group with short requests;
+ * give them their own group with {@code min-limit == max-limit}, which caps them without adapting to their duration.
+ */
+@Data
+@ConfigurationProperties(prefix = "fitkit.api.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private List<Group> groups = new ArrayList<>();
+
+    @Data
+    public static class Group {
+        private String name;
+        private GradientConcurrencyLimiter.Priority priority = GradientConcurrencyLimiter.Priority.NORMAL;
+        private List<String> paths = new ArrayList<>();
+        private int minLimit = 10;
+        private int maxLimit = 500;
+        private int initialLimit = 50;
+        /**
+         * How many times the baseline latency is accepted before the limit starts to shrink.
+         */
+        private double tolerance = 2.0;
+    }
+}
@@ -2,14 +2,17 @@ package rp.fitkit.api.config;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.result.method.RequestMappingInfo;
 import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.util.pattern.PathPattern; // NIEUW: Importeer PathPattern
-import rp.fitkit.api.logging.RateLimitingFilter;
+import rp.fitkit.api.logging.RateLimitPolicy;
+import rp.fitkit.api.logging.RouteMatcher;
 
 import java.util.Comparator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -18,21 +21,26 @@ import java.util.stream.Collectors;
 public class EndpointLoggerRunner implements ApplicationRunner {
 
     private final RequestMappingHandlerMapping requestMappingHandlerMapping;
-    private final RateLimitingFilter rateLimitingFilter;
+    private final RouteMatcher<RateLimitPolicy> rateLimitRouteMatcher;
 
     public EndpointLoggerRunner(RequestMappingHandlerMapping requestMappingHandlerMapping,
-                                RateLimitingFilter rateLimitingFilter) {
+                                RouteMatcher<RateLimitPolicy> rateLimitRouteMatcher) {
         this.requestMappingHandlerMapping = requestMappingHandlerMapping;
-        this.rateLimitingFilter = rateLimitingFilter;
+        this.rateLimitRouteMatcher = rateLimitRouteMatcher;
     }
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
         log.debug("=== API Endpoints Overview ===");
 
-        Set<String> configuredRateLimitedPaths = rateLimitingFilter.getRateLimitedPaths();
+        if (!log.isDebugEnabled()) {
+            return;
+        }
 
-        final int finalMaxStatusLength = "[RATE LIMITED]".length();
+        final int finalMaxStatusLength = Math.max("[OPEN]".length(), rateLimitRouteMatcher.getRoutes().stream()
+                .mapToInt(route -> route.target().describe().length() + 2)
+                .max()
+                .orElse(0));
 
         final int finalMaxPathLength = requestMappingHandlerMapping.getHandlerMethods().entrySet().stream()
                 .flatMap(entry -> entry.getKey().getPatternsCondition().getPatterns().stream())
@@ -52,10 +60,14 @@ public class EndpointLoggerRunner implements ApplicationRunner {
                             .collect(Collectors.toSet());
 
                     patterns.forEach(pattern -> {
-                        boolean hasRateLimiter = configuredRateLimitedPaths.contains(pattern) ||
-                                configuredRateLimitedPaths.stream().anyMatch(rp -> pattern.matches(rp.replace("**", ".*")));
+                        // Path variables are resolved as literal segments, which is what a request for them looks like.
+                        RateLimitPolicy policy = mappingInfo.getMethodsCondition().getMethods().stream()
+                                .map(requestMethod -> rateLimitRouteMatcher.resolve(requestMethod.asHttpMethod(), pattern))
+                                .filter(Objects::nonNull)
+                                .findFirst()
+                                .orElseGet(() -> rateLimitRouteMatcher.resolve(HttpMethod.GET, pattern));
 
-                        String status = hasRateLimiter ? "[RATE LIMITED]" : "[OPEN]";
+                        String status = policy != null ? "[" + policy.describe() + "]" : "[OPEN]";
                         String method = mappingInfo.getMethodsCondition().getMethods().toString();
 
                         log.debug(String.format(" %-" + finalMaxStatusLength + "s %-" + finalMaxPathLength + "s %s", status, pattern, method));
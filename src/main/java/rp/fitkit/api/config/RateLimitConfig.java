@@ -0,0 +1,69 @@
+package rp.fitkit.api.config;
+
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import rp.fitkit.api.logging.ClientIpResolver;
+import rp.fitkit.api.logging.LocalRateLimitBucketStore;
+import rp.fitkit.api.logging.ProxyManagerBucketStore;
+import rp.fitkit.api.logging.RateLimitBucketStore;
+import rp.fitkit.api.logging.RateLimitPolicy;
+import rp.fitkit.api.logging.RouteMatcher;
+
+@Configuration
+@Slf4j
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+
+    @Bean
+    public RouteMatcher<RateLimitPolicy> rateLimitRouteMatcher(RateLimitProperties properties) {
+        RouteMatcher.Builder<RateLimitPolicy> builder = RouteMatcher.builder();
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            RateLimitProperties.Premium premium = policy.getPremium();
+            RateLimitPolicy resolved = new RateLimitPolicy(
+                    policy.getName(),
+                    new RateLimitPolicy.Limit(
+                            policy.getName(),
+                            policy.getCapacity(),
+                            policy.getRefillTokens(),
+                            policy.getRefillPeriod()
+                    ),
+                    new RateLimitPolicy.Limit(
+                            policy.getName() + ".premium",
+                            premium.getCapacity() != null ? premium.getCapacity() : policy.getCapacity(),
+                            premium.getRefillTokens() != null ? premium.getRefillTokens() : policy.getRefillTokens(),
+                            policy.getRefillPeriod()
+                    )
+            );
+            policy.getPaths().forEach(path -> builder.add(path, resolved));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Uses a shared store when the context provides a {@code ProxyManager<String>} (for example one backed by Redis);
+     * otherwise buckets are kept in process memory.
+     */
+    @Bean
+    public RateLimitBucketStore rateLimitBucketStore(
+            RateLimitProperties properties,
+            ObjectProvider<ProxyManager<String>> proxyManager,
+            MeterRegistry meterRegistry
+    ) {
+        ProxyManager<String> shared = proxyManager.getIfAvailable();
+        if (shared != null) {
+            log.info("Rate limit buckets are kept in a shared store ({}).", shared.getClass().getSimpleName());
+            return new ProxyManagerBucketStore(shared);
+        }
+        return new LocalRateLimitBucketStore(properties.getMaxBuckets(), meterRegistry);
+    }
+
+    @Bean
+    public ClientIpResolver clientIpResolver(RateLimitProperties properties) {
+        return new ClientIpResolver(properties.getTrustedProxies());
+    }
+}
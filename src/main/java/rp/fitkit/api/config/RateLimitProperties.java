@@ -0,0 +1,50 @@
+package rp.fitkit.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate limit policies per route group, bound from {@code fitkit.api.rate-limit}.
+ * Paths use Spring's {@code PathPattern} syntax, e.g. {@code /api/v1/plans/**}, optionally preceded by HTTP
+ * methods, e.g. {@code POST /api/v1/auth/login}.
+ */
+@Data
+@ConfigurationProperties(prefix = "fitkit.api.rate-limit")
+public class RateLimitProperties {
+
+    private List<Policy> policies = new ArrayList<>();
+
+    /**
+     * Addresses or CIDR ranges of reverse proxies whose {@code X-Forwarded-For} header is trusted.
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /**
+     * Maximum number of buckets kept by the in-process store.
+     */
+    private long maxBuckets = 100_000;
+
+    @Data
+    public static class Policy {
+        private String name;
+        private List<String> paths = new ArrayList<>();
+        private long capacity = 10;
+        private long refillTokens = 10;
+        private Duration refillPeriod = Duration.ofMinutes(1);
+
+        /**
+         * Limit for premium users; a field left empty falls back to the standard value.
+         */
+        private Premium premium = new Premium();
+    }
+
+    @Data
+    public static class Premium {
+        private Long capacity;
+        private Long refillTokens;
+    }
+}
@@ -1,5 +1,6 @@
 package rp.fitkit.api.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -20,11 +21,21 @@ import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.MessageSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import rp.fitkit.api.logging.ClientIpResolver;
+import rp.fitkit.api.logging.ConcurrencyLimitFilter;
+import rp.fitkit.api.logging.GradientConcurrencyLimiter;
+import rp.fitkit.api.logging.RateLimitBucketStore;
+import rp.fitkit.api.logging.RateLimitPolicy;
+import rp.fitkit.api.logging.RouteMatcher;
 import rp.fitkit.api.logging.RateLimitingFilter;
 
 import java.net.URI;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.ServerResponse.ok;
@@ -38,20 +49,34 @@ public class SecurityConfig {
     private final ReactiveAuthenticationManager authenticationManager;
     private final ServerSecurityContextRepository securityContextRepository;
     private final RateLimitingFilter rateLimitingFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
 
     public SecurityConfig(
             ReactiveAuthenticationManager authenticationManager,
             ServerSecurityContextRepository securityContextRepository,
-            RateLimitingFilter rateLimitingFilter
+            RouteMatcher<RateLimitPolicy> rateLimitRouteMatcher,
+            RateLimitBucketStore rateLimitBucketStore,
+            ClientIpResolver clientIpResolver,
+            RouteMatcher<GradientConcurrencyLimiter> concurrencyLimitRouteMatcher,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            MessageSource messageSource
     ) {
         this.authenticationManager = authenticationManager;
         this.securityContextRepository = securityContextRepository;
-        this.rateLimitingFilter = rateLimitingFilter;
+        this.rateLimitingFilter = new RateLimitingFilter(
+                rateLimitRouteMatcher, rateLimitBucketStore, clientIpResolver, objectMapper, messageSource);
+        this.concurrencyLimitFilter = new ConcurrencyLimitFilter(
+                concurrencyLimitRouteMatcher, meterRegistry, objectMapper, messageSource);
     }
 
+    /**
+     * BCrypt with a configurable cost factor. Every step doubles the time per hash; see
+     * {@code PasswordHashingBenchmark} for what each setting costs on the target hardware.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${fitkit.api.security.hashing.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -93,7 +118,8 @@ public class SecurityConfig {
                             exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
                         }))
                 )
-                .addFilterAt(rateLimitingFilter, SecurityWebFiltersOrder.FIRST)
+                .addFilterBefore(rateLimitingFilter, SecurityWebFiltersOrder.AUTHORIZATION)
+                .addFilterBefore(concurrencyLimitFilter, SecurityWebFiltersOrder.AUTHORIZATION)
                 .build();
     }
 
@@ -105,6 +131,7 @@ public class SecurityConfig {
         corsConfig.addAllowedOrigin("http://localhost:3000");
         corsConfig.addAllowedHeader("*");
         corsConfig.addAllowedMethod("*");
+        corsConfig.setExposedHeaders(List.of("RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "RateLimit-Policy", "Retry-After"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", corsConfig);
@@ -1,17 +1,24 @@
 package rp.fitkit.api.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.ProgressDataPointDto;
+import rp.fitkit.api.dto.TrainingAnalyticsDto;
+import rp.fitkit.api.model.AnalyticsPeriod;
 import rp.fitkit.api.model.user.User;
 import rp.fitkit.api.service.StatisticsService;
+import rp.fitkit.api.service.WorkoutHistoryService;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,5 +43,17 @@ public class StatisticsController {
         return statisticsService.getEstimated1rmHistory(userId, exerciseName)
                 .collectList();
     }
-}
 
+    @GetMapping("/training")
+    public Mono<TrainingAnalyticsDto> getTrainingAnalytics(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(name = "Accept-Language", defaultValue = WorkoutHistoryService.DEFAULT_LANGUAGE) String languageCode,
+            @RequestParam(defaultValue = "WEEK") AnalyticsPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        log.info("Fetching {} training analytics from {} to {}", period, from, to);
+        UUID userId = ((User) userDetails).getId();
+        return statisticsService.getTrainingAnalytics(userId, period, from, to, languageCode);
+    }
+}
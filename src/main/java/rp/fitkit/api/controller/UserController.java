@@ -3,6 +3,7 @@ package rp.fitkit.api.controller;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -49,7 +50,7 @@ public class UserController {
     @PostMapping("/refresh")
     public Mono<ResponseEntity<AccessTokenResponseDto>> refreshToken(@RequestBody RefreshTokenRequestDto request) {
         return userService.refreshAccessToken(request.getRefreshToken())
-                .map(newAccessToken -> ResponseEntity.ok(new AccessTokenResponseDto(newAccessToken, "Bearer")))
+                .map(ResponseEntity::ok)
                 .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build()));
     }
 
@@ -57,14 +58,19 @@ public class UserController {
     @SecurityRequirement(name = "bearerAuth")
     public Mono<UserResponseDto> getMe(@AuthenticationPrincipal UserDetails userDetails) {
         User currentUser = (User) userDetails;
+        return userService.getUserProfile(currentUser.getId());
+    }
 
-        UserResponseDto responseDto = new UserResponseDto(
-                currentUser.getId(),
-                currentUser.getUsername(),
-                currentUser.getEmail(),
-                currentUser.getDateJoined()
-        );
-        return Mono.just(responseDto);
+    @PostMapping("/logout")
+    @SecurityRequirement(name = "bearerAuth")
+    public Mono<ResponseEntity<Void>> logout(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody(required = false) RefreshTokenRequestDto request
+    ) {
+        String accessToken = authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization;
+        String refreshToken = request != null ? request.getRefreshToken() : null;
+        return userService.logout(accessToken, refreshToken)
+                .thenReturn(ResponseEntity.noContent().build());
     }
 
     @PostMapping("/generate-recovery-codes")
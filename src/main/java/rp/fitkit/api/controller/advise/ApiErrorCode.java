@@ -11,6 +11,9 @@ public enum ApiErrorCode {
     DATA_INTEGRITY_VIOLATION("DATA_INTEGRITY_VIOLATION"),
     UNEXPECTED_ERROR("UNEXPECTED_ERROR"),
     INVALID_DATE_RANGE("INVALID_DATE_RANGE"),
+    INVALID_SORT_FIELD("INVALID_SORT_FIELD"),
+    INVALID_CURSOR("INVALID_CURSOR"),
+    SERVICE_OVERLOADED("SERVICE_OVERLOADED"),
     GENERIC_ERROR("GENERIC_ERROR");
 
     private final String code;
@@ -6,6 +6,7 @@ import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.core.annotation.Order;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
@@ -21,8 +22,11 @@ import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import rp.fitkit.api.exception.InvalidCursorException;
 import rp.fitkit.api.exception.InvalidDateRangeException;
+import rp.fitkit.api.exception.InvalidSortFieldException;
 import rp.fitkit.api.exception.ResourceNotFoundException;
+import rp.fitkit.api.exception.ServiceOverloadedException;
 import rp.fitkit.api.exception.UserAlreadyExistsException;
 
 import java.net.URI;
@@ -197,4 +201,52 @@ public class GlobalExceptionHandler {
         return Mono.just(ResponseEntity.status(ex.getStatusCode()).body(problemDetail));
     }
 
+    @ExceptionHandler(InvalidSortFieldException.class)
+    public Mono<ResponseEntity<ProblemDetail>> handleInvalidSortFieldException(InvalidSortFieldException ex, ServerWebExchange exchange) {
+        Locale locale = resolveLocaleFromExchange(exchange);
+        log.warn("Ongeldig sorteerveld opgevangen: {}", ex.getMessage());
+
+        String title = messageSource.getMessage("error.client.request.title", null, "Invalid Request", locale);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        problemDetail.setTitle(title);
+        problemDetail.setInstance(resolvePathFromServerWebExchange(exchange));
+        problemDetail.setProperty("timestamp", LocalDateTime.now());
+        problemDetail.setProperty("errorCode", ApiErrorCode.INVALID_SORT_FIELD);
+
+        return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(problemDetail));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public Mono<ResponseEntity<ProblemDetail>> handleInvalidCursorException(InvalidCursorException ex, ServerWebExchange exchange) {
+        Locale locale = resolveLocaleFromExchange(exchange);
+        log.warn("Ongeldige cursor opgevangen: {}", ex.getReason());
+
+        String title = messageSource.getMessage("error.client.request.title", null, "Invalid Request", locale);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(ex.getStatusCode(), ex.getReason());
+        problemDetail.setTitle(title);
+        problemDetail.setInstance(resolvePathFromServerWebExchange(exchange));
+        problemDetail.setProperty("timestamp", LocalDateTime.now());
+        problemDetail.setProperty("errorCode", ApiErrorCode.INVALID_CURSOR);
+
+        return Mono.just(ResponseEntity.status(ex.getStatusCode()).body(problemDetail));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public Mono<ResponseEntity<ProblemDetail>> handleServiceOverloadedException(ServiceOverloadedException ex, ServerWebExchange exchange) {
+        Locale locale = resolveLocaleFromExchange(exchange);
+        log.warn("Verzoek geweigerd wegens overbelasting: {}", ex.getReason());
+        String detailMessage = messageSource.getMessage("error.service.overloaded", null, locale);
+        String title = messageSource.getMessage("error.service.overloaded.title", null, locale);
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, detailMessage);
+        problemDetail.setTitle(title);
+        problemDetail.setInstance(resolvePathFromServerWebExchange(exchange));
+        problemDetail.setProperty("timestamp", LocalDateTime.now());
+        problemDetail.setProperty("errorCode", SERVICE_OVERLOADED);
+        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(problemDetail));
+    }
+
 }
@@ -2,21 +2,25 @@ package rp.fitkit.api.controller.fitness;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.ExerciseSessionResponseDto;
+import rp.fitkit.api.dto.WorkoutDayDto;
+import rp.fitkit.api.dto.WorkoutHistoryPageDto;
 import rp.fitkit.api.model.user.User;
 import rp.fitkit.api.service.WorkoutHistoryService;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -28,19 +32,36 @@ public class WorkoutHistoryController {
     private final WorkoutHistoryService historyService;
 
     @GetMapping
-    public Mono<Map<LocalDate, List<ExerciseSessionResponseDto>>> getFullWorkoutHistory(
-            @AuthenticationPrincipal UserDetails userDetails
+    public Mono<WorkoutHistoryPageDto> getWorkoutHistory(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(name = "Accept-Language", defaultValue = WorkoutHistoryService.DEFAULT_LANGUAGE) String languageCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "30") int size
+    ) {
+        UUID userId = ((User) userDetails).getId();
+        return historyService.getHistoryPage(userId, startDate, endDate, cursor, size, languageCode);
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<WorkoutDayDto> streamWorkoutHistory(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(name = "Accept-Language", defaultValue = WorkoutHistoryService.DEFAULT_LANGUAGE) String languageCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
     ) {
         UUID userId = ((User) userDetails).getId();
-        return historyService.getFullHistoryGroupedByDate(userId);
+        return historyService.streamHistory(userId, startDate, endDate, languageCode);
     }
 
     @GetMapping("/{exerciseName}")
     public Flux<ExerciseSessionResponseDto> getWorkoutHistoryForExercise(
             @AuthenticationPrincipal UserDetails userDetails,
-            @PathVariable String exerciseName
+            @PathVariable String exerciseName,
+            @RequestHeader(name = "Accept-Language", defaultValue = WorkoutHistoryService.DEFAULT_LANGUAGE) String languageCode
     ) {
         UUID userId = ((User) userDetails).getId();
-        return historyService.getHistoryForExercise(userId, exerciseName);
+        return historyService.getHistoryForExercise(userId, exerciseName, languageCode);
     }
 }
@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +13,8 @@ import reactor.core.publisher.Mono;
 import rp.fitkit.api.model.root.DailyLog;
 import rp.fitkit.api.service.logbook.AdminLogbookService;
 
+import java.time.LocalDate;
+
 @RestController
 @RequestMapping("/api/v1/admin/logbook")
 @RequiredArgsConstructor
@@ -26,8 +29,9 @@ public class AdminLogbookController {
     public Mono<Page<DailyLog>> searchDailyLogsByUsername(
             @RequestHeader("X-Support-Justification") String justification,
             @RequestParam String username,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before,
             Pageable pageable) {
-        return adminLogbookService.searchDailyLogsByUsername(justification, username, pageable);
+        return adminLogbookService.searchDailyLogsByUsername(justification, username, before, pageable);
     }
 
 
@@ -7,8 +7,11 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import org.springframework.data.domain.Page;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.logbook.*;
 import rp.fitkit.api.model.root.SectionType;
@@ -51,6 +54,9 @@ public interface LogbookApi {
      * @param page         The page number to retrieve (0-indexed).
      * @param size         The number of items to return per page.
      * @param sort         Sorting criteria in the format: property,(asc|desc).
+     * @param before       Keyset cursor: the log date of the last preview of the previous page (exclusive). When
+     *                     set, the logs before it are returned newest first, and {@code page} and {@code sort} are
+     *                     ignored; the total counts the logs in the range before the cursor.
      * @return A {@link Mono} that emits a {@link Page} of {@link LogbookPreviewDto} objects.
      */
     @Operation(
@@ -107,7 +113,84 @@ public interface LogbookApi {
                     description = "Sorting criteria in the format: property,(asc|desc). Default is descending by date.",
                     schema = @Schema(example = "logDate,desc", defaultValue = "logDate,desc")
             )
-            String[] sort
+            String[] sort,
+
+            @Parameter(
+                    name = "before",
+                    description = "Keyset cursor: the log date of the last preview of the previous page (exclusive). When set, page and sort are ignored.",
+                    schema = @Schema(example = "2025-09-13")
+            )
+            LocalDate before
+    );
+
+    /**
+     * Searches the section summaries of the authenticated user's logbook.
+     * <p>
+     * Hits are ranked by relevance and contain highlighted fragments of the summary. Results are paged with a
+     * cursor: pass the {@code nextCursor} of a page to get the next one.
+     *
+     * @param user         The authenticated user, injected by the security context.
+     * @param languageCode The preferred language for response messages (e.g., 'en-GB', 'nl-NL').
+     * @param query        The search query. Supports "quoted phrases", {@code or} and {@code -excluded} words.
+     * @param startDate    The first log date to search (inclusive), optional.
+     * @param endDate      The last log date to search (inclusive), optional.
+     * @param cursor       The cursor of the next page, as returned by the previous page.
+     * @param size         The maximum number of hits per page (at most 50).
+     * @return A {@link Mono} that emits the {@link LogbookSearchResultDto}.
+     */
+    @Operation(
+            summary = "Search Logbook",
+            description = "Full-text search over the user's logbook sections, ranked by relevance, with highlighted snippets and cursor-based paging."
+    )
+    Mono<LogbookSearchResultDto> searchLogbook(
+            @Parameter(hidden = true)
+            User user,
+
+            @Parameter(
+                    name = "Accept-Language",
+                    description = "The preferred language for response messages (e.g., 'en-GB', 'nl-NL').",
+                    in = ParameterIn.HEADER,
+                    required = true,
+                    schema = @Schema(example = "en-GB")
+            )
+            @NotBlank(message = "Language code cannot be blank")
+            String languageCode,
+
+            @Parameter(
+                    name = "q",
+                    description = "The search query. Supports \"quoted phrases\", 'or' and '-excluded' words.",
+                    required = true,
+                    schema = @Schema(example = "project -work")
+            )
+            @NotBlank
+            String query,
+
+            @Parameter(
+                    name = "startDate",
+                    description = "The first log date to search (inclusive), in YYYY-MM-DD format.",
+                    schema = @Schema(example = "2025-01-01")
+            )
+            LocalDate startDate,
+
+            @Parameter(
+                    name = "endDate",
+                    description = "The last log date to search (inclusive), in YYYY-MM-DD format.",
+                    schema = @Schema(example = "2025-12-31")
+            )
+            LocalDate endDate,
+
+            @Parameter(
+                    name = "cursor",
+                    description = "The nextCursor of the previous page. Omit for the first page."
+            )
+            String cursor,
+
+            @Parameter(
+                    name = "size",
+                    description = "The maximum number of hits per page (at most 50).",
+                    schema = @Schema(example = "20", defaultValue = "20")
+            )
+            int size
     );
 
     /**
@@ -242,10 +325,13 @@ public interface LogbookApi {
      * <li><b>Edges</b> represent a co-occurrence of two keywords in the same daily log.</li>
      * <li><b>Edge Weight</b> is the number of times two keywords appear together.</li>
      * </ul>
-     * This data is ideal for creating a visual graph of related ideas.
+     * This data is ideal for creating a visual graph of related ideas. The graph is precomputed when sections are
+     * saved, and can be trimmed with {@code limit} and {@code minWeight} before it is sent.
      *
      * @param user         The authenticated user, injected by the security context.
      * @param languageCode The preferred language for response messages (e.g., 'en-GB', 'nl-NL').
+     * @param limit        Only return the heaviest {@code limit} keywords and the edges between them (optional).
+     * @param minWeight    The minimum weight of the returned keywords and edges.
      * @return A {@link Mono} that emits the {@link GraphDataDto} for the keyword graph.
      */
     @Operation(
@@ -264,6 +350,76 @@ public interface LogbookApi {
                     schema = @Schema(example = "en-GB")
             )
             @NotBlank(message = "Language code cannot be blank")
-            String languageCode
+            String languageCode,
+
+            @Parameter(
+                    name = "limit",
+                    description = "Only return the N heaviest keywords (at most 1000) and the edges between them. Omit for the full graph.",
+                    in = ParameterIn.QUERY,
+                    schema = @Schema(example = "50")
+            )
+            @Positive
+            @Max(1000)
+            Integer limit,
+
+            @Parameter(
+                    name = "minWeight",
+                    description = "The minimum weight of the returned keywords and edges.",
+                    in = ParameterIn.QUERY,
+                    schema = @Schema(example = "2", defaultValue = "1")
+            )
+            @Positive
+            int minWeight
+    );
+
+    /**
+     * Streams the keyword graph of the user, first all nodes and then all edges.
+     * <p>
+     * The response is newline-delimited JSON ({@code application/x-ndjson}) or server-sent events
+     * ({@code text/event-stream}), depending on the Accept header. Elements are sent while they are read, so
+     * a client can start rendering before the whole graph has arrived.
+     *
+     * @param user         The authenticated user, injected by the security context.
+     * @param languageCode The preferred language for response messages (e.g., 'en-GB', 'nl-NL').
+     * @param limit        Only return the heaviest {@code limit} keywords and the edges between them (optional).
+     * @param minWeight    The minimum weight of the returned keywords and edges.
+     * @return A {@link Flux} of {@link GraphElementDto}s, nodes before edges.
+     */
+    @Operation(
+            summary = "Stream Keyword Graph Data",
+            description = "Streams the keyword graph as NDJSON or server-sent events: all nodes first, then all edges."
+    )
+    Flux<GraphElementDto> streamKeywordGraphData(
+            @Parameter(hidden = true)
+            User user,
+
+            @Parameter(
+                    name = "Accept-Language",
+                    description = "The preferred language for response messages (e.g., 'en-GB', 'nl-NL').",
+                    in = ParameterIn.HEADER,
+                    required = true,
+                    schema = @Schema(example = "en-GB")
+            )
+            @NotBlank(message = "Language code cannot be blank")
+            String languageCode,
+
+            @Parameter(
+                    name = "limit",
+                    description = "Only return the N heaviest keywords (at most 1000) and the edges between them. Omit for the full graph.",
+                    in = ParameterIn.QUERY,
+                    schema = @Schema(example = "50")
+            )
+            @Positive
+            @Max(1000)
+            Integer limit,
+
+            @Parameter(
+                    name = "minWeight",
+                    description = "The minimum weight of the returned keywords and edges.",
+                    in = ParameterIn.QUERY,
+                    schema = @Schema(example = "2", defaultValue = "1")
+            )
+            @Positive
+            int minWeight
     );
 }
@@ -1,14 +1,18 @@
 package rp.fitkit.api.controller.logbook;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.logbook.*;
 import rp.fitkit.api.exception.InvalidDateRangeException;
@@ -18,6 +22,8 @@ import rp.fitkit.api.model.root.DailyLog;
 import rp.fitkit.api.model.root.SectionType;
 import rp.fitkit.api.model.user.User;
 import rp.fitkit.api.service.audit.AuditService;
+import rp.fitkit.api.service.logbook.LogbookAutosaveService;
+import rp.fitkit.api.service.logbook.LogbookSearchService;
 import rp.fitkit.api.service.logbook.LogbookService;
 
 import java.time.LocalDate;
@@ -29,6 +35,8 @@ import java.time.temporal.ChronoUnit;
 public class LogbookController implements LogbookApi {
 
     private final LogbookService logbookService;
+    private final LogbookAutosaveService logbookAutosaveService;
+    private final LogbookSearchService logbookSearchService;
     private final AuditService auditService;
 
     @GetMapping("/stats/total-count")
@@ -68,7 +76,10 @@ public class LogbookController implements LogbookApi {
             int size,
 
             @RequestParam(defaultValue = "logDate,desc")
-            String[] sort
+            String[] sort,
+
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate before
     ) {
         LocalDate end = (endDate == null) ? LocalDate.now() : endDate;
         LocalDate start = (startDate == null) ? end.minusDays(6) : startDate;
@@ -82,7 +93,7 @@ public class LogbookController implements LogbookApi {
         Sort.Direction direction = Sort.Direction.fromString(sortDirection);
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
 
-        return logbookService.getPaginatedLogbooksForUser(user.getId(), start, end, pageable)
+        return logbookService.getPaginatedLogbooksForUser(user.getId(), start, end, before, pageable)
                 .flatMap(pageResult -> auditService.logUserAction(
                         user,
                         AuditAction.VIEW,
@@ -92,6 +103,40 @@ public class LogbookController implements LogbookApi {
                 ));
     }
 
+    @Override
+    @GetMapping("/search")
+    public Mono<LogbookSearchResultDto> searchLogbook(
+            @AuthenticationPrincipal
+            User user,
+
+            @RequestHeader(name = "Accept-Language", defaultValue = "en-GB")
+            String languageCode,
+
+            @RequestParam("q") @NotBlank
+            String query,
+
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate startDate,
+
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate endDate,
+
+            @RequestParam(required = false)
+            String cursor,
+
+            @RequestParam(defaultValue = "20")
+            int size
+    ) {
+        return logbookSearchService.search(user.getId(), query, startDate, endDate, cursor, size)
+                .flatMap(result -> auditService.logUserAction(
+                        user,
+                        AuditAction.SEARCH,
+                        "LogbookSearch",
+                        user.getId().toString(),
+                        result
+                ));
+    }
+
     @Override
     @GetMapping("/{date}")
     public Mono<FullLogbookDto> getLogByDate(
@@ -154,7 +199,7 @@ public class LogbookController implements LogbookApi {
             SaveLogSectionRequest request
     ) {
         return logbookService.findOrCreateDailyLog(user.getId(), date)
-                .flatMap(dailyLog -> logbookService.saveLogSection(
+                .flatMap(dailyLog -> logbookAutosaveService.save(
                         dailyLog.getId(),
                         sectionType,
                         request.getSummary(),
@@ -174,9 +219,22 @@ public class LogbookController implements LogbookApi {
     @GetMapping("/graph-data/keywords")
     public Mono<GraphDataDto> getKeywordGraphData(
             @AuthenticationPrincipal User user,
-            @RequestHeader(name = "Accept-Language", defaultValue = "en-GB") String languageCode
+            @RequestHeader(name = "Accept-Language", defaultValue = "en-GB") String languageCode,
+            @RequestParam(required = false) @Positive @Max(1000) Integer limit,
+            @RequestParam(defaultValue = "1") @Positive int minWeight
+    ) {
+        return logbookService.getKeywordGraphData(user.getId(), limit, minWeight);
+    }
+
+    @Override
+    @GetMapping(path = "/graph-data/keywords/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<GraphElementDto> streamKeywordGraphData(
+            @AuthenticationPrincipal User user,
+            @RequestHeader(name = "Accept-Language", defaultValue = "en-GB") String languageCode,
+            @RequestParam(required = false) @Positive @Max(1000) Integer limit,
+            @RequestParam(defaultValue = "1") @Positive int minWeight
     ) {
-        return logbookService.getKeywordGraphData(user.getId());
+        return logbookService.streamKeywordGraphData(user.getId(), limit, minWeight);
     }
 
     private LogSectionDto toLogSectionDto(LogSection section) {
@@ -1,5 +1,6 @@
 package rp.fitkit.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +19,10 @@ public class ExerciseSessionResponseDto {
     private LocalDate date;
     private String notes;
     private List<SetLog> sets;
+
+    /**
+     * De records die deze sessie zette. Alleen gevuld bij het loggen; de geschiedenis laat ze weg.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<PersonalRecordDto> personalRecords;
 }
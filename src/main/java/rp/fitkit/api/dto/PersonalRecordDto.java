@@ -0,0 +1,35 @@
+package rp.fitkit.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rp.fitkit.api.model.PersonalRecordType;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonalRecordDto {
+    @Schema(description = "De dag van het record.", example = "2025-05-28")
+    private LocalDate date;
+
+    @Schema(description = "De naam van de oefening.", example = "Bench Press")
+    private String exerciseName;
+
+    @Schema(description = "Het soort record: de beste geschatte 1RM, of het zwaarste gewicht voor dit aantal herhalingen.", example = "ESTIMATED_ONE_REP_MAX")
+    private PersonalRecordType type;
+
+    @Schema(description = "Het gewicht van de set die het record zette (in kg).", example = "90.0")
+    private double weight;
+
+    @Schema(description = "De herhalingen van die set.", example = "5")
+    private int reps;
+
+    @Schema(description = "De nieuwe beste waarde: de geschatte 1RM (Epley) of het gewicht (in kg).", example = "105.0")
+    private double value;
+
+    @Schema(description = "De beste waarde van hetzelfde soort daarvoor.", example = "102.5")
+    private double previousBest;
+}
@@ -0,0 +1,30 @@
+package rp.fitkit.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rp.fitkit.api.model.AnalyticsPeriod;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrainingAnalyticsDto {
+    @Schema(description = "De grootte van de buckets.", example = "WEEK")
+    private AnalyticsPeriod period;
+
+    @Schema(description = "De eerste dag van de eerste bucket.", example = "2025-03-03")
+    private LocalDate from;
+
+    @Schema(description = "De laatste dag van de laatste bucket.", example = "2025-06-01")
+    private LocalDate to;
+
+    @Schema(description = "Eén bucket per week of maand in het bereik, de oudste eerst; ook weken of maanden zonder training.")
+    private List<TrainingBucketDto> buckets;
+
+    @Schema(description = "Dagen in het bereik waarop een oefening een nieuwe beste e1RM haalde, de oudste eerst.")
+    private List<PersonalRecordDto> personalRecords;
+}
@@ -0,0 +1,35 @@
+package rp.fitkit.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrainingBucketDto {
+    @Schema(description = "De eerste dag van de week (maandag) of maand.", example = "2025-05-26")
+    private LocalDate start;
+
+    @Schema(description = "Aantal dagen waarop getraind is.", example = "3")
+    private long trainingDays;
+
+    @Schema(description = "Aantal sets.", example = "42")
+    private long sets;
+
+    @Schema(description = "Totaal aantal herhalingen.", example = "380")
+    private long reps;
+
+    @Schema(description = "Tonnage: de som van gewicht maal herhalingen (in kg).", example = "24350.0")
+    private double tonnage;
+
+    @Schema(description = "Gemiddelde RPE over de sets waarbij een RPE is opgegeven, of null als dat bij geen enkele set zo is.", example = "7.5")
+    private Double averageRpe;
+
+    @Schema(description = "Aantal sets per spiergroepcode. Een set telt mee voor elke spiergroep van de oefening.")
+    private Map<String, Long> setsPerMuscleGroup;
+}
@@ -0,0 +1,20 @@
+package rp.fitkit.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutDayDto {
+    @Schema(description = "De trainingsdag.", example = "2025-06-11")
+    private LocalDate date;
+
+    @Schema(description = "Alle sessies van deze dag, met hun sets.")
+    private List<ExerciseSessionResponseDto> sessions;
+}
@@ -0,0 +1,19 @@
+package rp.fitkit.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkoutHistoryPageDto {
+    @Schema(description = "De trainingsdagen op deze pagina, de nieuwste eerst.")
+    private List<WorkoutDayDto> days;
+
+    @Schema(description = "Cursor voor de volgende (oudere) pagina, of null als er geen dagen meer zijn.", example = "MjAyNS0wNi0xMQ")
+    private String nextCursor;
+}
@@ -9,6 +9,8 @@ import lombok.Data;
 public class AccessTokenResponseDto {
     @JsonProperty("access_token")
     private String accessToken;
+    @JsonProperty("refresh_token")
+    private String refreshToken;
     @JsonProperty("token_type")
     private String tokenType = "Bearer";
 }
@@ -0,0 +1,30 @@
+package rp.fitkit.api.dto.logbook;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One element of a streamed graph. Exactly one of {@code node} and {@code edge} is set, as indicated by {@code type}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GraphElementDto {
+
+    public enum Type { NODE, EDGE }
+
+    private Type type;
+    private GraphNodeDto node;
+    private GraphEdgeDto edge;
+
+    public static GraphElementDto node(GraphNodeDto node) {
+        return new GraphElementDto(Type.NODE, node, null);
+    }
+
+    public static GraphElementDto edge(GraphEdgeDto edge) {
+        return new GraphElementDto(Type.EDGE, null, edge);
+    }
+}
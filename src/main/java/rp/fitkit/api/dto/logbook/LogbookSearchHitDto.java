@@ -0,0 +1,29 @@
+package rp.fitkit.api.dto.logbook;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rp.fitkit.api.model.root.SectionType;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogbookSearchHitDto {
+    @Schema(description = "De unieke ID van het dagelijkse logboek.", example = "1")
+    private Long logId;
+
+    @Schema(description = "De datum van het logboek.", example = "2025-09-03")
+    private LocalDate logDate;
+
+    @Schema(description = "De sectie waarin de zoekterm gevonden is.", example = "MORNING")
+    private SectionType sectionType;
+
+    @Schema(description = "De relevantie van de treffer; hoger is beter.", example = "0.0759")
+    private float rank;
+
+    @Schema(description = "Fragmenten van de samenvatting met de zoektermen tussen <mark>-tags.", example = "Ik heb nagedacht over het nieuwe <mark>project</mark>...")
+    private String highlight;
+}
@@ -0,0 +1,19 @@
+package rp.fitkit.api.dto.logbook;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogbookSearchResultDto {
+    @Schema(description = "De treffers op deze pagina, de beste eerst.")
+    private List<LogbookSearchHitDto> hits;
+
+    @Schema(description = "Cursor voor de volgende pagina, of null als er geen treffers meer zijn.", example = "PcFTIC0xMjM")
+    private String nextCursor;
+}
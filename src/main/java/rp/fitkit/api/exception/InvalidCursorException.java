@@ -0,0 +1,14 @@
+package rp.fitkit.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when a client sends a pagination cursor that was not issued by the API (or has been tampered with).
+ */
+public class InvalidCursorException extends ResponseStatusException {
+
+    public InvalidCursorException(String message) {
+        super(HttpStatus.BAD_REQUEST, message);
+    }
+}
@@ -0,0 +1,14 @@
+package rp.fitkit.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when a bounded worker pool has no room left for a request. The client may retry after a short while.
+ */
+public class ServiceOverloadedException extends ResponseStatusException {
+
+    public ServiceOverloadedException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
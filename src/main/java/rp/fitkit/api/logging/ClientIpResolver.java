@@ -0,0 +1,129 @@
+package rp.fitkit.api.logging;
+
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Determines the client address of a request for rate limiting.
+ * <p>
+ * {@code X-Forwarded-For} is only believed when the request comes from a configured trusted proxy; the header is
+ * then read from right to left, skipping further trusted proxies, and the first untrusted address is the client.
+ * Without trusted proxies the header is ignored, so a client cannot pick its own rate limit key.
+ */
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final List<Cidr> trustedProxies;
+
+    /**
+     * @param trustedProxies Addresses or CIDR ranges of the reverse proxies in front of the API, e.g. {@code 10.0.0.0/8}.
+     */
+    public ClientIpResolver(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .map(Cidr::parse)
+                .toList();
+    }
+
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String peer = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : "unknown";
+        if (trustedProxies.isEmpty() || !isTrusted(peer)) {
+            return peer;
+        }
+
+        List<String> headers = request.getHeaders().get(FORWARDED_FOR);
+        if (headers == null) {
+            return peer;
+        }
+        // Several headers are equivalent to one comma-separated list; the last hop is at the end.
+        for (int h = headers.size() - 1; h >= 0; h--) {
+            String[] hops = headers.get(h).split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !isTrusted(hop)) {
+                    return hop;
+                }
+            }
+        }
+        return peer;
+    }
+
+    private boolean isTrusted(String address) {
+        byte[] bytes = parseLiteral(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (Cidr cidr : trustedProxies) {
+            if (cidr.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an IP literal without ever falling back to a DNS lookup.
+     *
+     * @return The address bytes, or {@code null} if the value is not an IP literal.
+     */
+    private static byte[] parseLiteral(String address) {
+        // IPv4 literals are digits and dots only, IPv6 literals always contain a colon; hostnames are neither.
+        boolean ipv6 = address.indexOf(':') >= 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            boolean allowed = ipv6
+                    ? Character.digit(c, 16) >= 0 || c == ':' || c == '.'
+                    : c >= '0' && c <= '9' || c == '.';
+            if (!allowed) {
+                return null;
+            }
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private record Cidr(byte[] network, int prefixLength) {
+
+        static Cidr parse(String value) {
+            int slash = value.indexOf('/');
+            String address = slash < 0 ? value : value.substring(0, slash);
+            byte[] network = parseLiteral(address.trim());
+            if (network == null) {
+                throw new IllegalArgumentException("Trusted proxy '" + value + "' is not an IP address or CIDR range.");
+            }
+            int prefixLength = slash < 0 ? network.length * 8 : Integer.parseInt(value.substring(slash + 1).trim());
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Trusted proxy '" + value + "' has an invalid prefix length.");
+            }
+            return new Cidr(network, prefixLength);
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package rp.fitkit.api.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import rp.fitkit.api.controller.advise.ApiErrorCode;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds load before it reaches the database when the backend slows down.
+ * <p>
+ * Every configured route group has its own {@link GradientConcurrencyLimiter}. Requests beyond a group's limit get
+ * an immediate 503, and as long as any non-sheddable group reports congestion, sheddable groups (statistics, graph,
+ * history) are refused entirely, so login and logging writes keep the connection pool. Routes outside any group
+ * are not limited. Like the {@code RateLimitingFilter} this is not a bean, so WebFlux does not run it twice.
+ */
+@Slf4j
+public class ConcurrencyLimitFilter implements WebFilter {
+
+    private final RouteMatcher<GradientConcurrencyLimiter> routeMatcher;
+    private final List<GradientConcurrencyLimiter> protectedGroups;
+    private final ObjectMapper objectMapper;
+    private final MessageSource messageSource;
+
+    private final Map<GradientConcurrencyLimiter, Meters> meters = new HashMap<>();
+
+    public ConcurrencyLimitFilter(
+            RouteMatcher<GradientConcurrencyLimiter> routeMatcher,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            MessageSource messageSource
+    ) {
+        this.routeMatcher = routeMatcher;
+        this.objectMapper = objectMapper;
+        this.messageSource = messageSource;
+
+        List<GradientConcurrencyLimiter> groups = routeMatcher.getRoutes().stream()
+                .map(RouteMatcher.Route::target)
+                .distinct()
+                .toList();
+        this.protectedGroups = groups.stream()
+                .filter(group -> group.getPriority() != GradientConcurrencyLimiter.Priority.SHEDDABLE)
+                .toList();
+        groups.forEach(group -> meters.put(group, new Meters(group, meterRegistry)));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        GradientConcurrencyLimiter group = routeMatcher.resolve(exchange.getRequest().getMethod(), exchange.getRequest().getPath().pathWithinApplication());
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+        Meters groupMeters = meters.get(group);
+
+        if (group.getPriority() == GradientConcurrencyLimiter.Priority.SHEDDABLE && anyProtectedGroupCongested()) {
+            groupMeters.shed.increment();
+            log.debug("Shed request for path {} in group '{}': backend is congested.", exchange.getRequest().getPath(), group.getName());
+            return createServiceUnavailableResponse(exchange);
+        }
+        if (!group.tryAcquire()) {
+            groupMeters.limited.increment();
+            log.debug("Rejected request for path {}: group '{}' is at its limit of {}.", exchange.getRequest().getPath(), group.getName(), group.getLimit());
+            return createServiceUnavailableResponse(exchange);
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    long latency = System.nanoTime() - start;
+                    boolean sample = signal != SignalType.CANCEL;
+                    group.release(latency, sample);
+                    if (sample) {
+                        groupMeters.latency.record(latency, TimeUnit.NANOSECONDS);
+                    }
+                });
+    }
+
+    private boolean anyProtectedGroupCongested() {
+        for (int i = 0; i < protectedGroups.size(); i++) {
+            if (protectedGroups.get(i).isCongested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> createServiceUnavailableResponse(ServerWebExchange exchange) {
+        Locale locale = ProblemDetailResponses.localeOf(exchange);
+
+        String title = messageSource.getMessage("error.service.overloaded.title", null, locale);
+        String detail = messageSource.getMessage("error.service.overloaded", null, locale);
+
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, detail);
+        problemDetail.setTitle(title);
+        problemDetail.setInstance(exchange.getRequest().getURI());
+        problemDetail.setProperty("timestamp", LocalDateTime.now());
+        problemDetail.setProperty("errorCode", ApiErrorCode.SERVICE_OVERLOADED);
+
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return ProblemDetailResponses.write(exchange, objectMapper, HttpStatus.SERVICE_UNAVAILABLE, problemDetail);
+    }
+
+    private static final class Meters {
+        private final Counter limited;
+        private final Counter shed;
+        private final Timer latency;
+
+        private Meters(GradientConcurrencyLimiter group, MeterRegistry registry) {
+            String name = group.getName();
+            Gauge.builder("http.concurrency.limit", group, GradientConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit of the route group")
+                    .tag("group", name)
+                    .register(registry);
+            Gauge.builder("http.concurrency.inflight", group, GradientConcurrencyLimiter::getInFlight)
+                    .description("Requests of the route group currently in progress")
+                    .tag("group", name)
+                    .register(registry);
+            this.limited = Counter.builder("http.concurrency.rejected")
+                    .description("Requests refused with 503 by the concurrency limiter")
+                    .tags("group", name, "reason", "limit")
+                    .register(registry);
+            this.shed = Counter.builder("http.concurrency.rejected")
+                    .description("Requests refused with 503 by the concurrency limiter")
+                    .tags("group", name, "reason", "shed")
+                    .register(registry);
+            this.latency = Timer.builder("http.concurrency.latency")
+                    .description("Latency of admitted requests, as seen by the concurrency limiter")
+                    .tag("group", name)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package rp.fitkit.api.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive concurrency limit for one route group, in the style of the gradient limiters from Netflix'
+ * concurrency-limits.
+ * <p>
+ * The limiter keeps a short-term and a long-term average of the request latency. As long as the short-term
+ * latency stays within {@code tolerance} times the long-term baseline the limit grows by roughly its square root
+ * per sample; once requests get slower (typically because Postgres or the R2DBC pool is saturated) the limit is
+ * scaled down by the ratio between the two, and requests beyond it are rejected straight away instead of queueing.
+ */
+public final class GradientConcurrencyLimiter {
+
+    public enum Priority {
+        /** Never shed for the benefit of other groups, e.g. login and logging writes. */
+        CRITICAL,
+        NORMAL,
+        /** Shed first as soon as any group reports congestion, e.g. statistics and history. */
+        SHEDDABLE
+    }
+
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    /** Congestion reported by a group that has gone quiet since is not trusted for longer than this. */
+    private static final long CONGESTION_TTL_NANOS = 5_000_000_000L;
+
+    private final String name;
+    private final Priority priority;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private volatile boolean congested;
+    private volatile long lastSampleNanos;
+
+    // Guarded by this.
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimiter(String name, Priority priority, int minLimit, int maxLimit, int initialLimit, double tolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit || tolerance < 1.0) {
+            throw new IllegalArgumentException("Concurrency limit group '" + name + "' needs 0 < min-limit <= max-limit and tolerance >= 1.");
+        }
+        this.name = name;
+        this.priority = priority;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Claims a slot if the group is below its limit.
+     *
+     * @return {@code true} if the request may proceed; it must then call {@link #release} exactly once.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot and, if the request completed normally, feeds its latency into the limit.
+     *
+     * @param latencyNanos The time the request held the slot.
+     * @param sample       {@code false} for requests whose latency says nothing about the backend, e.g. cancelled ones.
+     */
+    public void release(long latencyNanos, boolean sample) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (sample && latencyNanos > 0) {
+            update(latencyNanos, inFlightBefore);
+        }
+    }
+
+    private synchronized void update(long latencyNanos, int inFlightBefore) {
+        if (longRttNanos == 0) {
+            shortRttNanos = latencyNanos;
+            longRttNanos = latencyNanos;
+            return;
+        }
+        shortRttNanos += (latencyNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+        longRttNanos += (latencyNanos - longRttNanos) * LONG_RTT_WEIGHT;
+        // After a slow period the baseline itself has crept up; let it come down quickly once latency recovers.
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        congested = gradient < 1.0;
+        lastSampleNanos = System.nanoTime();
+
+        double current = limit;
+        // A group that uses less than half of its limit tells us nothing about how far the limit could grow.
+        if (gradient == 1.0 && inFlightBefore < current / 2) {
+            return;
+        }
+        double target = current * gradient + Math.sqrt(current);
+        double smoothed = current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Whether the latest samples, taken in the last few seconds, were slower than the baseline allows.
+     */
+    public boolean isCongested() {
+        return congested && System.nanoTime() - lastSampleNanos < CONGESTION_TTL_NANOS;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
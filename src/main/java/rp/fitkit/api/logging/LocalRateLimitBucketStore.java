@@ -0,0 +1,64 @@
+package rp.fitkit.api.logging;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-process bucket store with a size cap and idle expiry.
+ * <p>
+ * A bucket that is left alone for as long as its limit needs to refill it completely is indistinguishable from a
+ * new one, so it expires after exactly that idle time; expiry never hands out extra tokens. The size cap bounds
+ * the memory an attacker can claim by cycling client addresses, but a bucket evicted by size may still be
+ * partially drained, and its client then starts over with a full one. Keep {@code max-buckets} well above the
+ * number of clients active within one refill period. Caffeine is internally striped, so concurrent lookups for
+ * different clients do not contend, and a local bucket is lock-free, so consuming never blocks.
+ */
+public class LocalRateLimitBucketStore implements RateLimitBucketStore {
+
+    private final Cache<BucketKey, Bucket> buckets;
+
+    public LocalRateLimitBucketStore(long maximumSize, MeterRegistry meterRegistry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilRefilled())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rateLimitBuckets");
+    }
+
+    @Override
+    public Mono<ConsumptionProbe> tryConsume(RateLimitPolicy.Limit limit, String clientKey) {
+        return Mono.fromSupplier(() -> resolve(limit, clientKey).tryConsumeAndReturnRemaining(1));
+    }
+
+    private Bucket resolve(RateLimitPolicy.Limit limit, String clientKey) {
+        return buckets.get(new BucketKey(limit, clientKey), key -> Bucket4j.builder().addLimit(limit.bandwidth()).build());
+    }
+
+    private record BucketKey(RateLimitPolicy.Limit limit, String clientKey) {
+    }
+
+    private static final class UntilRefilled implements Expiry<BucketKey, Bucket> {
+        @Override
+        public long expireAfterCreate(BucketKey key, Bucket bucket, long currentTime) {
+            return key.limit().timeToFullRefill().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(BucketKey key, Bucket bucket, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, bucket, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(BucketKey key, Bucket bucket, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, bucket, currentTime);
+        }
+    }
+}
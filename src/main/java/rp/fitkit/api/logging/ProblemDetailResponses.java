@@ -0,0 +1,47 @@
+package rp.fitkit.api.logging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * Writes a {@link ProblemDetail} straight to the response, for filters that reject a request before it reaches
+ * a controller (and therefore the {@code GlobalExceptionHandler}).
+ */
+@Slf4j
+final class ProblemDetailResponses {
+
+    private ProblemDetailResponses() {
+    }
+
+    /**
+     * The locale of the request, resolved from its Accept-Language header. Filters run outside the handler, so
+     * {@code LocaleContextHolder} does not hold it.
+     */
+    static Locale localeOf(ServerWebExchange exchange) {
+        Locale locale = exchange.getLocaleContext().getLocale();
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    static Mono<Void> write(ServerWebExchange exchange, ObjectMapper objectMapper, HttpStatus status, ProblemDetail problemDetail) {
+        exchange.getResponse().setStatusCode(status);
+        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(problemDetail);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+        } catch (JsonProcessingException e) {
+            log.error("Error writing ProblemDetail for status {}: {}", status.value(), e.getMessage());
+            exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+            exchange.getResponse().getHeaders().setContentType(MediaType.TEXT_PLAIN);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap("Internal Server Error".getBytes())));
+        }
+    }
+}
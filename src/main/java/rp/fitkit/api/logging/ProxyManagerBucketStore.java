@@ -0,0 +1,39 @@
+package rp.fitkit.api.logging;
+
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bucket store backed by a bucket4j {@link ProxyManager}, so the bucket state lives in a shared backend
+ * (Redis, Hazelcast, a JCache grid, ...) and all API nodes enforce one limit together.
+ * Size and expiry of the entries are up to the backend.
+ * <p>
+ * Every consumption is a round trip to the backend, so it goes through the asynchronous API of the proxy manager.
+ * A backend without async support is called on the bounded elastic scheduler instead of the event loop.
+ */
+public class ProxyManagerBucketStore implements RateLimitBucketStore {
+
+    private final ProxyManager<String> proxyManager;
+
+    public ProxyManagerBucketStore(ProxyManager<String> proxyManager) {
+        this.proxyManager = proxyManager;
+    }
+
+    @Override
+    public Mono<ConsumptionProbe> tryConsume(RateLimitPolicy.Limit limit, String clientKey) {
+        String key = limit.bucketName() + ":" + clientKey;
+        BucketConfiguration configuration = BucketConfiguration.builder().addLimit(limit.bandwidth()).build();
+        if (!proxyManager.isAsyncModeSupported()) {
+            return Mono.fromCallable(() -> proxyManager.builder().build(key, () -> configuration).tryConsumeAndReturnRemaining(1))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+        return Mono.fromFuture(() -> proxyManager.asAsync().builder()
+                .build(key, () -> CompletableFuture.completedFuture(configuration))
+                .tryConsumeAndReturnRemaining(1));
+    }
+}
@@ -0,0 +1,23 @@
+package rp.fitkit.api.logging;
+
+import io.github.bucket4j.ConsumptionProbe;
+import reactor.core.publisher.Mono;
+
+/**
+ * Holds the token buckets of the rate limiter.
+ * <p>
+ * The default store keeps buckets in process memory; a store backed by a bucket4j {@code ProxyManager}
+ * lets several API nodes share the same limits.
+ */
+public interface RateLimitBucketStore {
+
+    /**
+     * Takes one token from the bucket of a client under a limit, creating a full bucket if it does not exist yet.
+     * Runs in the request filter, so a store must not block the calling thread.
+     *
+     * @param limit     The limit that applies to the request.
+     * @param clientKey Identifies the client, e.g. {@code ip:203.0.113.7} or {@code user:<uuid>}.
+     * @return A Mono with the outcome, including the tokens left and the time until the bucket is full again.
+     */
+    Mono<ConsumptionProbe> tryConsume(RateLimitPolicy.Limit limit, String clientKey);
+}
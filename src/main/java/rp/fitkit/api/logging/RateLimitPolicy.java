@@ -0,0 +1,72 @@
+package rp.fitkit.api.logging;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Refill;
+
+import java.time.Duration;
+
+/**
+ * A named rate limit for one cost class of endpoints, with a standard and a premium tier.
+ */
+public record RateLimitPolicy(String name, Limit standard, Limit premium) {
+
+    public RateLimitPolicy {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("A rate limit policy needs a name.");
+        }
+        if (standard == null || premium == null) {
+            throw new IllegalArgumentException("Rate limit policy '" + name + "' needs a standard and a premium limit.");
+        }
+    }
+
+    public Limit limitFor(boolean premiumUser) {
+        return premiumUser ? premium : standard;
+    }
+
+    /**
+     * Short description for logs, e.g. {@code history 10/PT1M (premium 50/PT1M)}.
+     */
+    public String describe() {
+        String description = name + " " + standard.capacity() + "/" + standard.refillPeriod();
+        if (!premium.equals(standard.withBucketName(premium.bucketName()))) {
+            description += " (premium " + premium.capacity() + "/" + premium.refillPeriod() + ")";
+        }
+        return description;
+    }
+
+    /**
+     * A bucket of {@code capacity} tokens that gets {@code refillTokens} back every {@code refillPeriod}.
+     * Clients get one bucket per bucket name, so the tiers of a policy never share tokens.
+     */
+    public record Limit(String bucketName, long capacity, long refillTokens, Duration refillPeriod) {
+
+        public Limit {
+            if (capacity <= 0 || refillTokens <= 0 || refillPeriod == null || refillPeriod.isZero() || refillPeriod.isNegative()) {
+                throw new IllegalArgumentException("Rate limit '" + bucketName + "' needs a positive capacity, refill and period.");
+            }
+        }
+
+        public Bandwidth bandwidth() {
+            return Bandwidth.classic(capacity, Refill.intervally(refillTokens, refillPeriod));
+        }
+
+        /**
+         * Time an empty bucket needs to be completely full again.
+         */
+        public Duration timeToFullRefill() {
+            long periods = (capacity + refillTokens - 1) / refillTokens;
+            return refillPeriod.multipliedBy(periods);
+        }
+
+        /**
+         * The limit in the notation of the {@code RateLimit-Policy} header, e.g. {@code 10;w=60}.
+         */
+        public String headerValue() {
+            return capacity + ";w=" + refillPeriod.toSeconds();
+        }
+
+        Limit withBucketName(String name) {
+            return new Limit(name, capacity, refillTokens, refillPeriod);
+        }
+    }
+}
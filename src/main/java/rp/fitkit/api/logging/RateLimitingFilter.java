@@ -1,92 +1,119 @@
 package rp.fitkit.api.logging;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Bucket4j;
-import io.github.bucket4j.Refill;
-import lombok.Getter;
+import io.github.bucket4j.ConsumptionProbe;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
-import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
-import org.springframework.stereotype.Component;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
-@Component
+/**
+ * Applies the configured rate limit policies. Runs inside the security chain after authentication, so it can
+ * key on the user; it is deliberately not a bean, because WebFlux would also register any {@code WebFilter}
+ * bean globally and every request would be counted twice.
+ */
 @Slf4j
 public class RateLimitingFilter implements WebFilter {
 
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
-    private final Bandwidth limit = Bandwidth.classic(10, Refill.intervally(10, Duration.ofMinutes(1)));
-
+    private final RouteMatcher<RateLimitPolicy> routeMatcher;
+    private final RateLimitBucketStore bucketStore;
+    private final ClientIpResolver clientIpResolver;
     private final ObjectMapper objectMapper;
     private final MessageSource messageSource;
 
-    @Getter
-    private final Set<String> rateLimitedPaths = new HashSet<>();
-
-    public RateLimitingFilter(ObjectMapper objectMapper, MessageSource messageSource) {
+    public RateLimitingFilter(
+            RouteMatcher<RateLimitPolicy> routeMatcher,
+            RateLimitBucketStore bucketStore,
+            ClientIpResolver clientIpResolver,
+            ObjectMapper objectMapper,
+            MessageSource messageSource
+    ) {
+        this.routeMatcher = routeMatcher;
+        this.bucketStore = bucketStore;
+        this.clientIpResolver = clientIpResolver;
         this.objectMapper = objectMapper;
         this.messageSource = messageSource;
-
-        // Initialize paths that should be rate-limited
-        rateLimitedPaths.add("/api/v1/users/login");
-        rateLimitedPaths.add("/api/v1/users/register");
-        rateLimitedPaths.add("/api/v1/users/me");
-
-        rateLimitedPaths.add("/api/v1/history");
-        rateLimitedPaths.add("/api/v1/history/.*");
-        rateLimitedPaths.add("/api/v1/log/workout");
-        rateLimitedPaths.add("/api/v1/plans");
-        rateLimitedPaths.add("/api/v1/plans/.*");
-        rateLimitedPaths.add("/api/v1/suggestions/planned");
-        rateLimitedPaths.add("/api/v1/suggestions/adhoc");
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        String path = exchange.getRequest().getURI().getPath();
-        boolean shouldApplyRateLimit = rateLimitedPaths.stream()
-                .anyMatch(path::matches);
+        RateLimitPolicy policy = routeMatcher.resolve(exchange.getRequest().getMethod(), exchange.getRequest().getPath().pathWithinApplication());
+        if (policy == null) {
+            return chain.filter(exchange);
+        }
 
-        if (shouldApplyRateLimit) {
-            String ipAddress = getIpAddress(exchange);
+        return client(exchange).flatMap(client -> {
+            RateLimitPolicy.Limit limit = policy.limitFor(client.premium());
+            return bucketStore.tryConsume(limit, client.key())
+                    .flatMap(probe -> admit(exchange, chain, client, limit, probe));
+        });
+    }
 
-            Bucket bucket = buckets.computeIfAbsent(ipAddress, k -> Bucket4j.builder().addLimit(limit).build());
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, Client client,
+                             RateLimitPolicy.Limit limit, ConsumptionProbe probe) {
+        writeRateLimitHeaders(exchange, limit, probe);
 
-            if (bucket.tryConsume(1)) {
-                log.debug("Request from IP {} for path {} allowed. Tokens left: {}", ipAddress, path, bucket.getAvailableTokens());
-                return chain.filter(exchange);
-            } else {
-                log.warn("Request from IP {} for path {} blocked due to rate limit.", ipAddress, path);
-                return createTooManyRequestsResponse(exchange);
+        if (probe.isConsumed()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Request from {} for path {} allowed by policy '{}'. Tokens left: {}",
+                        client.key(), exchange.getRequest().getPath(), limit.bucketName(), probe.getRemainingTokens());
             }
+            return chain.filter(exchange);
         }
+        log.warn("Request from {} for path {} blocked by rate limit policy '{}'.", client.key(), exchange.getRequest().getPath(), limit.bucketName());
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(toSecondsRoundedUp(probe.getNanosToWaitForRefill())));
+        return createTooManyRequestsResponse(exchange);
+    }
+
+    /**
+     * Authenticated requests are limited per user, so users behind one NAT do not share a bucket, and premium
+     * users get the premium tier. Anonymous requests are limited per client IP.
+     */
+    private Mono<Client> client(ServerWebExchange exchange) {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication.getPrincipal() instanceof User)
+                .map(authentication -> {
+                    User user = (User) authentication.getPrincipal();
+                    return new Client("user:" + user.getId(), user.isPremium());
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> new Client("ip:" + clientIpResolver.resolve(exchange.getRequest()), false)));
+    }
 
-        return chain.filter(exchange);
+    /**
+     * Writes the {@code RateLimit-*} headers of the IETF rate limit header draft, so clients can pace themselves.
+     */
+    private void writeRateLimitHeaders(ServerWebExchange exchange, RateLimitPolicy.Limit limit, ConsumptionProbe probe) {
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        headers.set("RateLimit-Limit", Long.toString(limit.capacity()));
+        headers.set("RateLimit-Remaining", Long.toString(probe.getRemainingTokens()));
+        headers.set("RateLimit-Reset", Long.toString(toSecondsRoundedUp(probe.getNanosToWaitForReset())));
+        headers.set("RateLimit-Policy", limit.headerValue());
+    }
+
+    private static long toSecondsRoundedUp(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+
+    private record Client(String key, boolean premium) {
     }
 
     private Mono<Void> createTooManyRequestsResponse(ServerWebExchange exchange) {
-        Locale locale = LocaleContextHolder.getLocale();
+        Locale locale = ProblemDetailResponses.localeOf(exchange);
 
-        String title = messageSource.getMessage("rate.limit.error.title", null, locale);
-        String detail = messageSource.getMessage("rate.limit.error.detail", null, locale);
+        String title = messageSource.getMessage("error.rate.limit.title", null, locale);
+        String detail = messageSource.getMessage("error.rate.limit", null, locale);
 
         ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, detail);
         problemDetail.setTitle(title);
@@ -94,25 +121,6 @@ public class RateLimitingFilter implements WebFilter {
         problemDetail.setProperty("timestamp", LocalDateTime.now());
         problemDetail.setProperty("errorCode", "TOO_MANY_REQUESTS");
 
-        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-        exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
-
-        try {
-            byte[] bytes = objectMapper.writeValueAsBytes(problemDetail);
-            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
-        } catch (JsonProcessingException e) {
-            log.error("Error writing ProblemDetail for rate limit: {}", e.getMessage());
-            exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-            exchange.getResponse().getHeaders().setContentType(MediaType.TEXT_PLAIN);
-            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap("Internal Server Error".getBytes())));
-        }
-    }
-
-    private String getIpAddress(ServerWebExchange exchange) {
-        if (exchange.getRequest().getHeaders().containsKey("X-Forwarded-For")) {
-            return exchange.getRequest().getHeaders().get("X-Forwarded-For").get(0);
-        }
-        return exchange.getRequest().getRemoteAddress() != null ?
-                exchange.getRequest().getRemoteAddress().getAddress().getHostAddress() : "unknown";
+        return ProblemDetailResponses.write(exchange, objectMapper, HttpStatus.TOO_MANY_REQUESTS, problemDetail);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,178 @@
+package rp.fitkit.api.logging;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves what applies to a request path, such as a rate limit policy or a concurrency limit group.
+ * <p>
+ * All configured patterns are parsed once into {@link PathPattern}s and hung in a trie on their leading literal
+ * segments ({@code /api/v1/plans/**} sits under {@code api -> v1 -> plans}). A lookup walks the trie along the
+ * already-parsed path segments and only tests the patterns on that branch, deepest first, so the most specific
+ * route wins and a request for an unconfigured path usually tests no pattern at all.
+ * <p>
+ * A route can be restricted to HTTP methods by prefixing its pattern, e.g. {@code PUT /api/v1/logbook/*}{@code /*}.
+ * For the same pattern, a route restricted to the request's method wins over an unrestricted one.
+ *
+ * @param <T> What a route resolves to.
+ */
+public final class RouteMatcher<T> {
+
+    private final Node<T> root;
+    private final List<Route<T>> routes;
+
+    private RouteMatcher(Node<T> root, List<Route<T>> routes) {
+        this.root = root;
+        this.routes = routes;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Finds the target for a request.
+     *
+     * @param method The request method.
+     * @param path   The parsed request path, e.g. {@code request.getPath().pathWithinApplication()}.
+     * @return The target of the most specific matching route, or {@code null} if no route matches.
+     */
+    public T resolve(HttpMethod method, PathContainer path) {
+        return match(root, method, path, path.elements(), 0);
+    }
+
+    /**
+     * Finds the target for a path given as a string. Meant for diagnostics, not for the request path.
+     */
+    public T resolve(HttpMethod method, String path) {
+        return resolve(method, PathContainer.parsePath(path));
+    }
+
+    /**
+     * @return All configured routes, in configuration order.
+     */
+    public List<Route<T>> getRoutes() {
+        return routes;
+    }
+
+    private T match(Node<T> node, HttpMethod method, PathContainer path, List<PathContainer.Element> elements, int index) {
+        int next = index;
+        while (next < elements.size() && !(elements.get(next) instanceof PathContainer.PathSegment)) {
+            next++;
+        }
+        if (next < elements.size() && node.children != null) {
+            Node<T> child = node.children.get(((PathContainer.PathSegment) elements.get(next)).valueToMatch());
+            if (child != null) {
+                T target = match(child, method, path, elements, next + 1);
+                if (target != null) {
+                    return target;
+                }
+            }
+        }
+        List<Route<T>> candidates = node.routes;
+        for (int i = 0; i < candidates.size(); i++) {
+            Route<T> route = candidates.get(i);
+            if ((route.methods().isEmpty() || route.methods().contains(method)) && route.pattern().matches(path)) {
+                return route.target();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param methods The methods the route applies to; empty for all methods.
+     */
+    public record Route<T>(Set<HttpMethod> methods, PathPattern pattern, T target) {
+
+        @Override
+        public String toString() {
+            if (methods.isEmpty()) {
+                return pattern.getPatternString();
+            }
+            return methods.stream().map(HttpMethod::name).sorted().collect(Collectors.joining(","))
+                    + " " + pattern.getPatternString();
+        }
+    }
+
+    private static final class Node<T> {
+        private Map<String, Node<T>> children;
+        private List<Route<T>> routes = List.of();
+    }
+
+    public static final class Builder<T> {
+
+        private final PathPatternParser parser = PathPatternParser.defaultInstance;
+        private final Node<T> root = new Node<>();
+        private final Map<String, Route<T>> routes = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a route. A pattern may only be configured once per set of methods.
+         *
+         * @param route A {@link PathPattern} expression, e.g. {@code /api/v1/plans/**}, optionally preceded by
+         *              comma-separated HTTP methods, e.g. {@code PUT,PATCH /api/v1/logbook/*}{@code /*}.
+         * @param target What applies to matching requests.
+         * @return This builder.
+         */
+        public Builder<T> add(String route, T target) {
+            String pattern = route.trim();
+            Set<HttpMethod> methods = Set.of();
+            int space = pattern.indexOf(' ');
+            if (space > 0) {
+                methods = Arrays.stream(pattern.substring(0, space).split(","))
+                        .map(method -> HttpMethod.valueOf(method.trim().toUpperCase(Locale.ROOT)))
+                        .collect(Collectors.toUnmodifiableSet());
+                pattern = pattern.substring(space + 1).trim();
+            }
+            PathPattern parsed = parser.parse(pattern);
+            Route<T> parsedRoute = new Route<>(methods, parsed, target);
+            Route<T> existing = routes.putIfAbsent(parsedRoute.toString(), parsedRoute);
+            if (existing != null) {
+                throw new IllegalStateException("Path '" + route + "' is configured for both "
+                        + existing.target() + " and " + target + ".");
+            }
+
+            Node<T> node = root;
+            for (String segment : parsed.getPatternString().split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (!isLiteral(segment)) {
+                    break;
+                }
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node = node.children.computeIfAbsent(segment, s -> new Node<>());
+            }
+
+            List<Route<T>> nodeRoutes = new ArrayList<>(node.routes);
+            nodeRoutes.add(parsedRoute);
+            nodeRoutes.sort(Comparator.comparing(Route<T>::pattern, PathPattern.SPECIFICITY_COMPARATOR)
+                    .thenComparing(candidate -> candidate.methods().isEmpty()));
+            node.routes = List.copyOf(nodeRoutes);
+            return this;
+        }
+
+        public RouteMatcher<T> build() {
+            return new RouteMatcher<>(root, List.copyOf(routes.values()));
+        }
+
+        private static boolean isLiteral(String segment) {
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c == '{' || c == '*' || c == '?') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package rp.fitkit.api.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * The bucket size of the training analytics. Weeks start on Monday, like {@code date_trunc('week', ...)}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AnalyticsPeriod {
+    WEEK("week", ChronoUnit.WEEKS),
+    MONTH("month", ChronoUnit.MONTHS);
+
+    private final String dateTruncUnit;
+    private final ChronoUnit unit;
+
+    /**
+     * @return The first day of the bucket that contains the date.
+     */
+    public LocalDate startOf(LocalDate date) {
+        return switch (this) {
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+}
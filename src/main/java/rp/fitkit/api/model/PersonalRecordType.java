@@ -0,0 +1,15 @@
+package rp.fitkit.api.model;
+
+/**
+ * What kind of best a personal record beats.
+ */
+public enum PersonalRecordType {
+    /**
+     * The highest estimated one-rep max (Epley) of an exercise.
+     */
+    ESTIMATED_ONE_REP_MAX,
+    /**
+     * The heaviest weight for a given number of reps.
+     */
+    REP_MAX
+}
@@ -6,6 +6,8 @@ import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 import rp.fitkit.api.model.root.EntityType;
 
+import java.util.UUID;
+
 /**
  * Represents a generic, polymorphic link between two entities in the application.
  * The source and target can be of any type defined in the EntityType enum.
@@ -27,10 +29,23 @@ public class LogEntityLink {
     /**
      * The unique identifier of the source entity.
      * Stored as a String to accommodate both numeric IDs and UUIDs.
+     * Still written for compatibility; queries use {@link #sourceId}.
      */
     @Column("source_entity_id")
     private String sourceEntityId;
 
+    /**
+     * The numeric ID of the source entity. All current source types (log sections) have numeric IDs.
+     */
+    @Column("source_id")
+    private Long sourceId;
+
+    /**
+     * The owner of the source entity, denormalized so a user's links can be found without joins.
+     */
+    @Column("user_id")
+    private UUID userId;
+
     /**
      * The user-visible text for the link, e.g., the text between brackets in Markdown.
      */
@@ -47,7 +62,20 @@ public class LogEntityLink {
     /**
      * The unique identifier of the target entity.
      * Stored as a String to accommodate both numeric IDs and UUIDs.
+     * Still written for compatibility; queries use {@link #targetId} or {@link #targetUuid}.
      */
     @Column("target_entity_id")
     private String targetEntityId;
+
+    /**
+     * The ID of the target entity if it is numeric (e.g., DAILY_LOG), otherwise null.
+     */
+    @Column("target_id")
+    private Long targetId;
+
+    /**
+     * The ID of the target entity if it is a UUID (e.g., PERSON), otherwise null.
+     */
+    @Column("target_uuid")
+    private UUID targetUuid;
 }
@@ -1,7 +1,6 @@
 package rp.fitkit.api.model.logbook;
 
 import lombok.Data;
-import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
 import org.springframework.data.domain.Persistable;
@@ -25,5 +24,15 @@ public class LogSection {
     private String summary;
 
     private String mood;
+
+    /**
+     * The sentiment of {@link #mood}, computed asynchronously after a save.
+     * Null while the mood has not been classified yet.
+     */
+    @Column("mood_label")
+    private MoodCategory moodLabel;
+
+    @Column("mood_confidence")
+    private Double moodConfidence;
 }
 
@@ -0,0 +1,10 @@
+package rp.fitkit.api.model.logbook;
+
+/**
+ * The sentiment bucket a free-text or numeric mood is classified into.
+ */
+public enum MoodCategory {
+    POSITIVE,
+    NEUTRAL,
+    NEGATIVE
+}
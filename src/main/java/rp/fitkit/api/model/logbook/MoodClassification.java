@@ -0,0 +1,15 @@
+package rp.fitkit.api.model.logbook;
+
+import lombok.Value;
+
+/**
+ * The outcome of classifying a single mood: the category and how confident the classifier was.
+ * Numeric star ratings are mapped deterministically and always carry a confidence of 1.0.
+ */
+@Value
+public class MoodClassification {
+    public static final MoodClassification NEUTRAL = new MoodClassification(MoodCategory.NEUTRAL, 1.0);
+
+    MoodCategory category;
+    double confidence;
+}
@@ -19,6 +19,12 @@ public class PasswordRecoveryCode implements Persistable<UUID> {
 
     private String codeHash;
 
+    /**
+     * Short digest prefix of the plain code, used to find the candidate row without BCrypt-checking every code.
+     * {@code null} for codes created before the column existed.
+     */
+    private String codePrefix;
+
     private boolean isUsed = false;
 
     @Transient
@@ -0,0 +1,53 @@
+package rp.fitkit.api.model.user;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Persistable;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A chain of refresh tokens that started with a single login. Only the newest token of the chain is valid;
+ * its ID is stored as a SHA-256 hash in {@link #currentTokenHash}.
+ */
+@Data
+@NoArgsConstructor
+@Table("refresh_token_families")
+public class RefreshTokenFamily implements Persistable<UUID> {
+
+    @Id
+    private UUID id;
+
+    private UUID userId;
+
+    private String currentTokenHash;
+
+    private boolean revoked = false;
+
+    private Instant createdAt;
+
+    private Instant rotatedAt;
+
+    private Instant expiresAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    public RefreshTokenFamily(UUID id, UUID userId, String currentTokenHash, Instant expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.currentTokenHash = currentTokenHash;
+        this.createdAt = Instant.now();
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    @Transient
+    public boolean isNew() {
+        return this.isNew;
+    }
+}
@@ -62,6 +62,38 @@ public class User implements Persistable<UUID>, UserDetails {
         this.passwordHash = passwordHash;
     }
 
+    /**
+     * Builds a principal from the claims of a verified access token, without touching the database.
+     * Only the ID, username and authorities are filled in; profile fields such as email stay {@code null}.
+     */
+    public static User fromTokenClaims(UUID id, String username, List<String> roles) {
+        User user = new User();
+        user.id = id;
+        user.username = username;
+        user.setAuthoritiesFromRoles(roles);
+        return user;
+    }
+
+    /**
+     * Rebuilds a user from cached state, so every request gets its own instance instead of a shared one.
+     */
+    public static User restore(UUID id, String username, String email, String passwordHash, LocalDate dateJoined,
+                               boolean enabled, boolean accountNonLocked, boolean accountNonExpired,
+                               boolean credentialsNonExpired, List<String> roles) {
+        User user = new User();
+        user.id = id;
+        user.username = username;
+        user.email = email;
+        user.passwordHash = passwordHash;
+        user.dateJoined = dateJoined;
+        user.enabled = enabled;
+        user.accountNonLocked = accountNonLocked;
+        user.accountNonExpired = accountNonExpired;
+        user.credentialsNonExpired = credentialsNonExpired;
+        user.setAuthoritiesFromRoles(roles);
+        return user;
+    }
+
     public void setPassword(String newPasswordHash) {
         this.passwordHash = newPasswordHash;
         this.credentialsNonExpired = true;
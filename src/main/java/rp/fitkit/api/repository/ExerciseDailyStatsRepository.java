@@ -0,0 +1,411 @@
+package rp.fitkit.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.AnalyticsPeriod;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Repository for the exercise_daily_stats rollup: per user, exercise and day the top set, its e1RM, the best e1RM
+ * before that day, the volume, the number of sets and reps, and the RPE total. Next to it, training_period_stats
+ * holds the totals of all exercises per user and day, week and month, so an analytics bucket is one row.
+ * <p>
+ * The table has a composite key and is changed with merges rather than whole-row saves, so it is accessed
+ * through plain SQL instead of an entity repository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExerciseDailyStatsRepository {
+
+    /**
+     * Merges the rollup of a new session into the row of its day: volume and set count add up, the top set
+     * is replaced only by a heavier estimate. A new day takes its previous best from the latest earlier day,
+     * one index lookup on the primary key; the days before it do not change, so an existing row keeps it.
+     */
+    private static final String MERGE_SESSION = """
+            INSERT INTO exercise_daily_stats (user_id, exercise_id, session_date, top_set_weight, top_set_reps,
+                                              estimated_1rm, total_volume, set_count, total_reps, rpe_sum, rpe_set_count,
+                                              previous_best)
+            VALUES (:userId, :exerciseId::uuid, :date, :topSetWeight, :topSetReps, :estimatedOneRepMax, :totalVolume, :setCount,
+                    :totalReps, :rpeSum, :rpeSetCount,
+                    (SELECT GREATEST(p.estimated_1rm, p.previous_best)
+                       FROM exercise_daily_stats p
+                      WHERE p.user_id = :userId
+                        AND p.exercise_id = :exerciseId::uuid
+                        AND p.session_date < :date
+                      ORDER BY p.session_date DESC
+                      LIMIT 1))
+            ON CONFLICT (user_id, exercise_id, session_date) DO UPDATE SET
+                top_set_weight = CASE WHEN EXCLUDED.estimated_1rm > exercise_daily_stats.estimated_1rm
+                                      THEN EXCLUDED.top_set_weight ELSE exercise_daily_stats.top_set_weight END,
+                top_set_reps   = CASE WHEN EXCLUDED.estimated_1rm > exercise_daily_stats.estimated_1rm
+                                      THEN EXCLUDED.top_set_reps ELSE exercise_daily_stats.top_set_reps END,
+                estimated_1rm  = GREATEST(exercise_daily_stats.estimated_1rm, EXCLUDED.estimated_1rm),
+                total_volume   = exercise_daily_stats.total_volume + EXCLUDED.total_volume,
+                set_count      = exercise_daily_stats.set_count + EXCLUDED.set_count,
+                total_reps     = exercise_daily_stats.total_reps + EXCLUDED.total_reps,
+                rpe_sum        = exercise_daily_stats.rpe_sum + EXCLUDED.rpe_sum,
+                rpe_set_count  = exercise_daily_stats.rpe_set_count + EXCLUDED.rpe_set_count
+            """;
+
+    /**
+     * Raises the previous best of the later days of the exercise when a session is logged for an earlier day.
+     * A session logged for today has no later days, so this usually updates nothing.
+     */
+    private static final String RAISE_LATER_PREVIOUS_BEST = """
+            UPDATE exercise_daily_stats
+               SET previous_best = :estimatedOneRepMax
+             WHERE user_id = :userId
+               AND exercise_id = :exerciseId::uuid
+               AND session_date > :date
+               AND (previous_best IS NULL OR previous_best < :estimatedOneRepMax)
+            """;
+
+    /**
+     * Adds a session to the totals of its day, week and month. The day row is merged first; {@code xmax = 0}
+     * tells whether it was inserted, i.e. whether this is the first session of the user on that day, which is
+     * what the week and month count as a new training day. A concurrent first session of the same day waits on
+     * the conflicting insert, so the day is counted once.
+     */
+    private static final String MERGE_PERIODS = """
+            WITH day AS (
+                INSERT INTO training_period_stats AS t (user_id, period, bucket_start, training_days, set_count,
+                                                        total_reps, tonnage, rpe_sum, rpe_set_count)
+                VALUES (:userId, 'DAY', :date, 1, :setCount, :totalReps, :totalVolume, :rpeSum, :rpeSetCount)
+                ON CONFLICT (user_id, period, bucket_start) DO UPDATE SET
+                    set_count     = t.set_count + EXCLUDED.set_count,
+                    total_reps    = t.total_reps + EXCLUDED.total_reps,
+                    tonnage       = t.tonnage + EXCLUDED.tonnage,
+                    rpe_sum       = t.rpe_sum + EXCLUDED.rpe_sum,
+                    rpe_set_count = t.rpe_set_count + EXCLUDED.rpe_set_count
+                RETURNING (xmax = 0) AS new_day
+            )
+            INSERT INTO training_period_stats AS t (user_id, period, bucket_start, training_days, set_count,
+                                                    total_reps, tonnage, rpe_sum, rpe_set_count)
+            SELECT :userId, p.period, date_trunc(p.unit, :date::timestamp)::date, CASE WHEN day.new_day THEN 1 ELSE 0 END,
+                   :setCount, :totalReps, :totalVolume, :rpeSum, :rpeSetCount
+              FROM day
+             CROSS JOIN (VALUES ('WEEK', 'week'), ('MONTH', 'month')) p(period, unit)
+            ON CONFLICT (user_id, period, bucket_start) DO UPDATE SET
+                training_days = t.training_days + EXCLUDED.training_days,
+                set_count     = t.set_count + EXCLUDED.set_count,
+                total_reps    = t.total_reps + EXCLUDED.total_reps,
+                tonnage       = t.tonnage + EXCLUDED.tonnage,
+                rpe_sum       = t.rpe_sum + EXCLUDED.rpe_sum,
+                rpe_set_count = t.rpe_set_count + EXCLUDED.rpe_set_count
+            """;
+
+    /**
+     * Blocks {@link #MERGE_SESSION} until the rebuilding transaction commits, and waits for sessions that already
+     * merged to commit first. Without it a session logged during the rebuild could be overwritten by a rebuild
+     * that does not see it yet. Readers are not blocked.
+     */
+    private static final String LOCK_FOR_REBUILD =
+            "LOCK TABLE exercise_daily_stats, training_period_stats IN SHARE ROW EXCLUSIVE MODE";
+
+    /**
+     * Removes all rows of the given users, including days whose sessions have been deleted since.
+     */
+    private static final String DELETE_USERS = "DELETE FROM exercise_daily_stats WHERE user_id = ANY(:userIds::uuid[])";
+
+    private static final String DELETE_USER_PERIODS = "DELETE FROM training_period_stats WHERE user_id = ANY(:userIds::uuid[])";
+
+    /**
+     * Recomputes the rows of the given users from exercise_session and set_log, after {@link #DELETE_USERS}.
+     * The Epley formula matches {@code OneRepMaxCalculator}. The backfill-exercise-daily-stats,
+     * backfill-exercise-daily-stats-intensity and add-exercise-daily-stats-previous-best changesets compute the
+     * same values for all users.
+     */
+    private static final String REBUILD_USERS = """
+            INSERT INTO exercise_daily_stats (user_id, exercise_id, session_date, top_set_weight, top_set_reps,
+                                              estimated_1rm, total_volume, set_count, total_reps, rpe_sum, rpe_set_count,
+                                              previous_best)
+            SELECT t.user_id, t.exercise_id, t.session_date,
+                   (array_agg(t.weight ORDER BY t.e1rm DESC))[1],
+                   (array_agg(t.reps ORDER BY t.e1rm DESC))[1],
+                   MAX(t.e1rm),
+                   SUM(t.weight * t.reps),
+                   COUNT(*),
+                   SUM(t.reps),
+                   COALESCE(SUM(t.rpe) FILTER (WHERE t.rpe > 0), 0),
+                   COUNT(*) FILTER (WHERE t.rpe > 0),
+                   MAX(MAX(t.e1rm)) OVER (PARTITION BY t.user_id, t.exercise_id ORDER BY t.session_date
+                                          ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING)
+              FROM (SELECT es.user_id, es.exercise_id, es.session_date, s.weight, s.reps, s.rpe,
+                           CASE WHEN s.reps = 1 THEN s.weight ELSE s.weight * (1 + s.reps / 30.0::float8) END AS e1rm
+                      FROM exercise_session es
+                      JOIN set_log s ON s.exercise_session_id = es.id
+                     WHERE es.user_id = ANY(:userIds::uuid[])) t
+             GROUP BY t.user_id, t.exercise_id, t.session_date
+            """;
+
+    /**
+     * Recomputes the day, week and month totals of the given users from their daily rows, after
+     * {@link #REBUILD_USERS}. The backfill-training-period-stats changeset runs the same query for all users.
+     */
+    private static final String REBUILD_PERIODS = """
+            INSERT INTO training_period_stats (user_id, period, bucket_start, training_days, set_count, total_reps,
+                                               tonnage, rpe_sum, rpe_set_count)
+            SELECT d.user_id, p.period, date_trunc(p.unit, d.session_date::timestamp)::date,
+                   COUNT(DISTINCT d.session_date), SUM(d.set_count), SUM(d.total_reps), SUM(d.total_volume),
+                   SUM(d.rpe_sum), SUM(d.rpe_set_count)
+              FROM exercise_daily_stats d
+             CROSS JOIN (VALUES ('DAY', 'day'), ('WEEK', 'week'), ('MONTH', 'month')) p(period, unit)
+             WHERE d.user_id = ANY(:userIds::uuid[])
+             GROUP BY d.user_id, p.period, 3
+            """;
+
+    /**
+     * The maintained totals of the weeks or months in the range: one row per bucket, read with a range scan on the
+     * primary key, however much was trained in it.
+     */
+    private static final String BUCKET_TOTALS = """
+            SELECT bucket_start, training_days, set_count, total_reps, tonnage, rpe_sum, rpe_set_count
+              FROM training_period_stats
+             WHERE user_id = :userId
+               AND period = :period
+               AND bucket_start BETWEEN :from AND :to
+             ORDER BY bucket_start
+            """;
+
+    /**
+     * Sets per muscle group per week or month. A set counts for every muscle group its exercise trains.
+     * The ids are compared as text because exercise_muscle_group is mapped with string ids.
+     */
+    private static final String BUCKET_MUSCLE_GROUP_SETS = """
+            SELECT date_trunc(:unit, d.session_date::timestamp)::date AS bucket_start,
+                   mg.code AS muscle_group,
+                   SUM(d.set_count) AS set_count
+              FROM exercise_daily_stats d
+              JOIN exercise_muscle_group emg ON emg.exercise_id::text = d.exercise_id::text
+              JOIN muscle_group mg ON mg.id::text = emg.muscle_group_id::text
+             WHERE d.user_id = :userId
+               AND d.session_date BETWEEN :from AND :to
+             GROUP BY 1, 2
+             ORDER BY 1, 2
+            """;
+
+    /**
+     * Days in the range on which the e1RM of an exercise beat every earlier day of that exercise. The best before
+     * each day is maintained on the row, so only the days of the range are read, through the (user_id,
+     * session_date) index. The first day of an exercise has no previous best and is not a record.
+     */
+    private static final String RECORD_DAYS = """
+            SELECT t.session_date, t.exercise_id::text AS exercise_id, n.name AS exercise_name,
+                   t.top_set_weight, t.top_set_reps, t.estimated_1rm, t.previous_best
+              FROM exercise_daily_stats t
+              LEFT JOIN LATERAL (
+                   SELECT et.name FROM exercise_translation et
+                    WHERE et.exercise_id = t.exercise_id
+                      AND et.language_code IN (:languageCode, 'en-GB')
+                    ORDER BY et.language_code = :languageCode DESC
+                    LIMIT 1) n ON true
+             WHERE t.user_id = :userId
+               AND t.session_date BETWEEN :from AND :to
+               AND t.estimated_1rm > t.previous_best
+             ORDER BY t.session_date, n.name
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Adds a freshly logged session to the rollup of its day, to the previous best of later days and to the
+     * totals of its day, week and month. Runs in the transaction of the logged session.
+     *
+     * @param userId     The ID of the user.
+     * @param exerciseId The ID of the exercise.
+     * @param stats      The rollup of the session's sets.
+     * @return A Mono that completes when the row is written.
+     */
+    public Mono<Void> mergeSession(UUID userId, String exerciseId, ExerciseDayStats stats) {
+        return databaseClient.sql(MERGE_SESSION)
+                .bind("userId", userId)
+                .bind("exerciseId", exerciseId)
+                .bind("date", stats.date())
+                .bind("topSetWeight", stats.topSetWeight())
+                .bind("topSetReps", stats.topSetReps())
+                .bind("estimatedOneRepMax", stats.estimatedOneRepMax())
+                .bind("totalVolume", stats.totalVolume())
+                .bind("setCount", stats.setCount())
+                .bind("totalReps", stats.totalReps())
+                .bind("rpeSum", stats.rpeSum())
+                .bind("rpeSetCount", stats.rpeSetCount())
+                .then()
+                .then(databaseClient.sql(RAISE_LATER_PREVIOUS_BEST)
+                        .bind("userId", userId)
+                        .bind("exerciseId", exerciseId)
+                        .bind("date", stats.date())
+                        .bind("estimatedOneRepMax", stats.estimatedOneRepMax())
+                        .then())
+                .then(databaseClient.sql(MERGE_PERIODS)
+                        .bind("userId", userId)
+                        .bind("date", stats.date())
+                        .bind("setCount", stats.setCount())
+                        .bind("totalReps", stats.totalReps())
+                        .bind("totalVolume", stats.totalVolume())
+                        .bind("rpeSum", stats.rpeSum())
+                        .bind("rpeSetCount", stats.rpeSetCount())
+                        .then());
+    }
+
+    /**
+     * Finds the daily rollups of an exercise, oldest first. One range scan on the primary key per exercise ID
+     * the name resolves to.
+     *
+     * @param userId       The ID of the user.
+     * @param exerciseName The name of the exercise, in any language.
+     * @return A Flux of daily rollups.
+     */
+    public Flux<ExerciseDayStats> findByExerciseName(UUID userId, String exerciseName) {
+        return databaseClient.sql("""
+                        SELECT session_date, top_set_weight, top_set_reps, estimated_1rm, total_volume, set_count,
+                               total_reps, rpe_sum, rpe_set_count
+                          FROM exercise_daily_stats
+                         WHERE user_id = :userId
+                           AND exercise_id IN (SELECT exercise_id FROM exercise_translation WHERE name = :exerciseName)
+                         ORDER BY session_date
+                        """)
+                .bind("userId", userId)
+                .bind("exerciseName", exerciseName)
+                .map((row, metadata) -> new ExerciseDayStats(
+                        row.get("session_date", LocalDate.class),
+                        row.get("top_set_weight", Double.class),
+                        row.get("top_set_reps", Integer.class),
+                        row.get("estimated_1rm", Double.class),
+                        row.get("total_volume", Double.class),
+                        row.get("set_count", Integer.class),
+                        row.get("total_reps", Integer.class),
+                        row.get("rpe_sum", Integer.class),
+                        row.get("rpe_set_count", Integer.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Reads the totals of a user per bucket. Buckets without training are not returned.
+     *
+     * @param userId The ID of the user.
+     * @param period The bucket size.
+     * @param from   The first day (inclusive).
+     * @param to     The last day (inclusive).
+     * @return A Flux of bucket totals, oldest first.
+     */
+    public Flux<TrainingBucketTotals> findBucketTotals(UUID userId, AnalyticsPeriod period, LocalDate from, LocalDate to) {
+        return databaseClient.sql(BUCKET_TOTALS)
+                .bind("period", period.name())
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new TrainingBucketTotals(
+                        row.get("bucket_start", LocalDate.class),
+                        row.get("training_days", Integer.class),
+                        row.get("set_count", Integer.class),
+                        row.get("total_reps", Integer.class),
+                        row.get("tonnage", Double.class),
+                        row.get("rpe_sum", Integer.class),
+                        row.get("rpe_set_count", Integer.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Counts the sets of a user per bucket and muscle group.
+     *
+     * @param userId The ID of the user.
+     * @param period The bucket size.
+     * @param from   The first day (inclusive).
+     * @param to     The last day (inclusive).
+     * @return A Flux of set counts, ordered by bucket and muscle group code.
+     */
+    public Flux<MuscleGroupBucketSets> findMuscleGroupSets(UUID userId, AnalyticsPeriod period, LocalDate from, LocalDate to) {
+        return databaseClient.sql(BUCKET_MUSCLE_GROUP_SETS)
+                .bind("unit", period.getDateTruncUnit())
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> new MuscleGroupBucketSets(
+                        row.get("bucket_start", LocalDate.class),
+                        row.get("muscle_group", String.class),
+                        row.get("set_count", Long.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Finds the days in a range on which an exercise reached a new best e1RM.
+     *
+     * @param userId       The ID of the user.
+     * @param from         The first day (inclusive).
+     * @param to           The last day (inclusive).
+     * @param languageCode The language of the exercise names, falling back to en-GB.
+     * @return A Flux of record days, oldest first.
+     */
+    public Flux<RecordDay> findRecordDays(UUID userId, LocalDate from, LocalDate to, String languageCode) {
+        return databaseClient.sql(RECORD_DAYS)
+                .bind("userId", userId)
+                .bind("from", from)
+                .bind("to", to)
+                .bind("languageCode", languageCode)
+                .map((row, metadata) -> new RecordDay(
+                        row.get("session_date", LocalDate.class),
+                        row.get("exercise_id", String.class),
+                        row.get("exercise_name", String.class),
+                        row.get("top_set_weight", Double.class),
+                        row.get("top_set_reps", Integer.class),
+                        row.get("estimated_1rm", Double.class),
+                        row.get("previous_best", Double.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Finds the next chunk of users that have logged sessions or still have rollup rows, ordered by ID (keyset).
+     * The latter are included so the rows of users whose sessions are all gone are removed too.
+     *
+     * @param afterUserId The last user ID of the previous chunk.
+     * @param limit       The maximum number of IDs.
+     * @return A Flux of user IDs.
+     */
+    public Flux<UUID> findUserIdsAfter(UUID afterUserId, int limit) {
+        return databaseClient.sql("""
+                        SELECT user_id
+                          FROM (SELECT user_id FROM exercise_session WHERE user_id > :after
+                                UNION
+                                SELECT user_id FROM exercise_daily_stats WHERE user_id > :after) u
+                         ORDER BY user_id
+                         LIMIT :limit
+                        """)
+                .bind("after", afterUserId)
+                .bind("limit", limit)
+                .map((row, metadata) -> row.get("user_id", UUID.class))
+                .all();
+    }
+
+    /**
+     * Recomputes all rollups and period totals of the given users from their sessions. Must run inside a
+     * transaction: the tables stay locked for writers until it commits.
+     *
+     * @param userIds The IDs of the users.
+     * @return A Mono emitting the number of daily rows written.
+     */
+    public Mono<Long> rebuildForUsers(Collection<UUID> userIds) {
+        UUID[] ids = userIds.toArray(UUID[]::new);
+        return databaseClient.sql(LOCK_FOR_REBUILD).then()
+                .then(databaseClient.sql(DELETE_USERS).bind("userIds", ids).then())
+                .then(databaseClient.sql(DELETE_USER_PERIODS).bind("userIds", ids).then())
+                .then(databaseClient.sql(REBUILD_USERS)
+                        .bind("userIds", ids)
+                        .fetch()
+                        .rowsUpdated())
+                .flatMap(count -> databaseClient.sql(REBUILD_PERIODS)
+                        .bind("userIds", ids)
+                        .then()
+                        .thenReturn(count));
+    }
+}
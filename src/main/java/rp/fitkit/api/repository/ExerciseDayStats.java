@@ -0,0 +1,65 @@
+package rp.fitkit.api.repository;
+
+import rp.fitkit.api.model.SetLog;
+import rp.fitkit.api.util.OneRepMaxCalculator;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One row of exercise_daily_stats: the rollup of all sets of one exercise on one day.
+ *
+ * @param topSetWeight       The weight of the set with the highest estimated one-rep max.
+ * @param topSetReps         The reps of that set.
+ * @param estimatedOneRepMax The Epley estimate of that set.
+ * @param totalVolume        The sum of weight times reps over all sets.
+ * @param setCount           The number of sets.
+ * @param totalReps          The sum of reps over all sets.
+ * @param rpeSum             The sum of RPE over the sets that had one.
+ * @param rpeSetCount        The number of sets that had an RPE.
+ */
+public record ExerciseDayStats(
+        LocalDate date,
+        double topSetWeight,
+        int topSetReps,
+        double estimatedOneRepMax,
+        double totalVolume,
+        int setCount,
+        int totalReps,
+        int rpeSum,
+        int rpeSetCount
+) {
+
+    /**
+     * Rolls up the sets of a single session.
+     *
+     * @return The rollup, or {@code null} if there are no sets.
+     */
+    public static ExerciseDayStats of(LocalDate date, List<SetLog> sets) {
+        SetLog topSet = null;
+        double topEstimate = 0;
+        double volume = 0;
+        int reps = 0;
+        int rpeSum = 0;
+        int rpeSetCount = 0;
+        for (SetLog set : sets) {
+            double estimate = OneRepMaxCalculator.epley(set.getWeight(), set.getReps());
+            if (topSet == null || estimate > topEstimate) {
+                topSet = set;
+                topEstimate = estimate;
+            }
+            volume += set.getWeight() * set.getReps();
+            reps += set.getReps();
+            // 0 means no RPE was given.
+            if (set.getRpe() > 0) {
+                rpeSum += set.getRpe();
+                rpeSetCount++;
+            }
+        }
+        if (topSet == null) {
+            return null;
+        }
+        return new ExerciseDayStats(date, topSet.getWeight(), topSet.getReps(), topEstimate, volume, sets.size(),
+                reps, rpeSum, rpeSetCount);
+    }
+}
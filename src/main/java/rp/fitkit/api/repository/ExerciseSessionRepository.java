@@ -7,7 +7,7 @@ import rp.fitkit.api.model.exercise.ExerciseSession;
 
 import java.util.UUID;
 
-public interface ExerciseSessionRepository extends R2dbcRepository<ExerciseSession, String> {
+public interface ExerciseSessionRepository extends R2dbcRepository<ExerciseSession, String>, ExerciseSessionRepositoryCustom {
     @Query("""
         SELECT es.* FROM exercise_session es
         JOIN exercise e ON es.exercise_id = e.id
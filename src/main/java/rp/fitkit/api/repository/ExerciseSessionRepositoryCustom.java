@@ -0,0 +1,29 @@
+package rp.fitkit.api.repository;
+
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Custom queries for {@link ExerciseSessionRepository} that cannot be expressed as derived queries.
+ */
+public interface ExerciseSessionRepositoryCustom {
+
+    /**
+     * Streams the sessions of a user together with their sets and exercise name in one query. Rows are ordered
+     * by date (newest first) and then by session, so all rows of a day, and within it of a session, arrive
+     * consecutively and can be assembled while reading.
+     *
+     * @param userId       The ID of the user.
+     * @param exerciseName Only sessions of the exercise with this name (in any language), or {@code null} for all.
+     * @param startDate    The first session date (inclusive), or {@code null}.
+     * @param endDate      The last session date (inclusive), or {@code null}.
+     * @param dayLimit     The maximum number of distinct training days, counted from {@code endDate} backwards,
+     *                     or {@code null} for all days in the range.
+     * @param languageCode The language of the exercise names; falls back to {@code en-GB}.
+     * @return A Flux of session/set rows.
+     */
+    Flux<SessionSetRow> findSessionSetRows(UUID userId, String exerciseName, LocalDate startDate, LocalDate endDate,
+                                           Integer dayLimit, String languageCode);
+}
@@ -0,0 +1,108 @@
+package rp.fitkit.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class ExerciseSessionRepositoryCustomImpl implements ExerciseSessionRepositoryCustom {
+
+    private static final String SESSION_SET_QUERY = """
+            SELECT es.id AS session_id,
+                   es.session_date,
+                   es.notes,
+                   n.name AS exercise_name,
+                   s.id AS set_id,
+                   s.reps,
+                   s.weight,
+                   s.rpe
+              FROM exercise_session es
+              LEFT JOIN LATERAL (
+                   SELECT et.name FROM exercise_translation et
+                    WHERE et.exercise_id = es.exercise_id
+                      AND et.language_code IN (:languageCode, 'en-GB')
+                    ORDER BY et.language_code = :languageCode DESC
+                    LIMIT 1) n ON true
+              LEFT JOIN set_log s ON s.exercise_session_id = es.id
+             WHERE %s
+             ORDER BY es.session_date DESC, es.id
+            """;
+
+    /**
+     * The newest {@code :dayLimit} training days in the range. Read from the (user_id, session_date) index, so a
+     * page costs the same however far back it lies.
+     */
+    private static final String DAY_LIMIT_FILTER = """
+            es.session_date IN (
+                   SELECT DISTINCT d.session_date FROM exercise_session d
+                    WHERE %s
+                    ORDER BY d.session_date DESC
+                    LIMIT :dayLimit)""";
+
+    private static final String EXERCISE_FILTER =
+            "exercise_id IN (SELECT exercise_id FROM exercise_translation WHERE name = :exerciseName)";
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<SessionSetRow> findSessionSetRows(UUID userId, String exerciseName, LocalDate startDate, LocalDate endDate,
+                                                  Integer dayLimit, String languageCode) {
+        String where = String.join(" AND ", conditions("es", exerciseName, startDate, endDate));
+        if (dayLimit != null) {
+            where += " AND " + DAY_LIMIT_FILTER.formatted(String.join(" AND ", conditions("d", exerciseName, startDate, endDate)));
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(SESSION_SET_QUERY.formatted(where))
+                .bind("userId", userId)
+                .bind("languageCode", languageCode);
+        if (exerciseName != null) {
+            spec = spec.bind("exerciseName", exerciseName);
+        }
+        if (startDate != null) {
+            spec = spec.bind("startDate", startDate);
+        }
+        if (endDate != null) {
+            spec = spec.bind("endDate", endDate);
+        }
+        if (dayLimit != null) {
+            spec = spec.bind("dayLimit", dayLimit);
+        }
+        return spec.map((row, metadata) -> {
+                    String setId = row.get("set_id", String.class);
+                    return new SessionSetRow(
+                            row.get("session_id", UUID.class),
+                            row.get("session_date", LocalDate.class),
+                            row.get("notes", String.class),
+                            row.get("exercise_name", String.class),
+                            setId != null ? UUID.fromString(setId) : null,
+                            row.get("reps", Integer.class),
+                            row.get("weight", Double.class),
+                            row.get("rpe", Integer.class)
+                    );
+                })
+                .all();
+    }
+
+    /**
+     * Only fixed fragments end up in the SQL; every value is a bind parameter.
+     */
+    private static List<String> conditions(String alias, String exerciseName, LocalDate startDate, LocalDate endDate) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add(alias + ".user_id = :userId");
+        if (exerciseName != null) {
+            conditions.add(alias + "." + EXERCISE_FILTER);
+        }
+        if (startDate != null) {
+            conditions.add(alias + ".session_date >= :startDate");
+        }
+        if (endDate != null) {
+            conditions.add(alias + ".session_date <= :endDate");
+        }
+        return conditions;
+    }
+}
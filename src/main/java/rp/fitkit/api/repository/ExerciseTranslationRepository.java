@@ -1,5 +1,6 @@
 package rp.fitkit.api.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -11,4 +12,13 @@ public interface ExerciseTranslationRepository extends R2dbcRepository<ExerciseT
     Flux<ExerciseTranslation> findByExerciseId(String exerciseId);
     Mono<ExerciseTranslation> findByExerciseIdAndLanguageCode(String exerciseId, String languageCode);
     Mono<Void> deleteByExerciseId(String exerciseId);
+
+    /**
+     * Resolves an exercise by its name in any language.
+     *
+     * @param name The exact name of the exercise.
+     * @return A Mono with the ID of the exercise, or empty if no exercise has that name.
+     */
+    @Query("SELECT exercise_id::text FROM exercise_translation WHERE name = :name LIMIT 1")
+    Mono<String> findExerciseIdByName(String name);
 }
@@ -0,0 +1,9 @@
+package rp.fitkit.api.repository;
+
+import java.time.LocalDate;
+
+/**
+ * The number of sets for one muscle group in one week or month.
+ */
+public record MuscleGroupBucketSets(LocalDate bucketStart, String muscleGroupCode, long setCount) {
+}
@@ -0,0 +1,9 @@
+package rp.fitkit.api.repository;
+
+import java.time.LocalDate;
+
+/**
+ * One row of personal_best: the heaviest weight a user has lifted for a number of reps on an exercise.
+ */
+public record PersonalBest(int reps, double weight, LocalDate achievedOn) {
+}
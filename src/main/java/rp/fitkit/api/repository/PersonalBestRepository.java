@@ -0,0 +1,124 @@
+package rp.fitkit.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Repository for the personal_best table: per user, exercise and rep count the heaviest weight lifted.
+ * <p>
+ * Like exercise_daily_stats the table has a composite key and is only changed with conditional merges, so it is
+ * accessed through plain SQL instead of an entity repository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PersonalBestRepository {
+
+    /**
+     * Writes new rep-maxes in one statement. A row is only replaced by a heavier weight, so a caller working from
+     * stale bests cannot lower a record; RETURNING tells which rep counts were really improved.
+     */
+    private static final String MERGE_BESTS = """
+            INSERT INTO personal_best (user_id, exercise_id, reps, weight, achieved_on)
+            SELECT :userId, :exerciseId::uuid, b.reps, b.weight, :achievedOn
+              FROM unnest(:reps::int[], :weights::float8[]) AS b(reps, weight)
+            ON CONFLICT (user_id, exercise_id, reps) DO UPDATE SET
+                weight      = EXCLUDED.weight,
+                achieved_on = EXCLUDED.achieved_on
+             WHERE EXCLUDED.weight > personal_best.weight
+            RETURNING reps
+            """;
+
+    /**
+     * Blocks {@link #MERGE_BESTS} until the rebuilding transaction commits, like the lock on exercise_daily_stats.
+     */
+    private static final String LOCK_FOR_REBUILD = "LOCK TABLE personal_best IN SHARE ROW EXCLUSIVE MODE";
+
+    private static final String DELETE_USERS = "DELETE FROM personal_best WHERE user_id = ANY(:userIds::uuid[])";
+
+    /**
+     * Recomputes the rep-maxes of the given users from exercise_session and set_log, after {@link #DELETE_USERS}:
+     * per rep count the heaviest set, on the first day it was lifted. The backfill-personal-best changeset runs
+     * the same query for all users.
+     */
+    private static final String REBUILD_USERS = """
+            INSERT INTO personal_best (user_id, exercise_id, reps, weight, achieved_on)
+            SELECT DISTINCT ON (es.user_id, es.exercise_id, s.reps)
+                   es.user_id, es.exercise_id, s.reps, s.weight, es.session_date
+              FROM exercise_session es
+              JOIN set_log s ON s.exercise_session_id = es.id
+             WHERE es.user_id = ANY(:userIds::uuid[])
+               AND s.reps > 0
+               AND s.weight > 0
+             ORDER BY es.user_id, es.exercise_id, s.reps, s.weight DESC, es.session_date
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Finds all rep-maxes of a user on an exercise. One range scan on the primary key.
+     *
+     * @param userId     The ID of the user.
+     * @param exerciseId The ID of the exercise.
+     * @return A Flux of rep-maxes, ordered by rep count.
+     */
+    public Flux<PersonalBest> findByUserAndExercise(UUID userId, String exerciseId) {
+        return databaseClient.sql("""
+                        SELECT reps, weight, achieved_on
+                          FROM personal_best
+                         WHERE user_id = :userId AND exercise_id = :exerciseId::uuid
+                         ORDER BY reps
+                        """)
+                .bind("userId", userId)
+                .bind("exerciseId", exerciseId)
+                .map((row, metadata) -> new PersonalBest(
+                        row.get("reps", Integer.class),
+                        row.get("weight", Double.class),
+                        row.get("achieved_on", LocalDate.class)
+                ))
+                .all();
+    }
+
+    /**
+     * Stores new rep-maxes of one session, keeping a heavier existing row where there is one.
+     *
+     * @param userId     The ID of the user.
+     * @param exerciseId The ID of the exercise.
+     * @param bests      The candidate rep-maxes, at most one per rep count.
+     * @param achievedOn The day of the session.
+     * @return A Flux of the rep counts that were written.
+     */
+    public Flux<Integer> mergeBests(UUID userId, String exerciseId, Collection<PersonalBest> bests, LocalDate achievedOn) {
+        return databaseClient.sql(MERGE_BESTS)
+                .bind("userId", userId)
+                .bind("exerciseId", exerciseId)
+                .bind("reps", bests.stream().map(PersonalBest::reps).toArray(Integer[]::new))
+                .bind("weights", bests.stream().map(PersonalBest::weight).toArray(Double[]::new))
+                .bind("achievedOn", achievedOn)
+                .map((row, metadata) -> row.get("reps", Integer.class))
+                .all();
+    }
+
+    /**
+     * Recomputes all rep-maxes of the given users from their sessions. Must run inside a transaction: the table
+     * stays locked for writers until it commits.
+     *
+     * @param userIds The IDs of the users.
+     * @return A Mono emitting the number of rows written.
+     */
+    public Mono<Long> rebuildForUsers(Collection<UUID> userIds) {
+        UUID[] ids = userIds.toArray(UUID[]::new);
+        return databaseClient.sql(LOCK_FOR_REBUILD).then()
+                .then(databaseClient.sql(DELETE_USERS).bind("userIds", ids).then())
+                .then(databaseClient.sql(REBUILD_USERS)
+                        .bind("userIds", ids)
+                        .fetch()
+                        .rowsUpdated());
+    }
+}
@@ -0,0 +1,22 @@
+package rp.fitkit.api.repository;
+
+import java.time.LocalDate;
+
+/**
+ * A day on which the e1RM of an exercise beat every earlier day.
+ *
+ * @param topSetWeight       The weight of the top set of that day.
+ * @param topSetReps         The reps of that set.
+ * @param estimatedOneRepMax The new best estimate.
+ * @param previousBest       The best estimate before that day.
+ */
+public record RecordDay(
+        LocalDate date,
+        String exerciseId,
+        String exerciseName,
+        double topSetWeight,
+        int topSetReps,
+        double estimatedOneRepMax,
+        double previousBest
+) {
+}
@@ -0,0 +1,23 @@
+package rp.fitkit.api.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One row of the hydrated history query: a session joined with one of its sets. A session without sets
+ * yields a single row whose set columns are {@code null}.
+ */
+public record SessionSetRow(
+        UUID sessionId,
+        LocalDate sessionDate,
+        String notes,
+        String exerciseName,
+        UUID setId,
+        Integer reps,
+        Double weight,
+        Integer rpe
+) {
+    public boolean hasSet() {
+        return setId != null;
+    }
+}
@@ -0,0 +1,25 @@
+package rp.fitkit.api.repository;
+
+import java.time.LocalDate;
+
+/**
+ * The maintained training_period_stats row of one week or month.
+ *
+ * @param bucketStart  The first day of the week or month.
+ * @param trainingDays The number of days with at least one logged session.
+ * @param setCount     The number of sets.
+ * @param totalReps    The sum of reps.
+ * @param tonnage      The sum of weight times reps.
+ * @param rpeSum       The sum of RPE over the sets that had one.
+ * @param rpeSetCount  The number of sets that had an RPE.
+ */
+public record TrainingBucketTotals(
+        LocalDate bucketStart,
+        long trainingDays,
+        long setCount,
+        long totalReps,
+        double tonnage,
+        long rpeSum,
+        long rpeSetCount
+) {
+}
@@ -1,6 +1,8 @@
 package rp.fitkit.api.repository.logbook;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -12,8 +14,38 @@ import java.util.Collection;
 import java.util.UUID;
 
 @Repository
-public interface DailyLogRepository extends R2dbcRepository<DailyLog, Long> {
+public interface DailyLogRepository extends R2dbcRepository<DailyLog, Long>, DailyLogRepositoryCustom {
     Flux<DailyLog> findByUserId(UUID userId, Sort sort);
+
+    /**
+     * Fetches one page of a user's logs. The LIMIT/OFFSET is applied by the database.
+     */
+    Flux<DailyLog> findByUserId(UUID userId, Pageable pageable);
+
+    /**
+     * Keyset variant of {@link #findByUserId(UUID, Pageable)}: fetches the logs directly before a cursor date,
+     * newest first. Uses the (user_id, log_date) unique index, so the cost does not depend on how deep the page is.
+     *
+     * @param userId The ID of the user.
+     * @param before The log date of the last row of the previous page (exclusive).
+     * @param limit  The maximum number of logs to return.
+     * @return A Flux of at most {@code limit} logs.
+     */
+    @Query("SELECT * FROM daily_logs WHERE user_id = :userId AND log_date < :before ORDER BY log_date DESC LIMIT :limit")
+    Flux<DailyLog> findByUserIdBefore(UUID userId, LocalDate before, int limit);
+
+    /**
+     * Counts the logs of a user before a cursor date: the total that goes with {@link #findByUserIdBefore}.
+     */
+    Mono<Long> countByUserIdAndLogDateBefore(UUID userId, LocalDate before);
+
+    /**
+     * Locks a daily log row for the rest of the transaction. Used to serialize concurrent saves of sections
+     * of the same log, whose keyword graph deltas depend on each other.
+     */
+    @Query("SELECT * FROM daily_logs WHERE log_id = :logId FOR UPDATE")
+    Mono<DailyLog> findByIdForUpdate(Long logId);
+
     Mono<DailyLog> findByUserIdAndLogDate(UUID userId, LocalDate date);
     Flux<DailyLog> findByUserIdIn(Collection<UUID> userIds, Sort sort);
     Mono<Long> countByUserId(UUID userId);
@@ -21,4 +53,3 @@ public interface DailyLogRepository extends R2dbcRepository<DailyLog, Long> {
     Flux<DailyLog> findByUserIdAndLogDateBetween(UUID userId, LocalDate startDate, LocalDate endDate, Sort sort);
     Mono<Long> countByUserIdAndLogDateBetween(UUID userId, LocalDate startDate, LocalDate endDate);
 }
-
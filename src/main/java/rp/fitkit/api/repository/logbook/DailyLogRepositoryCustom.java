@@ -0,0 +1,25 @@
+package rp.fitkit.api.repository.logbook;
+
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Custom queries for {@link DailyLogRepository} that cannot be expressed as derived queries.
+ */
+public interface DailyLogRepositoryCustom {
+
+    /**
+     * Fetches one page of logbook previews in a single round trip. Paging is done by the database, and the
+     * summary, moods and total count are computed in the same statement.
+     *
+     * @param userId    The ID of the user.
+     * @param startDate The first date of the range (inclusive).
+     * @param endDate   The last date of the range (inclusive).
+     * @param pageable  The page to fetch. Only {@code logDate} and {@code id} can be used for sorting.
+     * @return A Flux of preview rows. Empty if the page lies beyond the last log.
+     */
+    Flux<LogbookPreviewRow> findPreviewPage(UUID userId, LocalDate startDate, LocalDate endDate, Pageable pageable);
+}
@@ -0,0 +1,81 @@
+package rp.fitkit.api.repository.logbook;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import rp.fitkit.api.exception.InvalidSortFieldException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class DailyLogRepositoryCustomImpl implements DailyLogRepositoryCustom {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "logDate", "d.log_date",
+            "id", "d.log_id"
+    );
+
+    private static final String PREVIEW_QUERY = """
+            SELECT d.log_id,
+                   d.log_date,
+                   (SELECT s.summary FROM log_sections s
+                     WHERE s.log_id = d.log_id AND btrim(s.summary) <> ''
+                     ORDER BY s.section_id
+                     LIMIT 1) AS first_summary,
+                   ARRAY(SELECT DISTINCT s.mood FROM log_sections s
+                          WHERE s.log_id = d.log_id AND btrim(s.mood) <> '') AS moods,
+                   COUNT(*) OVER () AS total_count
+              FROM daily_logs d
+             WHERE d.user_id = :userId
+               AND d.log_date BETWEEN :startDate AND :endDate
+             ORDER BY %s
+             LIMIT :limit OFFSET :offset
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<LogbookPreviewRow> findPreviewPage(UUID userId, LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        return Flux.defer(() -> databaseClient.sql(PREVIEW_QUERY.formatted(toOrderBy(pageable.getSort())))
+                .bind("userId", userId)
+                .bind("startDate", startDate)
+                .bind("endDate", endDate)
+                .bind("limit", pageable.getPageSize())
+                .bind("offset", pageable.getOffset())
+                .map((row, metadata) -> {
+                    String[] moods = row.get("moods", String[].class);
+                    return new LogbookPreviewRow(
+                            row.get("log_id", Long.class),
+                            row.get("log_date", LocalDate.class),
+                            row.get("first_summary", String.class),
+                            moods == null ? List.of() : Arrays.asList(moods),
+                            row.get("total_count", Long.class)
+                    );
+                })
+                .all());
+    }
+
+    /**
+     * Only whitelisted properties end up in the SQL, so the ORDER BY can never be used for injection.
+     * The log id is always added last to make the order stable across pages.
+     */
+    private String toOrderBy(Sort sort) {
+        String orderBy = sort.stream()
+                .map(order -> {
+                    String column = SORT_COLUMNS.get(order.getProperty());
+                    if (column == null) {
+                        throw new InvalidSortFieldException(order.getProperty(), SORT_COLUMNS.keySet());
+                    }
+                    return column + (order.isAscending() ? " ASC" : " DESC");
+                })
+                .collect(Collectors.joining(", "));
+        return orderBy.isEmpty() ? "d.log_id" : orderBy + ", d.log_id";
+    }
+}
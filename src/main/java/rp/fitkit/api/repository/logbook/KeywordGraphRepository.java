@@ -0,0 +1,163 @@
+package rp.fitkit.api.repository.logbook;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.dto.logbook.GraphEdgeDto;
+import rp.fitkit.api.dto.logbook.GraphNodeDto;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Repository for the materialized keyword graph (the keyword_nodes and keyword_edges tables).
+ * <p>
+ * The tables have composite keys and are only ever changed with relative deltas, so they are accessed
+ * through plain SQL instead of entity repositories. Deltas are written in sorted key order, so two transactions
+ * that touch the same keywords lock their rows in the same order and cannot deadlock on each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KeywordGraphRepository {
+
+    private static final Comparator<KeywordPair> PAIR_ORDER = Comparator
+            .comparing(KeywordPair::first, KeywordPair::compareCodePoints)
+            .thenComparing(KeywordPair::second, KeywordPair::compareCodePoints);
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Adds the given deltas to the node weights of a user in one statement, and removes nodes whose weight drops to zero.
+     *
+     * @param userId The ID of the user.
+     * @param deltas The weight change per keyword.
+     * @return A Mono that completes when the deltas are applied.
+     */
+    public Mono<Void> applyNodeDeltas(UUID userId, Map<String, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        String[] keywords = deltas.keySet().stream()
+                .sorted(KeywordPair::compareCodePoints)
+                .toArray(String[]::new);
+        Integer[] weights = new Integer[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            weights[i] = deltas.get(keywords[i]);
+        }
+
+        return databaseClient.sql("""
+                        INSERT INTO keyword_nodes (user_id, keyword, weight)
+                        SELECT :userId, d.keyword, d.weight FROM unnest(:keywords::varchar[], :weights::int[]) AS d(keyword, weight)
+                        ON CONFLICT (user_id, keyword) DO UPDATE SET weight = keyword_nodes.weight + EXCLUDED.weight
+                        """)
+                .bind("userId", userId)
+                .bind("keywords", keywords)
+                .bind("weights", weights)
+                .then()
+                .then(databaseClient.sql("DELETE FROM keyword_nodes WHERE user_id = :userId AND keyword = ANY(:keywords::varchar[]) AND weight <= 0")
+                        .bind("userId", userId)
+                        .bind("keywords", keywords)
+                        .then());
+    }
+
+    /**
+     * Adds the given deltas to the edge weights of a user in one statement, and removes edges whose weight drops to zero.
+     *
+     * @param userId The ID of the user.
+     * @param deltas The weight change per keyword pair.
+     * @return A Mono that completes when the deltas are applied.
+     */
+    public Mono<Void> applyEdgeDeltas(UUID userId, Map<KeywordPair, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        String[] firsts = new String[deltas.size()];
+        String[] seconds = new String[deltas.size()];
+        Integer[] weights = new Integer[deltas.size()];
+        List<Map.Entry<KeywordPair, Integer>> entries = deltas.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(PAIR_ORDER))
+                .toList();
+        int i = 0;
+        for (Map.Entry<KeywordPair, Integer> entry : entries) {
+            firsts[i] = entry.getKey().first();
+            seconds[i] = entry.getKey().second();
+            weights[i] = entry.getValue();
+            i++;
+        }
+
+        return databaseClient.sql("""
+                        INSERT INTO keyword_edges (user_id, keyword_a, keyword_b, weight)
+                        SELECT :userId, d.keyword_a, d.keyword_b, d.weight
+                        FROM unnest(:firsts::varchar[], :seconds::varchar[], :weights::int[]) AS d(keyword_a, keyword_b, weight)
+                        ON CONFLICT (user_id, keyword_a, keyword_b) DO UPDATE SET weight = keyword_edges.weight + EXCLUDED.weight
+                        """)
+                .bind("userId", userId)
+                .bind("firsts", firsts)
+                .bind("seconds", seconds)
+                .bind("weights", weights)
+                .then()
+                .then(databaseClient.sql("""
+                                DELETE FROM keyword_edges
+                                WHERE user_id = :userId AND weight <= 0
+                                  AND (keyword_a, keyword_b) IN (SELECT * FROM unnest(:firsts::varchar[], :seconds::varchar[]))
+                                """)
+                        .bind("userId", userId)
+                        .bind("firsts", firsts)
+                        .bind("seconds", seconds)
+                        .then());
+    }
+
+    /**
+     * Finds the heaviest keyword nodes of a user.
+     *
+     * @param userId    The ID of the user.
+     * @param minWeight The minimum weight of a node.
+     * @param limit     The maximum number of nodes, or {@code null} for all of them.
+     * @return A Flux of nodes, heaviest first.
+     */
+    public Flux<GraphNodeDto> findNodes(UUID userId, int minWeight, Integer limit) {
+        String sql = "SELECT keyword, weight FROM keyword_nodes WHERE user_id = :userId AND weight >= :minWeight " +
+                "ORDER BY weight DESC, keyword" + (limit == null ? "" : " LIMIT :limit");
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("userId", userId)
+                .bind("minWeight", minWeight);
+        if (limit != null) {
+            spec = spec.bind("limit", limit);
+        }
+        return spec.map((row, metadata) -> {
+                    String keyword = row.get("keyword", String.class);
+                    return new GraphNodeDto(keyword, keyword, row.get("weight", Integer.class));
+                })
+                .all();
+    }
+
+    /**
+     * Finds the edges of a user, optionally restricted to edges between the given keywords.
+     *
+     * @param userId    The ID of the user.
+     * @param minWeight The minimum weight of an edge.
+     * @param keywords  The keywords both ends must belong to, or {@code null} for all edges.
+     * @return A Flux of edges, heaviest first.
+     */
+    public Flux<GraphEdgeDto> findEdges(UUID userId, int minWeight, Collection<String> keywords) {
+        String sql = "SELECT keyword_a, keyword_b, weight FROM keyword_edges WHERE user_id = :userId AND weight >= :minWeight" +
+                (keywords == null ? "" : " AND keyword_a = ANY(:keywords::varchar[]) AND keyword_b = ANY(:keywords::varchar[])") +
+                " ORDER BY weight DESC";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("userId", userId)
+                .bind("minWeight", minWeight);
+        if (keywords != null) {
+            spec = spec.bind("keywords", keywords.toArray(String[]::new));
+        }
+        return spec.map((row, metadata) -> new GraphEdgeDto(
+                        row.get("keyword_a", String.class),
+                        row.get("keyword_b", String.class),
+                        row.get("weight", Integer.class)))
+                .all();
+    }
+}
@@ -0,0 +1,26 @@
+package rp.fitkit.api.repository.logbook;
+
+/**
+ * An unordered pair of keywords, stored in canonical order: {@code first} sorts before {@code second} by code point.
+ */
+public record KeywordPair(String first, String second) {
+
+    public static KeywordPair of(String a, String b) {
+        return compareCodePoints(a, b) <= 0 ? new KeywordPair(a, b) : new KeywordPair(b, a);
+    }
+
+    static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -0,0 +1,28 @@
+package rp.fitkit.api.repository.logbook;
+
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.logbook.LogEntityLink;
+
+import java.util.Collection;
+
+/**
+ * Bulk operations for {@link LogEntityLinkRepository} that each run as a single statement.
+ */
+public interface LogEntityLinkRepositoryCustom {
+
+    /**
+     * Inserts all given links with one multi-row INSERT.
+     *
+     * @param links The links to insert. Their IDs are ignored.
+     * @return A Mono emitting the number of inserted rows.
+     */
+    Mono<Long> insertAll(Collection<LogEntityLink> links);
+
+    /**
+     * Deletes the links with the given IDs with one DELETE.
+     *
+     * @param linkIds The IDs of the links to delete.
+     * @return A Mono emitting the number of deleted rows.
+     */
+    Mono<Long> deleteAllByIdIn(Collection<Long> linkIds);
+}
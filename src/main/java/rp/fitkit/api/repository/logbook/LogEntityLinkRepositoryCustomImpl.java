@@ -0,0 +1,79 @@
+package rp.fitkit.api.repository.logbook;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.logbook.LogEntityLink;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class LogEntityLinkRepositoryCustomImpl implements LogEntityLinkRepositoryCustom {
+
+    private static final String INSERT_LINKS = """
+            INSERT INTO log_entity_links (source_entity_type, source_entity_id, source_id, user_id, anchor_text,
+                                          target_entity_type, target_entity_id, target_id, target_uuid)
+            SELECT * FROM unnest(:sourceTypes::varchar[], :sourceEntityIds::varchar[], :sourceIds::bigint[], :userIds::uuid[],
+                                 :anchors::varchar[], :targetTypes::varchar[], :targetEntityIds::varchar[],
+                                 :targetIds::bigint[], :targetUuids::uuid[])
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Long> insertAll(Collection<LogEntityLink> links) {
+        if (links.isEmpty()) {
+            return Mono.just(0L);
+        }
+        int size = links.size();
+        String[] sourceTypes = new String[size];
+        String[] sourceEntityIds = new String[size];
+        Long[] sourceIds = new Long[size];
+        UUID[] userIds = new UUID[size];
+        String[] anchors = new String[size];
+        String[] targetTypes = new String[size];
+        String[] targetEntityIds = new String[size];
+        Long[] targetIds = new Long[size];
+        UUID[] targetUuids = new UUID[size];
+
+        // Column-wise arrays: one bind per column instead of one per value, whatever the number of links.
+        int i = 0;
+        for (LogEntityLink link : links) {
+            sourceTypes[i] = link.getSourceEntityType().name();
+            sourceEntityIds[i] = link.getSourceEntityId();
+            sourceIds[i] = link.getSourceId();
+            userIds[i] = link.getUserId();
+            anchors[i] = link.getAnchorText();
+            targetTypes[i] = link.getTargetEntityType().name();
+            targetEntityIds[i] = link.getTargetEntityId();
+            targetIds[i] = link.getTargetId();
+            targetUuids[i] = link.getTargetUuid();
+            i++;
+        }
+
+        return databaseClient.sql(INSERT_LINKS)
+                .bind("sourceTypes", sourceTypes)
+                .bind("sourceEntityIds", sourceEntityIds)
+                .bind("sourceIds", sourceIds)
+                .bind("userIds", userIds)
+                .bind("anchors", anchors)
+                .bind("targetTypes", targetTypes)
+                .bind("targetEntityIds", targetEntityIds)
+                .bind("targetIds", targetIds)
+                .bind("targetUuids", targetUuids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public Mono<Long> deleteAllByIdIn(Collection<Long> linkIds) {
+        if (linkIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql("DELETE FROM log_entity_links WHERE link_id = ANY(:linkIds::bigint[])")
+                .bind("linkIds", linkIds.toArray(Long[]::new))
+                .fetch()
+                .rowsUpdated();
+    }
+}
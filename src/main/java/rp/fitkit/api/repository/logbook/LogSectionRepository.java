@@ -1,5 +1,6 @@
 package rp.fitkit.api.repository.logbook;
 
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
@@ -11,10 +12,30 @@ import rp.fitkit.api.model.root.SectionType;
 import java.util.Collection;
 
 @Repository
-public interface LogSectionRepository extends R2dbcRepository<LogSection, Long> {
+public interface LogSectionRepository extends R2dbcRepository<LogSection, Long>, LogSectionRepositoryCustom {
     Flux<LogSection> findByDailyLogId(Long logId);
     Mono<LogSection> findByDailyLogIdAndSectionType(Long logId, SectionType sectionType);
     Flux<LogSection> findByDailyLogIdIn(Collection<Long> logIds);
+
+    /**
+     * Stores the mood classification of a section, but only if the mood is still the one that was classified.
+     * This keeps a slow classification from overwriting the label of a newer mood.
+     *
+     * @return The number of updated rows (0 when the mood changed in the meantime).
+     */
+    @Modifying
+    @Query("UPDATE log_sections SET mood_label = :moodLabel, mood_confidence = :moodConfidence " +
+            "WHERE section_id = :sectionId AND mood = :mood")
+    Mono<Integer> updateMoodClassification(Long sectionId, String mood, String moodLabel, Double moodConfidence);
+
+    /**
+     * Finds the next chunk of sections that have a mood but no classification yet, ordered by ID.
+     * Used by the backfill job to walk the table with a keyset cursor.
+     */
+    @Query("SELECT * FROM log_sections " +
+            "WHERE section_id > :afterId AND mood IS NOT NULL AND mood_label IS NULL " +
+            "ORDER BY section_id LIMIT :limit")
+    Flux<LogSection> findUnclassifiedMoodsAfter(Long afterId, int limit);
 }
 
 
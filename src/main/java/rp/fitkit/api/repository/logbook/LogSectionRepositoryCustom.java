@@ -0,0 +1,30 @@
+package rp.fitkit.api.repository.logbook;
+
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Custom queries for {@link LogSectionRepository} that cannot be expressed as derived queries.
+ */
+public interface LogSectionRepositoryCustom {
+
+    /**
+     * Searches the section summaries of a user with the full-text index, best matches first.
+     * <p>
+     * Results are paged with a keyset on (rank, section id): pass the rank and id of the last hit of the
+     * previous page to get the next one.
+     *
+     * @param userId      The ID of the user.
+     * @param query       The search query, in web search syntax (quoted phrases, {@code or}, {@code -excluded}).
+     * @param startDate   The first log date to search (inclusive), or {@code null} for no lower bound.
+     * @param endDate     The last log date to search (inclusive), or {@code null} for no upper bound.
+     * @param afterRank   The rank of the last hit of the previous page, or {@code null} for the first page.
+     * @param afterId     The section id of the last hit of the previous page, or {@code null} for the first page.
+     * @param limit       The maximum number of hits.
+     * @return A Flux of hits, ordered by rank and then section id, both descending.
+     */
+    Flux<LogSectionSearchRow> search(UUID userId, String query, LocalDate startDate, LocalDate endDate,
+                                     Float afterRank, Long afterId, int limit);
+}
@@ -0,0 +1,65 @@
+package rp.fitkit.api.repository.logbook;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import rp.fitkit.api.model.root.SectionType;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class LogSectionRepositoryCustomImpl implements LogSectionRepositoryCustom {
+
+    // ts_headline is expensive, so it only runs on the rows of the requested page.
+    private static final String SEARCH_QUERY = """
+            WITH q AS (SELECT websearch_to_tsquery('simple', :query) AS query),
+                 hits AS (SELECT s.section_id, d.log_id, d.log_date, s.section_type, s.summary,
+                                 ts_rank(s.summary_tsv, q.query) AS rank
+                          FROM log_sections s
+                                   JOIN daily_logs d ON d.log_id = s.log_id,
+                               q
+                          WHERE d.user_id = :userId
+                            AND s.summary_tsv @@ q.query%s),
+                 page AS (SELECT * FROM hits
+                          %s
+                          ORDER BY rank DESC, section_id DESC
+                          LIMIT :limit)
+            SELECT page.section_id, page.log_id, page.log_date, page.section_type, page.rank,
+                   ts_headline('simple', page.summary, q.query,
+                               'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=30, MinWords=10') AS highlight
+            FROM page, q
+            ORDER BY page.rank DESC, page.section_id DESC
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<LogSectionSearchRow> search(UUID userId, String query, LocalDate startDate, LocalDate endDate,
+                                            Float afterRank, Long afterId, int limit) {
+        StringBuilder dateFilter = new StringBuilder();
+        if (startDate != null) dateFilter.append(" AND d.log_date >= :startDate");
+        if (endDate != null) dateFilter.append(" AND d.log_date <= :endDate");
+        boolean hasCursor = afterRank != null && afterId != null;
+        String cursorFilter = hasCursor
+                ? "WHERE rank < :afterRank OR (rank = :afterRank AND section_id < :afterId)"
+                : "";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(SEARCH_QUERY.formatted(dateFilter, cursorFilter))
+                .bind("query", query)
+                .bind("userId", userId)
+                .bind("limit", limit);
+        if (startDate != null) spec = spec.bind("startDate", startDate);
+        if (endDate != null) spec = spec.bind("endDate", endDate);
+        if (hasCursor) spec = spec.bind("afterRank", afterRank).bind("afterId", afterId);
+
+        return spec.map((row, metadata) -> new LogSectionSearchRow(
+                        row.get("section_id", Long.class),
+                        row.get("log_id", Long.class),
+                        row.get("log_date", LocalDate.class),
+                        SectionType.valueOf(row.get("section_type", String.class)),
+                        row.get("rank", Float.class),
+                        row.get("highlight", String.class)))
+                .all();
+    }
+}
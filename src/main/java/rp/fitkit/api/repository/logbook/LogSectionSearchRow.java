@@ -0,0 +1,11 @@
+package rp.fitkit.api.repository.logbook;
+
+import rp.fitkit.api.model.root.SectionType;
+
+import java.time.LocalDate;
+
+/**
+ * One full-text search hit: a log section with its rank and a highlighted fragment of its summary.
+ */
+public record LogSectionSearchRow(Long sectionId, Long logId, LocalDate logDate, SectionType sectionType, float rank, String highlight) {
+}
@@ -0,0 +1,11 @@
+package rp.fitkit.api.repository.logbook;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One row of the logbook history query: a daily log with its first non-blank summary, its distinct moods
+ * and the total number of logs that match the query (the same value on every row).
+ */
+public record LogbookPreviewRow(Long logId, LocalDate logDate, String firstSummary, List<String> moods, long totalCount) {
+}
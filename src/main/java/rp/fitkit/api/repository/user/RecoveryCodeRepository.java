@@ -1,33 +1,33 @@
 package rp.fitkit.api.repository.user;
 
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 import rp.fitkit.api.model.user.PasswordRecoveryCode;
 
 import java.util.UUID;
 
 @Repository
-public interface RecoveryCodeRepository extends R2dbcRepository<PasswordRecoveryCode, UUID> {
+public interface RecoveryCodeRepository extends R2dbcRepository<PasswordRecoveryCode, UUID>, RecoveryCodeRepositoryCustom {
 
     /**
-     * Finds all recovery codes for a given user that match the 'isUsed' status.
-     * Spring Data R2DBC will automatically generate the query for this method.
+     * Finds the unused recovery codes of a user with the given lookup prefix. Normally this is at most one row.
      *
-     * @param userId The ID of the user.
-     * @param isUsed The usage status to filter by (typically 'false').
-     * @return A Flux emitting the found recovery codes.
+     * @param userId     The ID of the user.
+     * @param codePrefix The lookup prefix derived from the plain code.
+     * @return A Flux emitting the candidate codes.
      */
-    Flux<PasswordRecoveryCode> findByUserIdAndIsUsed(UUID userId, boolean isUsed);
+    @Query("SELECT * FROM password_recovery_codes WHERE user_id = :userId AND code_prefix = :codePrefix AND is_used = false")
+    Flux<PasswordRecoveryCode> findUnusedByUserIdAndCodePrefix(UUID userId, String codePrefix);
 
     /**
-     * Deletes all recovery codes associated with a specific user.
-     * This is used to clear old codes before generating new ones.
+     * Finds the unused recovery codes of a user that were stored before lookup prefixes existed.
      *
-     * @param userId The ID of the user whose codes should be deleted.
-     * @return A Mono that completes when the deletion is done.
+     * @param userId The ID of the user.
+     * @return A Flux emitting the legacy codes.
      */
-    Mono<Void> deleteAllByUserId(UUID userId);
+    @Query("SELECT * FROM password_recovery_codes WHERE user_id = :userId AND code_prefix IS NULL AND is_used = false")
+    Flux<PasswordRecoveryCode> findUnusedLegacyByUserId(UUID userId);
 }
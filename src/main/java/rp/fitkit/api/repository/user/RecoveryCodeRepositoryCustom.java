@@ -0,0 +1,23 @@
+package rp.fitkit.api.repository.user;
+
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.PasswordRecoveryCode;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Bulk operations for {@link RecoveryCodeRepository} that each run as a single statement.
+ */
+public interface RecoveryCodeRepositoryCustom {
+
+    /**
+     * Replaces all recovery codes of a user: the old codes are deleted and the new ones inserted with one
+     * multi-row INSERT, in a single statement. Either the new set is stored or the old one stays.
+     *
+     * @param userId The ID of the user.
+     * @param codes  The new codes. Their user ID is ignored in favour of {@code userId}.
+     * @return A Mono emitting the number of inserted rows.
+     */
+    Mono<Long> replaceAllForUser(UUID userId, Collection<PasswordRecoveryCode> codes);
+}
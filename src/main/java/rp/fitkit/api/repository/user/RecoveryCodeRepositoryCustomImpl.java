@@ -0,0 +1,48 @@
+package rp.fitkit.api.repository.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.PasswordRecoveryCode;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class RecoveryCodeRepositoryCustomImpl implements RecoveryCodeRepositoryCustom {
+
+    private static final String REPLACE_CODES = """
+            WITH deleted AS (
+                DELETE FROM password_recovery_codes WHERE user_id = :userId
+            )
+            INSERT INTO password_recovery_codes (id, user_id, code_hash, code_prefix, is_used)
+            SELECT c.id, :userId, c.code_hash, c.code_prefix, false
+              FROM unnest(:ids::uuid[], :hashes::varchar[], :prefixes::varchar[]) AS c(id, code_hash, code_prefix)
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Long> replaceAllForUser(UUID userId, Collection<PasswordRecoveryCode> codes) {
+        int size = codes.size();
+        UUID[] ids = new UUID[size];
+        String[] hashes = new String[size];
+        String[] prefixes = new String[size];
+
+        int i = 0;
+        for (PasswordRecoveryCode code : codes) {
+            ids[i] = code.getId();
+            hashes[i] = code.getCodeHash();
+            prefixes[i] = code.getCodePrefix();
+            i++;
+        }
+
+        return databaseClient.sql(REPLACE_CODES)
+                .bind("userId", userId)
+                .bind("ids", ids)
+                .bind("hashes", hashes)
+                .bind("prefixes", prefixes)
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,64 @@
+package rp.fitkit.api.repository.user;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.RefreshTokenFamily;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenFamilyRepository extends R2dbcRepository<RefreshTokenFamily, UUID> {
+
+    /**
+     * Moves a family to its next token, but only if the presented token is still the current one and the
+     * family is neither revoked nor expired. The compare-and-set makes concurrent refreshes of the same token
+     * race safely: exactly one of them wins.
+     *
+     * @param id           The ID of the family.
+     * @param expectedHash The hash of the token that is being rotated.
+     * @param newHash      The hash of the token that replaces it.
+     * @param expiresAt    The expiry of the new token.
+     * @param now          The current time.
+     * @return A Mono emitting 1 if the family was rotated, 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE refresh_token_families SET current_token_hash = :newHash, expires_at = :expiresAt, rotated_at = :now " +
+            "WHERE id = :id AND current_token_hash = :expectedHash AND revoked = false AND expires_at > :now")
+    Mono<Integer> rotate(UUID id, String expectedHash, String newHash, Instant expiresAt, Instant now);
+
+    /**
+     * Revokes a single family, e.g. on logout or when reuse of an old token is detected.
+     *
+     * @param id The ID of the family.
+     * @return A Mono emitting the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE refresh_token_families SET revoked = true WHERE id = :id")
+    Mono<Integer> revoke(UUID id);
+
+    /**
+     * Revokes every family of a user, e.g. after a password reset.
+     *
+     * @param userId The ID of the user.
+     * @return A Mono emitting the number of updated rows.
+     */
+    @Modifying
+    @Query("UPDATE refresh_token_families SET revoked = true WHERE user_id = :userId AND revoked = false")
+    Mono<Integer> revokeAllByUserId(UUID userId);
+
+    /**
+     * Deletes at most {@code batchSize} expired families. Bounded batches keep each statement and its locks short.
+     *
+     * @param now       The current time.
+     * @param batchSize The maximum number of rows to delete.
+     * @return A Mono emitting the number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM refresh_token_families WHERE id IN " +
+            "(SELECT id FROM refresh_token_families WHERE expires_at < :now LIMIT :batchSize)")
+    Mono<Integer> deleteExpired(Instant now, int batchSize);
+}
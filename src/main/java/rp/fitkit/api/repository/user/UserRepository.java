@@ -9,12 +9,22 @@ import rp.fitkit.api.model.user.User;
 import java.util.List;
 import java.util.UUID;
 
-public interface UserRepository extends R2dbcRepository<User, UUID> {
+public interface UserRepository extends R2dbcRepository<User, UUID>, UserRepositoryCustom {
     Mono<User> findByUsername(String username);
     Flux<User> findByUsernameContainingIgnoreCase(String username);
 
     Mono<User> findByEmail(String email);
 
+    /**
+     * Finds the users whose username or email matches, in one query over the two unique indexes.
+     * Returns at most two rows: one matching the username and one matching the email.
+     *
+     * @param username The username to look for.
+     * @param email    The email to look for.
+     * @return A Flux emitting the matching users.
+     */
+    Flux<User> findByUsernameOrEmail(String username, String email);
+
     @Query("SELECT role_name FROM user_role WHERE user_id = :userId")
     Flux<String> findRolesByUserId(UUID userId);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package rp.fitkit.api.repository.user;
+
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+
+/**
+ * Custom queries for {@link UserRepository} that cannot be expressed as derived queries.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Inserts a new user together with its first role in a single statement, so registration costs one
+     * round trip and a user never exists without a role.
+     *
+     * @param user     The new user.
+     * @param roleName The role to grant, e.g. {@code ROLE_USER}.
+     * @return A Mono that completes when both rows are written. Fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException} if the username or email is taken.
+     */
+    Mono<Void> insertWithRole(User user, String roleName);
+}
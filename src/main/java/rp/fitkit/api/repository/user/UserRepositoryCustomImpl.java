@@ -0,0 +1,40 @@
+package rp.fitkit.api.repository.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String INSERT_WITH_ROLE = """
+            WITH new_user AS (
+                INSERT INTO app_user (id, username, email, password_hash, date_joined, is_enabled,
+                                      is_account_non_locked, is_account_non_expired, is_credentials_non_expired)
+                VALUES (:id, :username, :email, :passwordHash, :dateJoined, :enabled,
+                        :accountNonLocked, :accountNonExpired, :credentialsNonExpired)
+                RETURNING id
+            )
+            INSERT INTO user_role (user_id, role_name)
+            SELECT id, :roleName FROM new_user
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Void> insertWithRole(User user, String roleName) {
+        return databaseClient.sql(INSERT_WITH_ROLE)
+                .bind("id", user.getId())
+                .bind("username", user.getUsername())
+                .bind("email", user.getEmail())
+                .bind("passwordHash", user.getPasswordHash())
+                .bind("dateJoined", user.getDateJoined())
+                .bind("enabled", user.isEnabled())
+                .bind("accountNonLocked", user.isAccountNonLocked())
+                .bind("accountNonExpired", user.isAccountNonExpired())
+                .bind("credentialsNonExpired", user.isCredentialsNonExpired())
+                .bind("roleName", roleName)
+                .then();
+    }
+}
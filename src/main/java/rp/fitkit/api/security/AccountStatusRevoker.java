@@ -0,0 +1,48 @@
+package rp.fitkit.api.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.service.user.RefreshTokenService;
+
+/**
+ * Revokes every token of a user that is saved as disabled or locked.
+ * <p>
+ * Access tokens with embedded claims are accepted without a lookup, so the account status in the database is never
+ * read for them; like a password reset, disabling or locking an account therefore revokes the refresh token families
+ * and denies every token issued before it.
+ * <p>
+ * The refresh token service is resolved on first use: it depends on a repository, which needs the entity template
+ * that this callback is registered with.
+ */
+@Component
+@Slf4j
+public class AccountStatusRevoker implements AfterSaveCallback<User> {
+
+    private final ObjectProvider<RefreshTokenService> refreshTokenService;
+    private final TokenDenyList tokenDenyList;
+
+    public AccountStatusRevoker(ObjectProvider<RefreshTokenService> refreshTokenService, TokenDenyList tokenDenyList) {
+        this.refreshTokenService = refreshTokenService;
+        this.tokenDenyList = tokenDenyList;
+    }
+
+    @Override
+    public Publisher<User> onAfterSave(User user, OutboundRow outboundRow, SqlIdentifier table) {
+        if (user.getId() == null || (user.isEnabled() && user.isAccountNonLocked())) {
+            return Mono.just(user);
+        }
+        return refreshTokenService.getObject().revokeAllForUser(user.getId())
+                .doOnSuccess(done -> {
+                    tokenDenyList.revokeAllFor(user.getId());
+                    log.info("Revoked all tokens of disabled or locked user {}.", user.getId());
+                })
+                .thenReturn(user);
+    }
+}
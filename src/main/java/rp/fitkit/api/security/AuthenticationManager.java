@@ -1,55 +1,103 @@
 package rp.fitkit.api.security;
 
 import io.jsonwebtoken.Claims;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import rp.fitkit.api.service.user.CustomUserDetailsService;
+import rp.fitkit.api.model.user.User;
 import rp.fitkit.api.util.JwtUtil;
 
+import java.util.List;
+import java.util.UUID;
+
 
 @Component
-@AllArgsConstructor
 @Slf4j
 public class AuthenticationManager implements ReactiveAuthenticationManager {
 
     private final JwtUtil jwtUtil;
-    private final CustomUserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+    private final TokenDenyList tokenDenyList;
+    private final boolean embeddedClaims;
+
+    public AuthenticationManager(
+            JwtUtil jwtUtil,
+            PrincipalCache principalCache,
+            TokenDenyList tokenDenyList,
+            @Value("${fitkit.api.jwt.embedded-claims:true}") boolean embeddedClaims
+    ) {
+        this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
+        this.tokenDenyList = tokenDenyList;
+        this.embeddedClaims = embeddedClaims;
+    }
 
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
         String authToken = authentication.getCredentials().toString();
-        String username;
 
-        try {
-            username = jwtUtil.getUsernameFromToken(authToken);
-        } catch (Exception e) {
-            log.warn("Fout bij het parsen van JWT: {}", e.getMessage());
+        Claims claims = jwtUtil.parseValidClaims(authToken);
+        if (claims == null || claims.getSubject() == null) {
+            return Mono.empty();
+        }
+        String username = claims.getSubject();
+        String type = claims.get(JwtUtil.CLAIM_TYPE, String.class);
+        if (JwtUtil.TYPE_REFRESH.equals(type)) {
+            log.warn("Refresh token aangeboden als access token door: {}", username);
             return Mono.empty();
         }
 
-        if (username != null && jwtUtil.validateToken(authToken)) {
-            return userDetailsService.findByUsername(username)
-                    .map(userDetails -> {
-                        log.debug("Gebruiker '{}' succesvol geauthenticeerd via token.", userDetails.getUsername());
-                        return new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                    })
-                    .cast(Authentication.class)
-                    .onErrorResume(UsernameNotFoundException.class, ex -> {
-                        log.warn("Authenticatiepoging voor onbekende gebruiker: {}", username);
-                        return Mono.empty();
-                    });
-        } else {
+        UUID userId = userIdOf(claims);
+        if (tokenDenyList.isRevoked(claims, userId)) {
+            log.debug("Ingetrokken token geweigerd voor gebruiker: {}", username);
             return Mono.empty();
         }
+
+        // Access tokens that carry the user ID and roles need no lookup; older tokens go through the cache.
+        List<String> roles = rolesOf(claims);
+        if (embeddedClaims && JwtUtil.TYPE_ACCESS.equals(type) && userId != null && roles != null) {
+            return Mono.just(toAuthentication(User.fromTokenClaims(userId, username, roles)));
+        }
+
+        return principalCache.get(username)
+                .map(this::toAuthentication)
+                .onErrorResume(UsernameNotFoundException.class, ex -> {
+                    log.warn("Authenticatiepoging voor onbekende gebruiker: {}", username);
+                    return Mono.empty();
+                });
+    }
+
+    private Authentication toAuthentication(UserDetails userDetails) {
+        log.debug("Gebruiker '{}' succesvol geauthenticeerd via token.", userDetails.getUsername());
+        return new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+    }
+
+    private UUID userIdOf(Claims claims) {
+        String userId = claims.get(JwtUtil.CLAIM_USER_ID, String.class);
+        if (userId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private List<String> rolesOf(Claims claims) {
+        if (!(claims.get(JwtUtil.CLAIM_ROLES) instanceof List<?> roles)) {
+            return null;
+        }
+        return roles.stream().map(String::valueOf).toList();
     }
-}
\ No newline at end of file
+}
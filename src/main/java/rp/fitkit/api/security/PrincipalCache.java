@@ -0,0 +1,176 @@
+package rp.fitkit.api.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.service.user.CustomUserDetailsService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process cache of authenticated principals, keyed by the JWT subject.
+ * <p>
+ * Without it every authenticated request costs up to three queries (username, email fallback and roles).
+ * The cache holds an immutable snapshot of the user; every lookup gets a fresh {@link User} built from it, so a
+ * request that changes its principal cannot leak that change into other requests.
+ * <p>
+ * Entries expire after a short TTL, so a change made elsewhere is picked up eventually. Every save of a
+ * {@link User} through a repository drops the cached principal once the transaction commits; changes written with
+ * plain SQL (such as the role of a new user) must call {@link #invalidate(User)} themselves.
+ * Concurrent lookups of the same subject share a single load. The subjects cached for a user are indexed by
+ * user ID, so invalidation touches only the entries of that user. The user details service is resolved on first
+ * use, because its repository needs the entity template this callback is registered with.
+ */
+@Component
+@Slf4j
+public class PrincipalCache implements AfterSaveCallback<User> {
+
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+    private final AsyncCache<String, Snapshot> cache;
+    private final ConcurrentMap<UUID, Set<String>> subjectsByUserId = new ConcurrentHashMap<>();
+
+    public PrincipalCache(
+            ObjectProvider<CustomUserDetailsService> userDetailsService,
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.security.principal-cache.ttl-ms:60000}") long ttlMs,
+            @Value("${fitkit.api.security.principal-cache.max-size:10000}") long maxSize
+    ) {
+        this.userDetailsService = userDetailsService;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxSize)
+                .recordStats()
+                .evictionListener((String subject, Snapshot snapshot, RemovalCause cause) ->
+                        unindex(subject, snapshot))
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+    }
+
+    /**
+     * Resolves the principal for a token subject, loading it from the database on a miss.
+     * Unknown subjects are not cached; the returned Mono then fails with a {@code UsernameNotFoundException}.
+     *
+     * @param subject The subject (username) of a validated token.
+     * @return A Mono with a new instance of the user details.
+     */
+    public Mono<UserDetails> get(String subject) {
+        return Mono.fromFuture(() -> cache.get(subject, (key, executor) -> userDetailsService.getObject().findByUsername(key)
+                        .map(user -> index(key, Snapshot.of((User) user)))
+                        .toFuture()), true)
+                .map(Snapshot::toUser);
+    }
+
+    /**
+     * Drops the cached principal of a user, so the next request reloads its password state and roles.
+     * Tokens carry the username as subject, but the email is evicted as well because lookups fall back to it,
+     * and so is every other subject that resolved to the same user (e.g. a previous username).
+     *
+     * @param user The user whose credentials or roles changed.
+     */
+    public void invalidate(User user) {
+        invalidate(user.getUsername());
+        if (user.getEmail() != null) {
+            invalidate(user.getEmail());
+        }
+        if (user.getId() != null) {
+            Set<String> subjects = subjectsByUserId.remove(user.getId());
+            if (subjects != null) {
+                subjects.forEach(this::invalidate);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached principal for a single subject.
+     *
+     * @param subject The token subject.
+     */
+    public void invalidate(String subject) {
+        if (subject != null) {
+            unindex(subject, cache.synchronous().asMap().remove(subject));
+            log.debug("Invalidated cached principal for subject '{}'.", subject);
+        }
+    }
+
+    private Snapshot index(String subject, Snapshot snapshot) {
+        if (snapshot.id() != null) {
+            subjectsByUserId.compute(snapshot.id(), (id, subjects) -> {
+                Set<String> indexed = subjects != null ? subjects : ConcurrentHashMap.newKeySet();
+                indexed.add(subject);
+                return indexed;
+            });
+        }
+        return snapshot;
+    }
+
+    private void unindex(String subject, Snapshot snapshot) {
+        if (snapshot != null && snapshot.id() != null) {
+            subjectsByUserId.computeIfPresent(snapshot.id(), (id, subjects) -> {
+                subjects.remove(subject);
+                return subjects.isEmpty() ? null : subjects;
+            });
+        }
+    }
+
+    /**
+     * Drops the cached principal of a saved user right away and again after the commit, so a request that
+     * reloads it in between does not keep the old state cached.
+     */
+    @Override
+    public Publisher<User> onAfterSave(User user, OutboundRow outboundRow, SqlIdentifier table) {
+        invalidate(user);
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        invalidate(user);
+                        return Mono.empty();
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .thenReturn(user);
+    }
+
+    /**
+     * The cached state of a principal. Immutable; {@link #toUser()} builds a new {@link User} for every request.
+     */
+    record Snapshot(UUID id, String username, String email, String passwordHash, LocalDate dateJoined,
+                    boolean enabled, boolean accountNonLocked, boolean accountNonExpired,
+                    boolean credentialsNonExpired, List<String> roles) {
+
+        static Snapshot of(User user) {
+            return new Snapshot(user.getId(), user.getUsername(), user.getEmail(), user.getPasswordHash(),
+                    user.getDateJoined(), user.isEnabled(), user.isAccountNonLocked(), user.isAccountNonExpired(),
+                    user.isCredentialsNonExpired(),
+                    user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        }
+
+        User toUser() {
+            return User.restore(id, username, email, passwordHash, dateJoined, enabled, accountNonLocked,
+                    accountNonExpired, credentialsNonExpired, roles);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package rp.fitkit.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rp.fitkit.api.util.JwtUtil;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory deny-list for JWTs that were revoked before they expired.
+ * <p>
+ * Tokens are stateless, so revocation needs some shared state; this keeps it compact. Single tokens are
+ * denied by their {@code jti} and only kept until the token would have expired anyway. Revoking every token
+ * of a user (after a password reset) stores one timestamp per user: any token issued before it is denied. Those
+ * timestamps are never evicted for size, only once the longest token lifetime has passed, since dropping one
+ * early would make the revoked tokens valid again. The list lives in this process only and does not survive a restart.
+ */
+@Component
+@Slf4j
+public class TokenDenyList {
+
+    private final Cache<String, Instant> deniedTokenIds;
+    private final Cache<UUID, Instant> revokedBefore;
+
+    public TokenDenyList(
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.jwt.refresh-token-expiration-ms}") long refreshTokenExpirationMs,
+            @Value("${fitkit.api.security.deny-list.max-size:100000}") long maxSize
+    ) {
+        this.deniedTokenIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+        // Every token issued before the timestamp has expired once the longest token lifetime has passed.
+        // One entry per password reset in that period, so this is bounded by time instead of by size.
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(refreshTokenExpirationMs))
+                .build();
+
+        Gauge.builder("security.token.denylist.size", deniedTokenIds, Cache::estimatedSize)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Denies a single token until it expires.
+     *
+     * @param claims The claims of the token to revoke.
+     */
+    public void revoke(Claims claims) {
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        Instant expiresAt = claims.getExpiration().toInstant();
+        if (expiresAt.isAfter(Instant.now())) {
+            deniedTokenIds.put(claims.getId(), expiresAt);
+            log.debug("Revoked token {} of '{}'.", claims.getId(), claims.getSubject());
+        }
+    }
+
+    /**
+     * Denies every token of a user that was issued up to now.
+     *
+     * @param userId The ID of the user.
+     */
+    public void revokeAllFor(UUID userId) {
+        revokedBefore.put(userId, Instant.now());
+        log.debug("Revoked all tokens of user {}.", userId);
+    }
+
+    /**
+     * Checks whether a token has been revoked.
+     *
+     * @param claims The claims of a token with a valid signature.
+     * @param userId The ID of the token's user, or {@code null} if the token does not carry it.
+     * @return {@code true} if the token must be rejected.
+     */
+    public boolean isRevoked(Claims claims, UUID userId) {
+        if (claims.getId() != null && deniedTokenIds.getIfPresent(claims.getId()) != null) {
+            return true;
+        }
+        if (userId == null) {
+            return false;
+        }
+        Instant cutoff = revokedBefore.getIfPresent(userId);
+        if (cutoff == null) {
+            return false;
+        }
+        Long issuedAtMs = issuedAtMillis(claims);
+        return issuedAtMs != null && issuedAtMs < cutoff.toEpochMilli();
+    }
+
+    /**
+     * The issue time in milliseconds, so a token issued right after a reset is not denied for being in the same
+     * second. Tokens without the claim fall back to {@code iat}, rounded down, and are denied in that second.
+     */
+    private static Long issuedAtMillis(Claims claims) {
+        Object issuedAtMs = claims.get(JwtUtil.CLAIM_ISSUED_AT_MS);
+        if (issuedAtMs instanceof Number number) {
+            return number.longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null ? null : issuedAt.getTime();
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, Instant> {
+        @Override
+        public long expireAfterCreate(String key, Instant expiresAt, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt.toEpochMilli() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Instant expiresAt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, expiresAt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Instant expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package rp.fitkit.api.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Remembers login names (usernames or emails) that recently matched no user, so repeated guesses against
+ * them cost the database one query at a time.
+ * <p>
+ * A hit does not answer "unknown" by itself: concurrent attempts at a cached name share one lookup, so a name
+ * registered on another instance is found by the next attempt, without any invalidation between instances.
+ * Joining a running lookup is faster than starting one, so the cache keeps a moving average of the lookup time
+ * and a hit takes at least that long. The caller runs the same password check for an unknown name as for a wrong
+ * password, so a cached name is rejected with the same error as any other failed login.
+ */
+@Component
+public class UnknownLoginCache {
+
+    private final Cache<String, Boolean> unknownLogins;
+    private final ConcurrentMap<String, Mono<User>> lookupsInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong averageLookupNanos = new AtomicLong();
+
+    public UnknownLoginCache(
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.security.unknown-login-cache.ttl-ms:10000}") long ttlMs,
+            @Value("${fitkit.api.security.unknown-login-cache.max-size:100000}") long maxSize
+    ) {
+        this.unknownLogins = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownLogins, "unknownLogins");
+    }
+
+    /**
+     * @param login The username or email a client tried to log in with.
+     * @return {@code true} if the name recently matched no user.
+     */
+    public boolean isKnownToBeUnknown(String login) {
+        return login != null && unknownLogins.getIfPresent(login) != null;
+    }
+
+    /**
+     * Looks up a name that recently matched no user, sharing the lookup with concurrent attempts at the same name.
+     * A hit takes at least {@link #typicalLookupTime()}.
+     *
+     * @param login  The username or email.
+     * @param lookup Starts the database lookup.
+     * @return A Mono with the user, or empty if the name still matches no user.
+     */
+    public Mono<User> lookUpShared(String login, Supplier<Mono<User>> lookup) {
+        Mono<User> shared = Mono.defer(() -> lookupsInFlight.computeIfAbsent(login, key -> {
+            AtomicReference<Mono<User>> self = new AtomicReference<>();
+            self.set(lookup.get()
+                    .doFinally(signal -> lookupsInFlight.remove(key, self.get()))
+                    .cache());
+            return self.get();
+        }));
+        return shared.delayUntil(user -> Mono.delay(typicalLookupTime()))
+                .switchIfEmpty(Mono.delay(typicalLookupTime()).then(Mono.empty()));
+    }
+
+    /**
+     * Records how long a lookup of a login name took, found or not.
+     */
+    public void recordLookupTime(long nanos) {
+        averageLookupNanos.updateAndGet(average -> average == 0 ? nanos : average + (nanos - average) / 8);
+    }
+
+    /**
+     * @return How long a cache hit takes at least: the moving average of recent lookups.
+     */
+    public Duration typicalLookupTime() {
+        return Duration.ofNanos(averageLookupNanos.get());
+    }
+
+    /**
+     * Records that a login name matched no user.
+     */
+    public void remember(String login) {
+        if (login != null) {
+            unknownLogins.put(login, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Forgets login names that now belong to a user, e.g. right after registration.
+     */
+    public void forget(String... logins) {
+        for (String login : logins) {
+            if (login != null) {
+                unknownLogins.invalidate(login);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package rp.fitkit.api.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.repository.ExerciseDailyStatsRepository;
+import rp.fitkit.api.repository.PersonalBestRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recomputes the exercise_daily_stats rollup and the personal_best rep-maxes from the logged sessions, to repair
+ * them. Existing data is backfilled by the changesets that introduced the tables, so the job is off by default.
+ * <p>
+ * Users are processed in chunks ordered by ID (keyset). Each chunk is one transaction that deletes the rows of its
+ * users and inserts them again with a single INSERT ... SELECT, so rows of deleted sessions disappear and the job
+ * can be re-run safely. While a chunk runs, the table is locked for writers: a session logged at that moment waits
+ * for the chunk to commit and is then merged on top of it, instead of being overwritten by it.
+ */
+@Component
+@Slf4j
+public class ExerciseStatsRebuildJob {
+
+    private static final UUID FIRST_USER_ID = new UUID(0L, 0L);
+
+    private final ExerciseDailyStatsRepository statsRepository;
+    private final PersonalBestRepository personalBestRepository;
+    private final PersonalRecordService personalRecordService;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public ExerciseStatsRebuildJob(
+            ExerciseDailyStatsRepository statsRepository,
+            PersonalBestRepository personalBestRepository,
+            PersonalRecordService personalRecordService,
+            TransactionalOperator transactionalOperator,
+            @Value("${fitkit.api.stats.rebuild.enabled:false}") boolean enabled,
+            @Value("${fitkit.api.stats.rebuild.chunk-size:100}") int chunkSize
+    ) {
+        this.statsRepository = statsRepository;
+        this.personalBestRepository = personalBestRepository;
+        this.personalRecordService = personalRecordService;
+        this.transactionalOperator = transactionalOperator;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Exercise stats rebuild is disabled.");
+            return;
+        }
+        run().subscribe(
+                count -> log.info("Exercise stats rebuild finished. Wrote {} daily rows.", count),
+                e -> log.error("Exercise stats rebuild failed.", e)
+        );
+    }
+
+    /**
+     * Rebuilds the rollup of every user that has logged sessions.
+     *
+     * @return A Mono emitting the number of rows written.
+     */
+    public Mono<Long> run() {
+        log.info("Starting exercise stats rebuild (chunk size {}).", chunkSize);
+        return nextChunk(FIRST_USER_ID)
+                .expand(chunk -> chunk.size() < chunkSize
+                        ? Mono.empty()
+                        : nextChunk(chunk.get(chunk.size() - 1)))
+                .concatMap(chunk -> statsRepository.rebuildForUsers(chunk)
+                        .flatMap(count -> personalBestRepository.rebuildForUsers(chunk).thenReturn(count))
+                        .as(transactionalOperator::transactional)
+                        .doOnNext(count -> log.debug("Rebuilt {} daily rows for {} users up to userId: {}",
+                                count, chunk.size(), chunk.get(chunk.size() - 1))))
+                .reduce(0L, Long::sum)
+                .doOnSuccess(count -> personalRecordService.invalidateAll());
+    }
+
+    private Mono<List<UUID>> nextChunk(UUID afterUserId) {
+        return statsRepository.findUserIdsAfter(afterUserId, chunkSize)
+                .collectList()
+                .filter(chunk -> !chunk.isEmpty());
+    }
+}
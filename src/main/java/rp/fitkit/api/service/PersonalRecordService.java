@@ -0,0 +1,219 @@
+package rp.fitkit.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.dto.PersonalRecordDto;
+import rp.fitkit.api.model.PersonalRecordType;
+import rp.fitkit.api.model.SetLog;
+import rp.fitkit.api.repository.PersonalBest;
+import rp.fitkit.api.repository.PersonalBestRepository;
+import rp.fitkit.api.util.OneRepMaxCalculator;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Detects personal records in freshly logged sets.
+ * <p>
+ * The bests of a user on an exercise are the rep-maxes in personal_best: a few rows that are cached per user and
+ * exercise, so checking a set is one map lookup and one comparison, never a scan of the history. The best e1RM
+ * is derived from the same rows, because no set can have a higher Epley estimate than the rep-max for its reps.
+ * A first session of an exercise only sets the baseline; records need an earlier best to beat.
+ * <p>
+ * New bests are written with a conditional merge. If another instance has stored a heavier weight in the
+ * meantime, that rep count is not written, its record is dropped and the cached entry is thrown away.
+ * The merge runs in the transaction of the logged session, so the cache only takes the new bests after that
+ * commits; until then (and after a rollback) the entry is absent and the bests are read from the database.
+ */
+@Service
+@Slf4j
+public class PersonalRecordService {
+
+    private final PersonalBestRepository personalBestRepository;
+    private final Cache<BestsKey, ExerciseBests> bests;
+    private final Counter recordsDetected;
+
+    public PersonalRecordService(
+            PersonalBestRepository personalBestRepository,
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.stats.personal-bests.cache-max-size:10000}") long cacheMaxSize,
+            @Value("${fitkit.api.stats.personal-bests.cache-expire-after-access-ms:3600000}") long expireAfterAccessMs
+    ) {
+        this.personalBestRepository = personalBestRepository;
+        this.bests = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccessMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bests, "personalBests");
+        this.recordsDetected = Counter.builder("workout.personal_records.detected")
+                .description("Personal records set by logged workout sessions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Compares the sets of a new session with the bests of the exercise and stores the ones that improved.
+     *
+     * @param userId       The ID of the user.
+     * @param exerciseId   The ID of the exercise.
+     * @param exerciseName The name of the exercise, for the records.
+     * @param date         The day of the session.
+     * @param sets         The saved sets of the session.
+     * @return A Mono with the records of the session: at most one rep-max per rep count and one e1RM.
+     */
+    public Mono<List<PersonalRecordDto>> detectAndRecord(UUID userId, String exerciseId, String exerciseName,
+                                                         LocalDate date, List<SetLog> sets) {
+        if (sets.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        BestsKey key = new BestsKey(userId, exerciseId);
+        return bestsFor(key).flatMap(previous -> {
+            Map<Integer, PersonalBest> improved = new LinkedHashMap<>();
+            SetLog topSet = null;
+            double topEstimate = previous.bestEstimate();
+            for (SetLog set : sets) {
+                if (set.getReps() <= 0 || set.getWeight() <= 0) {
+                    continue;
+                }
+                PersonalBest best = improved.getOrDefault(set.getReps(), previous.byReps().get(set.getReps()));
+                if (best == null || set.getWeight() > best.weight()) {
+                    improved.put(set.getReps(), new PersonalBest(set.getReps(), set.getWeight(), date));
+                }
+                double estimate = OneRepMaxCalculator.epley(set.getWeight(), set.getReps());
+                if (estimate > topEstimate) {
+                    topSet = set;
+                    topEstimate = estimate;
+                }
+            }
+            if (improved.isEmpty()) {
+                return Mono.just(List.<PersonalRecordDto>of());
+            }
+
+            SetLog recordSet = topSet;
+            double recordEstimate = topEstimate;
+            return personalBestRepository.mergeBests(userId, exerciseId, improved.values(), date)
+                    .collect(Collectors.toSet())
+                    .doOnError(e -> bests.invalidate(key))
+                    .flatMap(written -> {
+                        bests.invalidate(key);
+                        // If fewer were written, the cached bests were behind the database; reload them on the next session.
+                        Mono<Void> cached = written.size() < improved.size()
+                                ? Mono.empty()
+                                : cacheAfterCommit(key, previous.with(improved.values()));
+                        List<PersonalRecordDto> records = toRecords(previous, improved, written, recordSet,
+                                recordEstimate, exerciseName, date);
+                        if (!records.isEmpty()) {
+                            recordsDetected.increment(records.size());
+                            log.debug("User {} set {} personal records on exercise {}.", userId, records.size(), exerciseId);
+                        }
+                        return cached.thenReturn(records);
+                    });
+        });
+    }
+
+    /**
+     * Forgets all cached bests, e.g. after personal_best has been rebuilt.
+     */
+    public void invalidateAll() {
+        bests.invalidateAll();
+    }
+
+    /**
+     * Caches the new bests once the transaction of the session commits, or right away without a transaction.
+     */
+    private Mono<Void> cacheAfterCommit(BestsKey key, ExerciseBests updated) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        bests.put(key, updated);
+                        return Mono.empty();
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> {
+                    bests.put(key, updated);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<ExerciseBests> bestsFor(BestsKey key) {
+        ExerciseBests cached = bests.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return personalBestRepository.findByUserAndExercise(key.userId(), key.exerciseId())
+                .collectMap(PersonalBest::reps)
+                .map(ExerciseBests::of)
+                .doOnNext(loaded -> bests.put(key, loaded));
+    }
+
+    private static List<PersonalRecordDto> toRecords(ExerciseBests previous, Map<Integer, PersonalBest> improved,
+                                                     Set<Integer> written, SetLog topSet, double topEstimate,
+                                                     String exerciseName, LocalDate date) {
+        List<PersonalRecordDto> records = new ArrayList<>();
+        if (previous.isEmpty()) {
+            return records;
+        }
+        // The e1RM of a real record always comes with a new rep-max for the reps of its set.
+        if (topSet != null && written.contains(topSet.getReps())) {
+            records.add(new PersonalRecordDto(date, exerciseName, PersonalRecordType.ESTIMATED_ONE_REP_MAX,
+                    topSet.getWeight(), topSet.getReps(), topEstimate, previous.bestEstimate()));
+        }
+        for (PersonalBest best : improved.values()) {
+            PersonalBest before = previous.byReps().get(best.reps());
+            if (before != null && written.contains(best.reps())) {
+                records.add(new PersonalRecordDto(date, exerciseName, PersonalRecordType.REP_MAX,
+                        best.weight(), best.reps(), best.weight(), before.weight()));
+            }
+        }
+        return records;
+    }
+
+    private record BestsKey(UUID userId, String exerciseId) {
+    }
+
+    /**
+     * The rep-maxes of one user on one exercise, and the highest Epley estimate among them.
+     */
+    private record ExerciseBests(Map<Integer, PersonalBest> byReps, double bestEstimate) {
+
+        static ExerciseBests of(Map<Integer, PersonalBest> byReps) {
+            double bestEstimate = 0;
+            for (PersonalBest best : byReps.values()) {
+                bestEstimate = Math.max(bestEstimate, OneRepMaxCalculator.epley(best.weight(), best.reps()));
+            }
+            return new ExerciseBests(Map.copyOf(byReps), bestEstimate);
+        }
+
+        boolean isEmpty() {
+            return byReps.isEmpty();
+        }
+
+        ExerciseBests with(Iterable<PersonalBest> improved) {
+            Map<Integer, PersonalBest> merged = new HashMap<>(byReps);
+            for (PersonalBest best : improved) {
+                merged.put(best.reps(), best);
+            }
+            return of(merged);
+        }
+    }
+}
@@ -5,27 +5,50 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import rp.fitkit.api.dto.ExerciseSessionResponseDto;
+import rp.fitkit.api.dto.PersonalRecordDto;
 import rp.fitkit.api.dto.ProgressDataPointDto;
-import rp.fitkit.api.model.SetLog;
+import rp.fitkit.api.dto.TrainingAnalyticsDto;
+import rp.fitkit.api.dto.TrainingBucketDto;
+import rp.fitkit.api.exception.InvalidDateRangeException;
+import rp.fitkit.api.model.AnalyticsPeriod;
+import rp.fitkit.api.model.PersonalRecordType;
+import rp.fitkit.api.repository.ExerciseDailyStatsRepository;
+import rp.fitkit.api.repository.MuscleGroupBucketSets;
+import rp.fitkit.api.repository.TrainingBucketTotals;
 
-import java.util.Comparator;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class StatisticsService {
 
-    private final WorkoutHistoryService workoutHistoryService;
+    /**
+     * Het maximale aantal buckets per aanvraag: tien jaar aan weken.
+     */
+    static final int MAX_BUCKETS = 520;
 
-    public StatisticsService(WorkoutHistoryService workoutHistoryService) {
-        this.workoutHistoryService = workoutHistoryService;
+    /**
+     * Het aantal buckets als er geen begindatum is opgegeven.
+     */
+    static final int DEFAULT_BUCKETS = 12;
+
+    private final ExerciseDailyStatsRepository exerciseDailyStatsRepository;
+
+    public StatisticsService(ExerciseDailyStatsRepository exerciseDailyStatsRepository) {
+        this.exerciseDailyStatsRepository = exerciseDailyStatsRepository;
     }
 
     /**
-     * Berekent de e1RM progressie voor een specifieke oefening van een gebruiker.
-     * Deze versie is opgesplitst en gebruikt logging voor betere leesbaarheid en debugging.
+     * Haalt de e1RM progressie op voor een specifieke oefening van een gebruiker. De top set en e1RM per dag
+     * worden bij het loggen al bijgehouden in exercise_daily_stats, dus dit is één range scan.
      *
      * @param userId De ID van de gebruiker.
      * @param exerciseName De naam van de oefening.
@@ -33,52 +56,94 @@ public class StatisticsService {
      */
     @PreAuthorize("isAuthenticated()")
     public Flux<ProgressDataPointDto> getEstimated1rmHistory(UUID userId, String exerciseName) {
-        log.info("Calculating e1RM history for user '{}' and exercise '{}'", userId, exerciseName);
-        return workoutHistoryService.getHistoryForExercise(userId, exerciseName)
-                .flatMap(this::createDataPointFromSession);
+        log.info("Fetching e1RM history for user '{}' and exercise '{}'", userId, exerciseName);
+        return exerciseDailyStatsRepository.findByExerciseName(userId, exerciseName)
+                .map(day -> new ProgressDataPointDto(
+                        day.date(),
+                        day.estimatedOneRepMax(),
+                        day.topSetWeight(),
+                        day.topSetReps()
+                ));
     }
 
     /**
-     * Hulp-methode die een enkele trainingssessie analyseert en omzet naar een datapunt.
+     * Berekent volume, tonnage, gemiddelde RPE en sets per spiergroep per week of maand, plus de e1RM records
+     * in het bereik. De totalen staan per week en maand bijgehouden in training_period_stats, dus een bucket
+     * is één rij; records en spiergroepen komen uit de dagelijkse rollup in exercise_daily_stats, nooit uit
+     * set_log. Het bereik wordt uitgebreid tot hele weken of maanden, zodat de eerste en laatste bucket niet
+     * half gevuld zijn.
      *
-     * @param session De trainingssessie DTO.
-     * @return Een Mono met een ProgressDataPointDto als een top set is gevonden, anders een lege Mono.
+     * @param userId       De ID van de gebruiker.
+     * @param period       De grootte van de buckets.
+     * @param from         De eerste datum, of {@code null} voor de laatste {@value #DEFAULT_BUCKETS} buckets.
+     * @param to           De laatste datum, of {@code null} voor vandaag.
+     * @param languageCode De taal van de oefeningnamen.
+     * @return Een Mono met één bucket per week of maand, de oudste eerst.
      */
-    private Mono<ProgressDataPointDto> createDataPointFromSession(ExerciseSessionResponseDto session) {
-        if (session.getSets() == null || session.getSets().isEmpty()) {
-            log.debug("Skipping session on {} because it has no sets.", session.getDate());
-            return Mono.empty();
+    @PreAuthorize("isAuthenticated()")
+    public Mono<TrainingAnalyticsDto> getTrainingAnalytics(UUID userId, AnalyticsPeriod period, LocalDate from,
+                                                           LocalDate to, String languageCode) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minus(DEFAULT_BUCKETS - 1L, period.getUnit());
+        if (start.isAfter(end)) {
+            return Mono.error(new InvalidDateRangeException("The start date cannot be after the end date."));
         }
 
-        Optional<SetLog> topSetOpt = session.getSets().stream()
-                .max(Comparator.comparingDouble(set -> calculateEpley1rm(set.getWeight(), set.getReps())));
-
-        if (topSetOpt.isEmpty()) {
-            log.debug("Could not determine a top set for session on {}.", session.getDate());
-            return Mono.empty();
+        List<LocalDate> bucketStarts = new ArrayList<>();
+        LocalDate bucketStart = period.startOf(start);
+        while (!bucketStart.isAfter(end)) {
+            if (bucketStarts.size() == MAX_BUCKETS) {
+                return Mono.error(new InvalidDateRangeException("The range cannot span more than " + MAX_BUCKETS + " buckets."));
+            }
+            bucketStarts.add(bucketStart);
+            bucketStart = bucketStart.plus(1, period.getUnit());
         }
+        LocalDate rangeStart = bucketStarts.get(0);
+        LocalDate rangeEnd = bucketStart.minusDays(1);
+        log.info("Fetching {} analytics for user '{}' from {} to {}", period, userId, rangeStart, rangeEnd);
 
-        SetLog topSet = topSetOpt.get();
-        double estimatedOneRepMax = calculateEpley1rm(topSet.getWeight(), topSet.getReps());
-
-        log.debug("Calculated e1RM for session on {}: {:.2f} (from set: {} reps @ {} kg)",
-                session.getDate(), estimatedOneRepMax, topSet.getReps(), topSet.getWeight());
-
-        ProgressDataPointDto dataPoint = new ProgressDataPointDto(
-                session.getDate(),
-                estimatedOneRepMax,
-                topSet.getWeight(),
-                topSet.getReps()
-        );
+        Mono<Map<LocalDate, TrainingBucketTotals>> totals = exerciseDailyStatsRepository
+                .findBucketTotals(userId, period, rangeStart, rangeEnd)
+                .collectMap(TrainingBucketTotals::bucketStart, Function.identity());
+        Mono<Map<LocalDate, Collection<MuscleGroupBucketSets>>> muscleGroupSets = exerciseDailyStatsRepository
+                .findMuscleGroupSets(userId, period, rangeStart, rangeEnd)
+                .collectMultimap(MuscleGroupBucketSets::bucketStart);
+        Mono<List<PersonalRecordDto>> records = exerciseDailyStatsRepository
+                .findRecordDays(userId, rangeStart, rangeEnd, languageCode)
+                .map(day -> new PersonalRecordDto(
+                        day.date(),
+                        day.exerciseName(),
+                        PersonalRecordType.ESTIMATED_ONE_REP_MAX,
+                        day.topSetWeight(),
+                        day.topSetReps(),
+                        day.estimatedOneRepMax(),
+                        day.previousBest()
+                ))
+                .collectList();
 
-        return Mono.just(dataPoint);
+        return Mono.zip(totals, muscleGroupSets, records)
+                .map(result -> new TrainingAnalyticsDto(
+                        period,
+                        rangeStart,
+                        rangeEnd,
+                        bucketStarts.stream()
+                                .map(date -> toBucket(date, result.getT1().get(date), result.getT2().get(date)))
+                                .toList(),
+                        result.getT3()
+                ));
     }
 
-    /**
-     * Berekent de e1RM met de Epley formule.
-     */
-    private double calculateEpley1rm(double weight, int reps) {
-        if (reps == 1) return weight;
-        return weight * (1 + (reps / 30.0));
+    private static TrainingBucketDto toBucket(LocalDate start, TrainingBucketTotals totals,
+                                              Collection<MuscleGroupBucketSets> muscleGroupSets) {
+        Map<String, Long> setsPerMuscleGroup = muscleGroupSets == null ? Map.of() : muscleGroupSets.stream()
+                .collect(Collectors.toMap(MuscleGroupBucketSets::muscleGroupCode, MuscleGroupBucketSets::setCount,
+                        Long::sum, LinkedHashMap::new));
+        if (totals == null) {
+            return new TrainingBucketDto(start, 0, 0, 0, 0.0, null, setsPerMuscleGroup);
+        }
+        Double averageRpe = totals.rpeSetCount() == 0 ? null
+                : Math.round(totals.rpeSum() * 10.0 / totals.rpeSetCount()) / 10.0;
+        return new TrainingBucketDto(start, totals.trainingDays(), totals.setCount(), totals.totalReps(),
+                totals.tonnage(), averageRpe, setsPerMuscleGroup);
     }
 }
@@ -5,43 +5,131 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.ExerciseSessionResponseDto;
-import rp.fitkit.api.model.exercise.ExerciseSession;
+import rp.fitkit.api.dto.WorkoutDayDto;
+import rp.fitkit.api.dto.WorkoutHistoryPageDto;
+import rp.fitkit.api.exception.InvalidCursorException;
+import rp.fitkit.api.exception.InvalidDateRangeException;
+import rp.fitkit.api.model.SetLog;
 import rp.fitkit.api.repository.ExerciseSessionRepository;
-import rp.fitkit.api.repository.SetLogRepository;
+import rp.fitkit.api.repository.SessionSetRow;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
+/**
+ * Reads the workout history of a user.
+ * <p>
+ * Sessions, sets and exercise names come from one query whose rows are ordered by day and session, and are
+ * assembled while they stream in. Pages hold whole training days and continue with a keyset cursor on the date,
+ * so a page deep in the past is as cheap as the first one.
+ */
 @Service
 @AllArgsConstructor
 public class WorkoutHistoryService {
 
+    public static final String DEFAULT_LANGUAGE = "en-GB";
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ExerciseSessionRepository exerciseSessionRepository;
-    private final SetLogRepository setLogRepository;
 
-    public Mono<Map<LocalDate, List<ExerciseSessionResponseDto>>> getFullHistoryGroupedByDate(UUID userId) {
-        return exerciseSessionRepository.findByUserIdOrderByDateDesc(userId)
-                .flatMap(this::hydrateSessionToDto)
+    /**
+     * Haalt één pagina trainingsdagen op, de nieuwste eerst.
+     *
+     * @param userId       De ID van de gebruiker.
+     * @param startDate    De eerste datum (inclusief), of {@code null}.
+     * @param endDate      De laatste datum (inclusief), of {@code null}.
+     * @param cursor       De {@code nextCursor} van de vorige pagina, of {@code null} voor de eerste pagina.
+     * @param size         Het maximale aantal trainingsdagen (hooguit {@value #MAX_PAGE_SIZE}).
+     * @param languageCode De taal van de oefeningnamen.
+     * @return Een Mono met de dagen en de cursor van de volgende pagina.
+     */
+    public Mono<WorkoutHistoryPageDto> getHistoryPage(UUID userId, LocalDate startDate, LocalDate endDate,
+                                                      String cursor, int size, String languageCode) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            return Mono.error(new InvalidDateRangeException("The start date cannot be after the end date."));
+        }
+        LocalDate before;
+        try {
+            before = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Mono.error(new InvalidCursorException("Invalid history cursor."));
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // The cursor is the oldest day of the previous page; whole days are returned, so continue the day before.
+        LocalDate until = before == null ? endDate : min(endDate, before.minusDays(1));
+
+        return groupByDay(assembleSessions(exerciseSessionRepository.findSessionSetRows(
+                        userId, null, startDate, until, limit, languageCode)))
                 .collectList()
-                .map(allSessions -> allSessions.stream()
-                        .collect(Collectors.groupingBy(ExerciseSessionResponseDto::getDate))
-                );
+                .map(days -> {
+                    // A short page is the last one; a full page may or may not be followed by more days.
+                    String nextCursor = days.size() < limit ? null : encodeCursor(days.get(days.size() - 1).getDate());
+                    return new WorkoutHistoryPageDto(days, nextCursor);
+                });
     }
 
-    public Flux<ExerciseSessionResponseDto> getHistoryForExercise(UUID userId, String exerciseName) {
-        return exerciseSessionRepository.findByUserIdAndExerciseNameOrderByDateDesc(userId, exerciseName)
-                .flatMap(this::hydrateSessionToDto);
+    /**
+     * Streamt alle trainingsdagen in het bereik, de nieuwste eerst. Er wordt steeds maar één dag vastgehouden,
+     * en de database levert pas nieuwe rijen als de client de vorige heeft afgenomen.
+     */
+    public Flux<WorkoutDayDto> streamHistory(UUID userId, LocalDate startDate, LocalDate endDate, String languageCode) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            return Flux.error(new InvalidDateRangeException("The start date cannot be after the end date."));
+        }
+        return groupByDay(assembleSessions(exerciseSessionRepository.findSessionSetRows(
+                userId, null, startDate, endDate, null, languageCode)));
     }
 
-    private Mono<ExerciseSessionResponseDto> hydrateSessionToDto(ExerciseSession session) {
-        return setLogRepository.findByExerciseSessionId(session.getId())
-                .collectList()
-                .map(sets -> new ExerciseSessionResponseDto(
-                        session.getId(), "todo get exercise name", session.getDate(),
-                        session.getNotes(), sets
-                ));
+    public Flux<ExerciseSessionResponseDto> getHistoryForExercise(UUID userId, String exerciseName, String languageCode) {
+        return assembleSessions(exerciseSessionRepository.findSessionSetRows(
+                userId, exerciseName, null, null, null, languageCode));
+    }
+
+    private Flux<WorkoutDayDto> groupByDay(Flux<ExerciseSessionResponseDto> sessions) {
+        return sessions.bufferUntilChanged(ExerciseSessionResponseDto::getDate)
+                .map(daySessions -> new WorkoutDayDto(daySessions.get(0).getDate(), daySessions));
+    }
+
+    /**
+     * Zet de rijen van de history-query om naar sessies. De rijen van één sessie komen achter elkaar binnen,
+     * dus een sessie is compleet zodra het sessie-ID wisselt; er wordt nooit meer dan één sessie gebufferd.
+     */
+    private Flux<ExerciseSessionResponseDto> assembleSessions(Flux<SessionSetRow> rows) {
+        return rows.bufferUntilChanged(SessionSetRow::sessionId)
+                .map(this::toSessionDto);
+    }
+
+    private ExerciseSessionResponseDto toSessionDto(List<SessionSetRow> rows) {
+        SessionSetRow first = rows.get(0);
+        List<SetLog> sets = new ArrayList<>(rows.size());
+        for (SessionSetRow row : rows) {
+            if (row.hasSet()) {
+                SetLog set = new SetLog(row.setId(), row.sessionId(),
+                        row.reps() != null ? row.reps() : 0,
+                        row.weight() != null ? row.weight() : 0.0,
+                        row.rpe() != null ? row.rpe() : 0,
+                        false);
+                sets.add(set);
+            }
+        }
+        return new ExerciseSessionResponseDto(
+                first.sessionId(), first.exerciseName(), first.sessionDate(), first.notes(), sets, List.of());
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static String encodeCursor(LocalDate oldestDay) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(oldestDay.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LocalDate decodeCursor(String cursor) {
+        return LocalDate.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
     }
 }
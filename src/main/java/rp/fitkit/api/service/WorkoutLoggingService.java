@@ -10,7 +10,10 @@ import rp.fitkit.api.dto.ExerciseSessionResponseDto;
 import rp.fitkit.api.exception.ResourceNotFoundException;
 import rp.fitkit.api.model.exercise.ExerciseSession;
 import rp.fitkit.api.model.SetLog;
+import rp.fitkit.api.repository.ExerciseDailyStatsRepository;
+import rp.fitkit.api.repository.ExerciseDayStats;
 import rp.fitkit.api.repository.ExerciseSessionRepository;
+import rp.fitkit.api.repository.ExerciseTranslationRepository;
 import rp.fitkit.api.repository.SetLogRepository;
 import rp.fitkit.api.repository.user.UserRepository;
 
@@ -25,14 +28,20 @@ public class WorkoutLoggingService {
     private final UserRepository userRepository;
     private final ExerciseSessionRepository exerciseSessionRepository;
     private final SetLogRepository setLogRepository;
+    private final ExerciseTranslationRepository exerciseTranslationRepository;
+    private final ExerciseDailyStatsRepository exerciseDailyStatsRepository;
+    private final PersonalRecordService personalRecordService;
     private final Sinks.Many<ExerciseSessionResponseDto> workoutSessionSink;
 
     @Transactional
     public Mono<ExerciseSession> logWorkoutSession(UUID userId, ExerciseLogDto logDto) {
         return userRepository.findById(userId)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("Gebruiker met ID '" + userId + "' niet gevonden.")))
-                .flatMap(user -> {
+                .then(exerciseTranslationRepository.findExerciseIdByName(logDto.getExerciseName()))
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Oefening '" + logDto.getExerciseName() + "' niet gevonden.")))
+                .flatMap(exerciseId -> {
                     ExerciseSession newSession = new ExerciseSession(userId);
+                    newSession.setExerciseId(exerciseId);
                     if (logDto.getDate() != null) newSession.setDate(logDto.getDate());
                     newSession.setNotes(logDto.getNotes());
                     return exerciseSessionRepository.save(newSession);
@@ -46,14 +55,29 @@ public class WorkoutLoggingService {
                     }
                     return setLogRepository.saveAll(setLogsToSave)
                             .collectList()
-                            .map(savedSets -> {
-                                savedSession.setSets(savedSets);
-                                workoutSessionSink.tryEmitNext(new ExerciseSessionResponseDto(
-                                        savedSession.getId(), "bleb", savedSession.getDate(),
-                                        savedSession.getNotes(), savedSets
-                                ));
-                                return savedSession;
-                            });
+                            .flatMap(savedSets -> updateDailyStats(savedSession, savedSets)
+                                    .then(personalRecordService.detectAndRecord(savedSession.getUserId(),
+                                            savedSession.getExerciseId(), logDto.getExerciseName(),
+                                            savedSession.getDate(), savedSets))
+                                    .map(records -> {
+                                        savedSession.setSets(savedSets);
+                                        workoutSessionSink.tryEmitNext(new ExerciseSessionResponseDto(
+                                                savedSession.getId(), logDto.getExerciseName(), savedSession.getDate(),
+                                                savedSession.getNotes(), savedSets, records
+                                        ));
+                                        return savedSession;
+                                    }));
                 });
     }
+
+    /**
+     * Verwerkt de sets van een nieuwe sessie in de dagstatistieken van de oefening, in dezelfde transactie.
+     */
+    private Mono<Void> updateDailyStats(ExerciseSession session, List<SetLog> sets) {
+        ExerciseDayStats stats = ExerciseDayStats.of(session.getDate(), sets);
+        if (stats == null) {
+            return Mono.empty();
+        }
+        return exerciseDailyStatsRepository.mergeSession(session.getUserId(), session.getExerciseId(), stats);
+    }
 }
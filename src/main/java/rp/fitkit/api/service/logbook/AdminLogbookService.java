@@ -4,18 +4,27 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.exception.ResourceNotFoundException;
 import rp.fitkit.api.model.audit.AuditAction;
+import rp.fitkit.api.model.logbook.LogEntityLink;
+import rp.fitkit.api.model.logbook.LogSection;
 import rp.fitkit.api.model.root.DailyLog;
+import rp.fitkit.api.model.root.EntityType;
 import rp.fitkit.api.model.user.User;
 import rp.fitkit.api.repository.logbook.DailyLogRepository;
+import rp.fitkit.api.repository.logbook.LogEntityLinkRepository;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
 import rp.fitkit.api.repository.user.UserRepository;
 import rp.fitkit.api.service.audit.AuditService;
 import rp.fitkit.api.service.audit.ConsentService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
@@ -26,23 +35,37 @@ public class AdminLogbookService {
     private final UserRepository userRepository;
     private final ConsentService consentService;
     private final AuditService auditService;
+    private final LogSectionRepository logSectionRepository;
+    private final LogEntityLinkRepository logEntityLinkRepository;
+    private final KeywordGraphService keywordGraphService;
 
 
-    public Mono<Page<DailyLog>> searchDailyLogsByUsername(String justification, String username, Pageable pageable) {
+    /**
+     * Searches the daily logs of a user. Without a cursor the page is fetched with LIMIT/OFFSET; with a
+     * {@code before} cursor the logs directly before that date are fetched (newest first), which stays
+     * cheap no matter how deep the admin pages into the history. A cursor page is the first page of the logs
+     * before the cursor, and its total counts only those logs.
+     */
+    public Mono<Page<DailyLog>> searchDailyLogsByUsername(String justification, String username, LocalDate before, Pageable pageable) {
         log.info("Admin searching for daily logs for username: '{}' with justification '{}'", username, justification);
 
         return consentService.findAndValidateConsent(justification, username)
                 .then(userRepository.findByUsername(username))
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("User not found with username: " + username)))
                 .flatMap(user -> {
-                    Mono<Long> totalMono = dailyLogRepository.countByUserId(user.getId());
-                    Mono<List<DailyLog>> contentMono = dailyLogRepository.findByUserId(user.getId(), pageable.getSort())
-                            .skip(pageable.getOffset())
-                            .take(pageable.getPageSize())
+                    Pageable effectivePageable = before == null
+                            ? pageable
+                            : PageRequest.of(0, pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "logDate"));
+                    Mono<Long> totalMono = before == null
+                            ? dailyLogRepository.countByUserId(user.getId())
+                            : dailyLogRepository.countByUserIdAndLogDateBefore(user.getId(), before);
+                    Mono<List<DailyLog>> contentMono = (before == null
+                            ? dailyLogRepository.findByUserId(user.getId(), pageable)
+                            : dailyLogRepository.findByUserIdBefore(user.getId(), before, pageable.getPageSize()))
                             .collectList();
 
                     return Mono.zip(contentMono, totalMono)
-                            .map(tuple -> new PageImpl<>(tuple.getT1(), pageable, tuple.getT2()))
+                            .map(tuple -> new PageImpl<>(tuple.getT1(), effectivePageable, tuple.getT2()))
                             .flatMap(page ->
                                     auditService.logAdminAction(
                                             justification,
@@ -56,6 +79,11 @@ public class AdminLogbookService {
                 });
     }
 
+    /**
+     * Deletes a daily log. The links of its sections are deleted with it and taken out of the keyword graph in the
+     * same transaction; the log is locked first, like when a section is saved, so no concurrent save is missed.
+     */
+    @Transactional
     public Mono<Void> deleteDailyLog(String justification, Long logId) {
         log.info("Admin attempting to delete daily log with ID: {} for justification: {}", logId, justification);
 
@@ -68,8 +96,8 @@ public class AdminLogbookService {
                                         // Validate consent for the user who owns the log.
                                         consentService.findAndValidateConsent(justification, user.getUsername())
                                                 .then(
-                                                        // Delete the log.
-                                                        dailyLogRepository.delete(dailyLog)
+                                                        // Delete the log, its links and their share of the keyword graph.
+                                                        deleteWithLinks(dailyLog)
                                                                 .then(
                                                                         // Audit the action.
                                                                         auditService.logAdminAction(
@@ -85,6 +113,27 @@ public class AdminLogbookService {
                                 )
                 ).then();
     }
+
+    private Mono<Void> deleteWithLinks(DailyLog dailyLog) {
+        return dailyLogRepository.findByIdForUpdate(dailyLog.getId())
+                .flatMapMany(locked -> logSectionRepository.findByDailyLogId(locked.getId()))
+                .map(LogSection::getId)
+                .collectList()
+                .flatMap(sectionIds -> sectionIds.isEmpty()
+                        ? Mono.just(List.<LogEntityLink>of())
+                        : logEntityLinkRepository.findBySourceEntityTypeAndSourceIdIn(EntityType.LOG_SECTION, sectionIds).collectList())
+                .flatMap(links -> {
+                    if (links.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    log.debug("Removing {} links of daily log {} from the keyword graph", links.size(), dailyLog.getId());
+                    return logEntityLinkRepository.deleteAllByIdIn(links.stream().map(LogEntityLink::getId).toList())
+                            .then(keywordGraphService.applyLogRemoval(
+                                    dailyLog.getUserId(),
+                                    links.stream().map(LogEntityLink::getAnchorText).toList()));
+                })
+                .then(dailyLogRepository.delete(dailyLog));
+    }
 }
 
 
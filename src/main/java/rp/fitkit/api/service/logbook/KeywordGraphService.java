@@ -0,0 +1,149 @@
+package rp.fitkit.api.service.logbook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.dto.logbook.GraphDataDto;
+import rp.fitkit.api.dto.logbook.GraphElementDto;
+import rp.fitkit.api.dto.logbook.GraphNodeDto;
+import rp.fitkit.api.repository.logbook.KeywordGraphRepository;
+import rp.fitkit.api.repository.logbook.KeywordPair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Maintains and reads the keyword graph of a user.
+ * <p>
+ * A node is a keyword (anchor text) weighted by how often it is used; an edge connects two keywords that occur
+ * in the same daily log, weighted by the number of logs they share. Both are stored in tables and updated with
+ * deltas when the links of a section change, so reading the graph never has to look at the links themselves.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeywordGraphService {
+
+    private final KeywordGraphRepository keywordGraphRepository;
+
+    /**
+     * Applies the change of one section's links to the graph of its owner.
+     *
+     * @param userId            The owner of the daily log.
+     * @param oldAnchors        The anchor texts of the section's links before the change.
+     * @param newAnchors        The anchor texts of the section's links after the change.
+     * @param otherLogAnchors   The anchor texts of the links in the other sections of the same daily log.
+     * @return A Mono that completes when the graph is updated.
+     */
+    public Mono<Void> applyLinkChange(UUID userId, List<String> oldAnchors, List<String> newAnchors, Collection<String> otherLogAnchors) {
+        Map<String, Integer> nodeDeltas = new HashMap<>();
+        oldAnchors.forEach(anchor -> nodeDeltas.merge(anchor, -1, Integer::sum));
+        newAnchors.forEach(anchor -> nodeDeltas.merge(anchor, 1, Integer::sum));
+        nodeDeltas.values().removeIf(delta -> delta == 0);
+
+        Set<String> oldLogKeywords = new HashSet<>(otherLogAnchors);
+        oldLogKeywords.addAll(oldAnchors);
+        Set<String> newLogKeywords = new HashSet<>(otherLogAnchors);
+        newLogKeywords.addAll(newAnchors);
+
+        // An edge counts the logs two keywords share, so only the pairs that appear in or disappear from this log change.
+        Map<KeywordPair, Integer> edgeDeltas = new HashMap<>();
+        if (!oldLogKeywords.equals(newLogKeywords)) {
+            Set<KeywordPair> oldPairs = pairs(oldLogKeywords);
+            Set<KeywordPair> newPairs = pairs(newLogKeywords);
+            for (KeywordPair pair : oldPairs) {
+                if (!newPairs.contains(pair)) edgeDeltas.put(pair, -1);
+            }
+            for (KeywordPair pair : newPairs) {
+                if (!oldPairs.contains(pair)) edgeDeltas.put(pair, 1);
+            }
+        }
+
+        if (nodeDeltas.isEmpty() && edgeDeltas.isEmpty()) {
+            return Mono.empty();
+        }
+        log.debug("Applying keyword graph deltas for user {}: {} nodes, {} edges", userId, nodeDeltas.size(), edgeDeltas.size());
+        return keywordGraphRepository.applyNodeDeltas(userId, nodeDeltas)
+                .then(keywordGraphRepository.applyEdgeDeltas(userId, edgeDeltas));
+    }
+
+    /**
+     * Removes a deleted daily log from the graph of its owner: every link counted once for its keyword, and the
+     * log counted once for every pair of its keywords.
+     *
+     * @param userId  The owner of the daily log.
+     * @param anchors The anchor texts of all links in the log's sections.
+     * @return A Mono that completes when the graph is updated.
+     */
+    public Mono<Void> applyLogRemoval(UUID userId, List<String> anchors) {
+        return applyLinkChange(userId, anchors, List.of(), List.of());
+    }
+
+    /**
+     * Reads the precomputed keyword graph of a user.
+     *
+     * @param userId    The ID of the user.
+     * @param limit     Only return the {@code limit} heaviest nodes (and the edges between them), or {@code null} for all.
+     * @param minWeight The minimum weight of the returned nodes and edges.
+     * @return A Mono with the graph.
+     */
+    public Mono<GraphDataDto> getGraph(UUID userId, Integer limit, int minWeight) {
+        return keywordGraphRepository.findNodes(userId, minWeight, limit)
+                .collectList()
+                .flatMap(nodes -> {
+                    if (nodes.isEmpty()) {
+                        return Mono.just(new GraphDataDto(List.of(), List.of()));
+                    }
+                    // An edge is never heavier than its nodes, so without a limit the weight filter alone keeps edges between returned nodes.
+                    List<String> keywords = limit == null ? null : nodes.stream().map(GraphNodeDto::getId).toList();
+                    return keywordGraphRepository.findEdges(userId, minWeight, keywords)
+                            .collectList()
+                            .map(edges -> new GraphDataDto(nodes, edges));
+                });
+    }
+
+    /**
+     * Streams the precomputed keyword graph of a user: first all nodes, then all edges. Rows are passed on as they
+     * are read from the database, so the graph is never held in memory as a whole; only the keywords of the
+     * returned nodes are kept when a {@code limit} requires the edges to be restricted to them.
+     *
+     * @param userId    The ID of the user.
+     * @param limit     Only return the {@code limit} heaviest nodes (and the edges between them), or {@code null} for all.
+     * @param minWeight The minimum weight of the returned nodes and edges.
+     * @return A Flux of graph elements, nodes before edges.
+     */
+    public Flux<GraphElementDto> streamGraph(UUID userId, Integer limit, int minWeight) {
+        if (limit == null) {
+            return keywordGraphRepository.findNodes(userId, minWeight, null).map(GraphElementDto::node)
+                    .concatWith(keywordGraphRepository.findEdges(userId, minWeight, null).map(GraphElementDto::edge));
+        }
+        return Flux.defer(() -> {
+            List<String> keywords = new ArrayList<>();
+            return keywordGraphRepository.findNodes(userId, minWeight, limit)
+                    .doOnNext(node -> keywords.add(node.getId()))
+                    .map(GraphElementDto::node)
+                    .concatWith(Flux.defer(() -> keywords.isEmpty()
+                            ? Flux.empty()
+                            : keywordGraphRepository.findEdges(userId, minWeight, keywords).map(GraphElementDto::edge)));
+        });
+    }
+
+    private static Set<KeywordPair> pairs(Set<String> keywords) {
+        List<String> list = new ArrayList<>(keywords);
+        Set<KeywordPair> pairs = new HashSet<>();
+        for (int i = 0; i < list.size(); i++) {
+            for (int j = i + 1; j < list.size(); j++) {
+                pairs.add(KeywordPair.of(list.get(i), list.get(j)));
+            }
+        }
+        return pairs;
+    }
+}
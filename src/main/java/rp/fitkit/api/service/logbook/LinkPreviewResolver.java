@@ -0,0 +1,222 @@
+package rp.fitkit.api.service.logbook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.dto.logbook.LinkPreviewDto;
+import rp.fitkit.api.model.logbook.LogEntityLink;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.logbook.Person;
+import rp.fitkit.api.model.root.DailyLog;
+import rp.fitkit.api.model.root.EntityType;
+import rp.fitkit.api.repository.logbook.DailyLogRepository;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
+import rp.fitkit.api.repository.logbook.PersonRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the link previews of a logbook.
+ * <p>
+ * All entities referenced by the links are collected first and fetched with one {@code IN} query per entity
+ * type; the previews are then assembled in memory. The number of round trips is therefore constant, no
+ * matter how many links a day has.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LinkPreviewResolver {
+
+    private final DailyLogRepository dailyLogRepository;
+    private final LogSectionRepository logSectionRepository;
+    private final PersonRepository personRepository;
+
+    /**
+     * Resolves the previews of outgoing links, based on the content of their targets.
+     *
+     * @param sourceSections The sections of the logbook the links originate from.
+     * @param links          The outgoing links of those sections.
+     * @return A Mono with one preview per resolvable link, in the order of {@code links}.
+     */
+    public Mono<List<LinkPreviewDto>> resolveOutgoing(List<LogSection> sourceSections, List<LogEntityLink> links) {
+        if (links.isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        Map<Long, LogSection> sectionsById = sourceSections.stream()
+                .collect(Collectors.toMap(LogSection::getId, Function.identity()));
+        List<Long> targetLogIds = targetIds(links, EntityType.DAILY_LOG, LogEntityLink::getTargetId);
+        List<String> targetPersonIds = targetIds(links, EntityType.PERSON, link -> link.getTargetUuid() == null ? null : link.getTargetUuid().toString());
+
+        Mono<Map<Long, DailyLog>> targetLogsMono = findAll(targetLogIds, ids -> dailyLogRepository.findAllById(ids)
+                .collectMap(DailyLog::getId));
+        Mono<Map<Long, List<LogSection>>> targetSectionsMono = findAll(targetLogIds, ids -> logSectionRepository.findByDailyLogIdIn(ids)
+                .collectMultimap(LogSection::getDailyLogId)
+                .map(multimap -> multimap.entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue())))));
+        Mono<Map<String, Person>> targetPersonsMono = findAll(targetPersonIds, ids -> personRepository.findAllById(ids)
+                .collectMap(Person::getId));
+
+        return Mono.zip(targetLogsMono, targetSectionsMono, targetPersonsMono)
+                .map(tuple -> {
+                    List<LinkPreviewDto> previews = new ArrayList<>(links.size());
+                    for (LogEntityLink link : links) {
+                        LogSection sourceSection = sectionsById.get(link.getSourceId());
+                        LinkPreviewDto preview = switch (link.getTargetEntityType()) {
+                            case DAILY_LOG -> dailyLogOutgoingPreview(link, sourceSection, tuple.getT1(), tuple.getT2());
+                            case PERSON -> personOutgoingPreview(link, sourceSection, tuple.getT3());
+                            default -> genericPreview(link);
+                        };
+                        if (preview != null) {
+                            previews.add(preview);
+                        }
+                    }
+                    log.debug("Resolved {} outgoing link previews from {} links", previews.size(), links.size());
+                    return previews;
+                });
+    }
+
+    /**
+     * Resolves the previews of incoming links (backlinks), based on the context of their sources.
+     *
+     * @param links The links pointing to the logbook.
+     * @return A Mono with one preview per resolvable link, in the order of {@code links}.
+     */
+    public Mono<List<LinkPreviewDto>> resolveIncoming(List<LogEntityLink> links) {
+        if (links.isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        List<Long> sourceSectionIds = links.stream()
+                .filter(link -> link.getSourceEntityType() == EntityType.LOG_SECTION)
+                .map(LogEntityLink::getSourceId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        return findAll(sourceSectionIds, ids -> logSectionRepository.findAllById(ids).collectMap(LogSection::getId))
+                .flatMap(sourceSections -> {
+                    List<Long> sourceLogIds = sourceSections.values().stream()
+                            .map(LogSection::getDailyLogId)
+                            .distinct()
+                            .toList();
+                    return findAll(sourceLogIds, ids -> dailyLogRepository.findAllById(ids).collectMap(DailyLog::getId))
+                            .map(sourceLogs -> {
+                                List<LinkPreviewDto> previews = new ArrayList<>(links.size());
+                                for (LogEntityLink link : links) {
+                                    LinkPreviewDto preview = link.getSourceEntityType() == EntityType.LOG_SECTION
+                                            ? logSectionIncomingPreview(link, sourceSections, sourceLogs)
+                                            : genericPreview(link);
+                                    if (preview != null) {
+                                        previews.add(preview);
+                                    }
+                                }
+                                log.debug("Resolved {} incoming link previews from {} links", previews.size(), links.size());
+                                return previews;
+                            });
+                });
+    }
+
+    private LinkPreviewDto dailyLogOutgoingPreview(LogEntityLink link, LogSection sourceSection,
+                                                   Map<Long, DailyLog> targetLogs, Map<Long, List<LogSection>> targetSections) {
+        Long targetLogId = link.getTargetId();
+        DailyLog targetLog = targetLogId == null ? null : targetLogs.get(targetLogId);
+        if (sourceSection == null || targetLog == null) {
+            return null;
+        }
+        return new LinkPreviewDto(
+                sourceSection.getSectionType(),
+                link.getAnchorText(),
+                link.getTargetEntityType().name(),
+                null,
+                link.getTargetEntityId(),
+                targetLog.getLogDate().toString(),
+                bestTargetSnippet(targetSections.getOrDefault(targetLogId, List.of()), link.getAnchorText()),
+                "/api/logbook/by-date/" + targetLog.getLogDate()
+        );
+    }
+
+    private LinkPreviewDto personOutgoingPreview(LogEntityLink link, LogSection sourceSection, Map<String, Person> targetPersons) {
+        Person targetPerson = link.getTargetUuid() == null ? null : targetPersons.get(link.getTargetUuid().toString());
+        if (sourceSection == null || targetPerson == null) {
+            return new LinkPreviewDto(
+                    null, link.getAnchorText(), EntityType.PERSON.name(), null, link.getTargetEntityId(),
+                    "Unknown Person", "Person not found.", null
+            );
+        }
+        return new LinkPreviewDto(
+                sourceSection.getSectionType(),
+                link.getAnchorText(),
+                link.getTargetEntityType().name(),
+                null,
+                link.getTargetEntityId(),
+                targetPerson.getFullName(),
+                targetPerson.getShortBio(),
+                "/api/persons/by-date/" + targetPerson.getId()
+        );
+    }
+
+    private LinkPreviewDto logSectionIncomingPreview(LogEntityLink link, Map<Long, LogSection> sourceSections, Map<Long, DailyLog> sourceLogs) {
+        Long sourceSectionId = link.getSourceId();
+        LogSection sourceSection = sourceSectionId == null ? null : sourceSections.get(sourceSectionId);
+        DailyLog sourceLog = sourceSection == null ? null : sourceLogs.get(sourceSection.getDailyLogId());
+        if (sourceLog == null) {
+            return null;
+        }
+        return new LinkPreviewDto(
+                null,
+                link.getAnchorText(),
+                link.getSourceEntityType().name(),
+                sourceSection.getSectionType(),
+                link.getSourceEntityId(),
+                "From log on " + sourceLog.getLogDate(),
+                LogTextSnippets.snippet(sourceSection.getSummary(), link.getAnchorText()),
+                "/api/logbook/by-date/" + sourceLog.getLogDate()
+        );
+    }
+
+    private LinkPreviewDto genericPreview(LogEntityLink link) {
+        return new LinkPreviewDto(
+                null, link.getAnchorText(), "UNKNOWN", null, "0",
+                link.getAnchorText(), "Preview not implemented.", null
+        );
+    }
+
+    private String bestTargetSnippet(List<LogSection> sections, String anchorText) {
+        if (sections.isEmpty()) return anchorText;
+        for (LogSection s : sections) {
+            if (s.getSummary() != null && s.getSummary().contains(anchorText)) {
+                return LogTextSnippets.snippet(s.getSummary(), anchorText);
+            }
+        }
+        for (LogSection s : sections) {
+            if (s.getSummary() != null && !s.getSummary().isBlank()) {
+                return LogTextSnippets.preview(s.getSummary());
+            }
+        }
+        return anchorText;
+    }
+
+    private static <I> List<I> targetIds(List<LogEntityLink> links, EntityType targetType, Function<LogEntityLink, I> idExtractor) {
+        return links.stream()
+                .filter(link -> link.getTargetEntityType() == targetType)
+                .map(idExtractor)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Skips the query entirely when there is nothing to look up.
+     */
+    private static <I, T> Mono<Map<I, T>> findAll(Collection<I> ids, Function<Collection<I>, Mono<Map<I, T>>> query) {
+        return ids.isEmpty() ? Mono.just(Map.of()) : query.apply(ids);
+    }
+}
@@ -0,0 +1,70 @@
+package rp.fitkit.api.service.logbook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.logbook.LogEntityLink;
+import rp.fitkit.api.model.root.EntityType;
+import rp.fitkit.api.repository.logbook.LogEntityLinkRepository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings the stored links of a section in line with the links parsed from its summary.
+ * <p>
+ * Links are compared by anchor text and target. Only the links that disappeared are deleted and only the new
+ * ones are inserted, each with a single statement, so an autosave that does not touch the links costs no writes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LinkReconciler {
+
+    private final LogEntityLinkRepository logEntityLinkRepository;
+
+    /**
+     * @param stored The links currently stored for the section.
+     * @param parsed The links parsed from the new summary.
+     * @return A Mono that completes when the stored links match the parsed ones.
+     */
+    public Mono<Void> reconcile(List<LogEntityLink> stored, List<LogEntityLink> parsed) {
+        // A summary can contain the same link twice, so match them as a multiset.
+        Map<LinkKey, Deque<LogEntityLink>> unmatched = new HashMap<>();
+        for (LogEntityLink link : stored) {
+            unmatched.computeIfAbsent(LinkKey.of(link), key -> new ArrayDeque<>()).add(link);
+        }
+
+        List<LogEntityLink> toInsert = new ArrayList<>();
+        for (LogEntityLink link : parsed) {
+            Deque<LogEntityLink> candidates = unmatched.get(LinkKey.of(link));
+            if (candidates == null || candidates.poll() == null) {
+                toInsert.add(link);
+            }
+        }
+        List<Long> toDelete = unmatched.values().stream()
+                .flatMap(Deque::stream)
+                .map(LogEntityLink::getId)
+                .toList();
+
+        if (toInsert.isEmpty() && toDelete.isEmpty()) {
+            log.debug("Links unchanged, nothing to reconcile");
+            return Mono.empty();
+        }
+        log.debug("Reconciling links: {} to insert, {} to delete", toInsert.size(), toDelete.size());
+        return logEntityLinkRepository.deleteAllByIdIn(toDelete)
+                .then(logEntityLinkRepository.insertAll(toInsert))
+                .then();
+    }
+
+    private record LinkKey(String anchorText, EntityType targetType, String targetEntityId) {
+        static LinkKey of(LogEntityLink link) {
+            return new LinkKey(link.getAnchorText(), link.getTargetEntityType(), link.getTargetEntityId());
+        }
+    }
+}
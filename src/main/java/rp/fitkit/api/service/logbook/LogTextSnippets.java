@@ -0,0 +1,49 @@
+package rp.fitkit.api.service.logbook;
+
+/**
+ * Helpers for cutting short previews out of log summaries.
+ */
+final class LogTextSnippets {
+
+    private static final int PREVIEW_LENGTH = 100;
+    private static final int SNIPPET_CONTEXT = 100;
+
+    private LogTextSnippets() {
+    }
+
+    /**
+     * Geeft de eerste ~100 tekens van een samenvatting, afgekapt op een woordgrens.
+     */
+    static String preview(String summary) {
+        if (summary == null || summary.length() <= PREVIEW_LENGTH) {
+            return summary;
+        }
+
+        // Zoek de laatste spatie vóór de maximale lengte om te voorkomen dat woorden worden afgekapt.
+        int lastSpace = summary.lastIndexOf(' ', PREVIEW_LENGTH);
+        if (lastSpace > 0) {
+            return summary.substring(0, lastSpace) + "...";
+        } else {
+            // Fallback voor het geval er geen spaties zijn in de eerste 100 tekens.
+            return summary.substring(0, PREVIEW_LENGTH) + "...";
+        }
+    }
+
+    /**
+     * Geeft de tekst rond de anchor text, of een gewone preview als de anchor niet in de samenvatting staat.
+     */
+    static String snippet(String summary, String anchorText) {
+        if (summary == null || anchorText == null) return "...";
+        int index = summary.indexOf(anchorText);
+        if (index == -1) return preview(summary);
+
+        int start = Math.max(0, index - SNIPPET_CONTEXT);
+        int end = Math.min(summary.length(), index + anchorText.length() + SNIPPET_CONTEXT);
+
+        String snippet = summary.substring(start, end);
+        if (start > 0) snippet = "..." + snippet;
+        if (end < summary.length()) snippet = snippet + "...";
+
+        return snippet;
+    }
+}
@@ -0,0 +1,271 @@
+package rp.fitkit.api.service.logbook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.root.SectionType;
+import rp.fitkit.api.service.logbook.PendingSectionWrites.Key;
+import rp.fitkit.api.service.logbook.PendingSectionWrites.PendingWrite;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces rapid successive saves of the same section (autosave) into fewer database writes.
+ * <p>
+ * The first save of a section is written through immediately and opens a window. Saves that arrive within that
+ * window only replace the pending content; when the window closes, the last version is written. Pending content
+ * is visible to reads through {@link PendingSectionWrites}, and is flushed when the application shuts down.
+ * <p>
+ * A coalesced save has already been answered when its write runs, so a failed deferred write is not dropped: the
+ * content stays pending and is retried with an exponential backoff, unless a newer save replaces it first. Only
+ * after {@code max-flush-attempts} failures it is given up (logged and counted as {@code logbook.autosave.lost}).
+ * Full-text search reads the stored rows only, so pending content becomes searchable once it is written.
+ */
+@Service
+@Slf4j
+public class LogbookAutosaveService implements SmartLifecycle {
+
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final LogbookService logbookService;
+    private final PendingSectionWrites pendingSectionWrites;
+    private final Duration window;
+    private final int maxFlushAttempts;
+    private final Counter lostWrites;
+
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public LogbookAutosaveService(
+            LogbookService logbookService,
+            PendingSectionWrites pendingSectionWrites,
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.logbook.autosave.window-ms:2000}") long windowMs,
+            @Value("${fitkit.api.logbook.autosave.max-flush-attempts:5}") int maxFlushAttempts
+    ) {
+        this.logbookService = logbookService;
+        this.pendingSectionWrites = pendingSectionWrites;
+        this.window = Duration.ofMillis(windowMs);
+        this.maxFlushAttempts = Math.max(1, maxFlushAttempts);
+        this.lostWrites = Counter.builder("logbook.autosave.lost")
+                .description("Coalesced autosaves that could not be written after all retries")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Saves a section, coalescing it with other saves of the same section within the autosave window.
+     *
+     * @return A Mono with the section as the client will see it. For a coalesced save this is the pending
+     * content on top of the last stored version; it is written when the window closes.
+     */
+    public Mono<LogSection> save(Long dailyLogId, SectionType sectionType, String summary, String mood) {
+        if (window.isZero() || !running) {
+            return logbookService.saveLogSection(dailyLogId, sectionType, summary, mood);
+        }
+
+        Key key = new Key(dailyLogId, sectionType);
+        PendingWrite write = new PendingWrite(summary, mood);
+        while (true) {
+            Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+            synchronized (slot) {
+                if (slot.removed) {
+                    continue;
+                }
+                long now = System.nanoTime();
+                // Also written through when nothing has been stored yet (the first write failed): a coalesced save
+                // would have no stored version to answer with.
+                if (slot.inFlight == null && (slot.lastSaved == null || slot.pending == null && now - slot.windowEndsAt >= 0)) {
+                    log.debug("Autosave write-through for dailyLogId: {}, section: {}", dailyLogId, sectionType);
+                    if (slot.pending != null) {
+                        pendingSectionWrites.remove(key, slot.pending);
+                        slot.pending = null;
+                    }
+                    return startWrite(key, slot, write, false);
+                }
+
+                slot.pending = write;
+                pendingSectionWrites.put(key, write);
+                if (slot.inFlight == null) {
+                    scheduleFlush(key, slot, Duration.ofNanos(Math.max(0, slot.windowEndsAt - now)));
+                }
+                log.debug("Autosave coalesced for dailyLogId: {}, section: {}", dailyLogId, sectionType);
+                return (slot.lastSaved != null ? Mono.just(slot.lastSaved) : slot.inFlight)
+                        .map(pendingSectionWrites::overlay);
+            }
+        }
+    }
+
+    /**
+     * Must be called while holding the slot's lock.
+     *
+     * @param deferred Whether the callers of this content have already been answered. Only then a failed write
+     *                 is kept and retried; otherwise the caller receives the error.
+     */
+    private Mono<LogSection> startWrite(Key key, Slot slot, PendingWrite write, boolean deferred) {
+        if (slot.timer != null) {
+            slot.timer.dispose();
+            slot.timer = null;
+        }
+        slot.windowEndsAt = System.nanoTime() + window.toNanos();
+        Mono<LogSection> inFlight = logbookService.saveLogSection(key.dailyLogId(), key.sectionType(), write.summary(), write.mood())
+                .doOnSuccess(saved -> onWriteFinished(key, slot, write, saved, deferred, null))
+                .doOnError(e -> onWriteFinished(key, slot, write, null, deferred, e))
+                .cache();
+        slot.inFlight = inFlight;
+        // Subscribed here, not by the caller, so the slot is released even if the request is cancelled.
+        // A write that completes right away has already cleared slot.inFlight again when this returns.
+        inFlight.subscribe(saved -> { }, e -> { });
+        return inFlight;
+    }
+
+    private void onWriteFinished(Key key, Slot slot, PendingWrite written, LogSection saved, boolean deferred, Throwable error) {
+        synchronized (slot) {
+            slot.inFlight = null;
+            if (error == null) {
+                if (saved != null) {
+                    slot.lastSaved = saved;
+                }
+                slot.failedAttempts = 0;
+                pendingSectionWrites.remove(key, written);
+                // A new save arrived while writing: it waits for the next window. Otherwise the slot expires with the window.
+                scheduleFlush(key, slot, window);
+                return;
+            }
+            if (!deferred) {
+                log.error("Autosave write failed for dailyLogId: {}, section: {}", key.dailyLogId(), key.sectionType(), error);
+                scheduleFlush(key, slot, window);
+                return;
+            }
+
+            slot.failedAttempts++;
+            if (slot.pending == null) {
+                if (slot.failedAttempts >= maxFlushAttempts) {
+                    log.error("Giving up autosave for dailyLogId: {}, section: {} after {} attempts; the content is lost.",
+                            key.dailyLogId(), key.sectionType(), slot.failedAttempts, error);
+                    lostWrites.increment();
+                    slot.failedAttempts = 0;
+                    pendingSectionWrites.remove(key, written);
+                    scheduleFlush(key, slot, window);
+                    return;
+                }
+                // Nothing newer was saved in the meantime: keep this content pending and write it again.
+                slot.pending = written;
+            }
+            Duration delay = retryDelay(slot.failedAttempts);
+            log.warn("Autosave write failed for dailyLogId: {}, section: {} (attempt {}); retrying in {} ms.",
+                    key.dailyLogId(), key.sectionType(), slot.failedAttempts, delay.toMillis(), error);
+            scheduleFlush(key, slot, delay);
+        }
+    }
+
+    private Duration retryDelay(int failedAttempts) {
+        Duration delay = window.multipliedBy(1L << Math.min(failedAttempts - 1, 16));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    /**
+     * Must be called while holding the slot's lock.
+     */
+    private void scheduleFlush(Key key, Slot slot, Duration delay) {
+        if (slot.timer != null) {
+            return;
+        }
+        slot.timer = Mono.delay(delay).subscribe(tick -> flush(key, slot));
+    }
+
+    private void flush(Key key, Slot slot) {
+        synchronized (slot) {
+            slot.timer = null;
+            if (slot.inFlight != null) {
+                return;
+            }
+            if (slot.pending == null) {
+                // Idle for a whole window: forget the section, the next save is written through again.
+                slot.removed = true;
+                slots.remove(key, slot);
+                return;
+            }
+            PendingWrite write = slot.pending;
+            slot.pending = null;
+            log.debug("Autosave flushing dailyLogId: {}, section: {}", key.dailyLogId(), key.sectionType());
+            startWrite(key, slot, write, true);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Writes everything that is still pending. Runs after the web server has stopped accepting requests.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        List<Mono<LogSection>> writes = slots.entrySet().stream()
+                .map(entry -> {
+                    Slot slot = entry.getValue();
+                    synchronized (slot) {
+                        if (slot.timer != null) {
+                            slot.timer.dispose();
+                            slot.timer = null;
+                        }
+                        Mono<LogSection> inFlight = slot.inFlight != null ? slot.inFlight : Mono.<LogSection>empty();
+                        if (slot.pending == null) {
+                            return inFlight;
+                        }
+                        PendingWrite write = slot.pending;
+                        slot.pending = null;
+                        return inFlight.onErrorResume(e -> Mono.empty())
+                                .then(Mono.defer(() -> logbookService.saveLogSection(
+                                        entry.getKey().dailyLogId(), entry.getKey().sectionType(), write.summary(), write.mood())));
+                    }
+                })
+                .toList();
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        log.info("Flushing {} pending autosave(s) before shutdown.", writes.size());
+        try {
+            Mono.whenDelayError(writes).block(SHUTDOWN_FLUSH_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.error("Not all pending autosaves could be flushed before shutdown.", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop after the web server (which stops in a higher phase), so no new saves arrive while flushing,
+     * and before the connection pool is closed.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private static final class Slot {
+        private PendingWrite pending;
+        private Mono<LogSection> inFlight;
+        private LogSection lastSaved;
+        private Disposable timer;
+        private int failedAttempts;
+        private long windowEndsAt = System.nanoTime();
+        private boolean removed;
+    }
+}
@@ -0,0 +1,98 @@
+package rp.fitkit.api.service.logbook;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.dto.logbook.LogbookSearchHitDto;
+import rp.fitkit.api.dto.logbook.LogbookSearchResultDto;
+import rp.fitkit.api.exception.InvalidCursorException;
+import rp.fitkit.api.exception.InvalidDateRangeException;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
+import rp.fitkit.api.repository.logbook.LogSectionSearchRow;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Full-text search over the section summaries of a user's logbook.
+ * <p>
+ * Matching and ranking are done by the GIN-indexed {@code summary_tsv} column. Pages are fetched with a keyset
+ * cursor on (rank, section id), so page 100 is as cheap as page 1.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LogbookSearchService {
+
+    public static final int MAX_PAGE_SIZE = 50;
+
+    private final LogSectionRepository logSectionRepository;
+
+    /**
+     * @param userId    The ID of the user.
+     * @param query     The search query, in web search syntax.
+     * @param startDate The first log date to search (inclusive), or {@code null}.
+     * @param endDate   The last log date to search (inclusive), or {@code null}.
+     * @param cursor    The {@code nextCursor} of the previous page, or {@code null} for the first page.
+     * @param size      The maximum number of hits (capped at {@value #MAX_PAGE_SIZE}).
+     * @return A Mono with the hits and the cursor of the next page.
+     */
+    public Mono<LogbookSearchResultDto> search(UUID userId, String query, LocalDate startDate, LocalDate endDate, String cursor, int size) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            return Mono.error(new InvalidDateRangeException("The start date cannot be after the end date."));
+        }
+        SearchCursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new InvalidCursorException("Invalid search cursor."));
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        log.debug("Searching logbook of user {} for '{}' (from: {}, to: {}, after: {})", userId, query, startDate, endDate, after);
+        return logSectionRepository.search(
+                        userId, query, startDate, endDate,
+                        after == null ? null : after.rank(),
+                        after == null ? null : after.sectionId(),
+                        limit)
+                .collectList()
+                .map(rows -> {
+                    List<LogbookSearchHitDto> hits = rows.stream()
+                            .map(row -> new LogbookSearchHitDto(row.logId(), row.logDate(), row.sectionType(), row.rank(), row.highlight()))
+                            .toList();
+                    // A short page is the last one; a full page may or may not be followed by more hits.
+                    String nextCursor = rows.size() < limit ? null : SearchCursor.of(rows.get(rows.size() - 1)).encode();
+                    return new LogbookSearchResultDto(hits, nextCursor);
+                });
+    }
+
+    /**
+     * The position of the last hit of a page. The rank is stored as its exact bit pattern, so the keyset
+     * comparison in the database does not suffer from decimal rounding.
+     */
+    private record SearchCursor(float rank, long sectionId) {
+
+        static SearchCursor of(LogSectionSearchRow row) {
+            return new SearchCursor(row.rank(), row.sectionId());
+        }
+
+        String encode() {
+            String raw = Integer.toHexString(Float.floatToIntBits(rank)) + ":" + sectionId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SearchCursor decode(String cursor) {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Missing separator in cursor");
+            }
+            float rank = Float.intBitsToFloat(Integer.parseUnsignedInt(raw.substring(0, separator), 16));
+            return new SearchCursor(rank, Long.parseLong(raw.substring(separator + 1)));
+        }
+    }
+}
@@ -5,28 +5,31 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.logbook.*;
 import rp.fitkit.api.model.logbook.LogEntityLink;
 import rp.fitkit.api.model.logbook.LogSection;
-import rp.fitkit.api.model.logbook.Person;
 import rp.fitkit.api.model.root.DailyLog;
 import rp.fitkit.api.model.root.EntityType;
 import rp.fitkit.api.model.root.SectionType;
 import rp.fitkit.api.repository.logbook.DailyLogRepository;
 import rp.fitkit.api.repository.logbook.LogEntityLinkRepository;
 import rp.fitkit.api.repository.logbook.LogSectionRepository;
-import rp.fitkit.api.repository.logbook.PersonRepository;
+import rp.fitkit.api.repository.logbook.LogbookPreviewRow;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 //todo encrypt logbook data in db with jasypt
 
@@ -35,14 +38,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class LogbookService {
 
-    private static final Pattern LINK_PATTERN = Pattern.compile("\\[([^\\]]+)\\]\\(log:(\\d+)\\)");
+    private static final Pattern LINK_PATTERN = Pattern.compile("\\[([^\\]]+)\\]\\((\\w+):([\\w-]+)\\)");
 
     private final DailyLogRepository dailyLogRepository;
     private final LogSectionRepository logSectionRepository;
     private final LogEntityLinkRepository logEntityLinkRepository;
 
-    private final PersonRepository personRepository;
     private final MoodAnalysisService moodAnalysisService;
+    private final LinkPreviewResolver linkPreviewResolver;
+    private final KeywordGraphService keywordGraphService;
+    private final LinkReconciler linkReconciler;
+    private final PendingSectionWrites pendingSectionWrites;
 
     public Mono<Long> getTotalLogCountForUser(UUID userId) {
         log.info("Fetching total log count for user: {}", userId);
@@ -50,52 +56,72 @@ public class LogbookService {
                 .doOnSuccess(count -> log.info("Found a total of {} log entries for user: {}", count, userId));
     }
 
-    public Mono<Page<LogbookPreviewDto>> getPaginatedLogbooksForUser(UUID userId, LocalDate startDate, LocalDate endDate, Pageable pageable) {
+    /**
+     * Haalt een pagina met logboek-previews op. Paginering, preview, moods en het totaal komen uit één query;
+     * alleen als de pagina leeg is, is er een extra count nodig.
+     * <p>
+     * Met een {@code before} cursor is de pagina de eerste pagina (nieuwste eerst) van de logs vóór die datum: het
+     * bereik eindigt dan vlak voor de cursor, dus er is geen OFFSET, en het totaal telt alleen die logs.
+     */
+    public Mono<Page<LogbookPreviewDto>> getPaginatedLogbooksForUser(UUID userId, LocalDate startDate, LocalDate endDate,
+                                                                     LocalDate before, Pageable pageable) {
+        if (before != null) {
+            LocalDate beforeCursor = before.minusDays(1);
+            return getPaginatedLogbooksForUser(userId, startDate, endDate.isAfter(beforeCursor) ? beforeCursor : endDate, null,
+                    PageRequest.of(0, pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "logDate")));
+        }
         log.info("Fetching paginated logbooks for user: {}, from: {}, to: {}", userId, startDate, endDate);
-        Mono<Long> totalMono = dailyLogRepository.countByUserIdAndLogDateBetween(userId, startDate, endDate);
-        Flux<DailyLog> logsFlux = dailyLogRepository.findByUserIdAndLogDateBetween(userId, startDate, endDate, pageable.getSort());
 
-        return totalMono.flatMap(total ->
-                logsFlux.skip(pageable.getOffset())
-                        .take(pageable.getPageSize())
-                        .collectList()
-                        .doOnSuccess(dailyLogs -> log.debug("Found {} daily logs on current page for user {}", dailyLogs.size(), userId))
-                        .flatMap(dailyLogs -> {
-                            if (dailyLogs.isEmpty()) {
-                                return Mono.just(new PageImpl<>(List.of(), pageable, total));
-                            }
+        return dailyLogRepository.findPreviewPage(userId, startDate, endDate, pageable)
+                .collectList()
+                .doOnSuccess(rows -> log.debug("Found {} daily logs on current page for user {}", rows.size(), userId))
+                .flatMap(rows -> {
+                    if (rows.isEmpty()) {
+                        // Past the last page the window function has no row to report the total on.
+                        return dailyLogRepository.countByUserIdAndLogDateBetween(userId, startDate, endDate)
+                                .<Page<LogbookPreviewDto>>map(total -> new PageImpl<>(List.of(), pageable, total));
+                    }
 
-                            List<Long> logIds = dailyLogs.stream().map(DailyLog::getId).collect(Collectors.toList());
-
-                            return logSectionRepository.findByDailyLogIdIn(logIds)
-                                    .collect(Collectors.groupingBy(LogSection::getDailyLogId))
-                                    .map(sectionsByLogId -> {
-                                        List<LogbookPreviewDto> previews = dailyLogs.stream()
-                                                .map(log -> {
-                                                    List<LogSection> sections = sectionsByLogId.getOrDefault(log.getId(), List.of());
-                                                    String preview = sections.stream()
-                                                            .map(LogSection::getSummary)
-                                                            .filter(s -> s != null && !s.isBlank())
-                                                            .findFirst()
-                                                            .map(this::createSummaryPreview)
-                                                            .orElse("");
-
-                                                    List<String> moods = sections.stream()
-                                                            .map(LogSection::getMood)
-                                                            .filter(mood -> mood != null && !mood.isBlank())
-                                                            .distinct()
-                                                            .collect(Collectors.toList());
-
-                                                    return new LogbookPreviewDto(log.getId(), log.getLogDate(), preview, moods);
-                                                })
-                                                .collect(Collectors.toList());
-                                        log.info("Successfully created page with {} logbook previews for user {}", previews.size(), userId);
-                                        return new PageImpl<>(previews, pageable, total);
-                                    });
-                        })
-        );
+                    return Flux.fromIterable(rows)
+                            .concatMap(this::toPreview)
+                            .collectList()
+                            .map(previews -> {
+                                log.info("Successfully created page with {} logbook previews for user {}", previews.size(), userId);
+                                return new PageImpl<>(previews, pageable, rows.get(0).totalCount());
+                            });
+                });
     }
 
+    /**
+     * Maakt de preview van een daglog. Heeft de log nog autosaves die niet geschreven zijn, dan wordt de preview
+     * opnieuw opgebouwd uit de secties mét die autosaves, zodat hij overeenkomt met wat de gebruiker net opsloeg.
+     */
+    private Mono<LogbookPreviewDto> toPreview(LogbookPreviewRow row) {
+        if (!pendingSectionWrites.hasPendingFor(row.logId())) {
+            return Mono.just(new LogbookPreviewDto(row.logId(), row.logDate(), previewOf(row.firstSummary()), row.moods()));
+        }
+        return getSectionsForLog(row.logId())
+                .sort(Comparator.comparing(LogSection::getId))
+                .collectList()
+                .map(sections -> new LogbookPreviewDto(
+                        row.logId(),
+                        row.logDate(),
+                        previewOf(sections.stream()
+                                .map(LogSection::getSummary)
+                                .filter(summary -> summary != null && !summary.isBlank())
+                                .findFirst()
+                                .orElse(null)),
+                        sections.stream()
+                                .map(LogSection::getMood)
+                                .filter(mood -> mood != null && !mood.isBlank())
+                                .distinct()
+                                .toList()
+                ));
+    }
+
+    private static String previewOf(String summary) {
+        return summary == null ? "" : LogTextSnippets.preview(summary);
+    }
 
     /**
      * Zoekt een daglog voor een gebruiker op een specifieke datum, of maakt een nieuwe aan als deze niet bestaat.
@@ -123,6 +149,7 @@ public class LogbookService {
 
     /**
      * Slaat een sectie van een daglog op of werkt deze bij.
+     * Als de mood verandert, wordt de opgeslagen classificatie gewist en na de commit opnieuw op de achtergrond berekend.
      */
     @Transactional
     public Mono<LogSection> saveLogSection(Long dailyLogId, SectionType sectionType, String summary, String mood) {
@@ -153,130 +180,139 @@ public class LogbookService {
                             });
                 }))
                 .flatMap(section -> {
+                    boolean moodChanged = !Objects.equals(section.getMood(), mood);
                     section.setSummary(summary);
                     section.setMood(mood);
-                    return logSectionRepository.save(section);
+                    if (moodChanged) {
+                        section.setMoodLabel(null);
+                        section.setMoodConfidence(null);
+                    }
+                    return logSectionRepository.save(section)
+                            .flatMap(savedSection -> moodChanged ? classifyMoodAfterCommit(savedSection) : Mono.just(savedSection));
                 })
-                .flatMap(savedSection -> {
-                    return logEntityLinkRepository.deleteAllBySourceEntityTypeAndSourceEntityId(
-                                    EntityType.LOG_SECTION,
-                                    savedSection.getId().toString()
-                            )
-                            .then(parseAndSaveLinks(savedSection));
-                });
+                .flatMap(this::reconcileLinks);
     }
 
+    /**
+     * Brengt de opgeslagen links van een sectie in lijn met de samenvatting en verwerkt het verschil in de keyword graph.
+     * De daglog wordt gelockt, zodat gelijktijdige saves binnen dezelfde dag elkaars delta's niet missen.
+     */
+    private Mono<LogSection> reconcileLinks(LogSection section) {
+        return dailyLogRepository.findByIdForUpdate(section.getDailyLogId())
+                .flatMap(dailyLog -> logSectionRepository.findByDailyLogId(dailyLog.getId())
+                        .map(LogSection::getId)
+                        .collectList()
+                        .flatMap(sectionIds -> logEntityLinkRepository.findBySourceEntityTypeAndSourceIdIn(EntityType.LOG_SECTION, sectionIds)
+                                .collectList())
+                        .flatMap(logLinks -> {
+                            List<LogEntityLink> newLinks = parseLinks(section, dailyLog.getUserId());
+                            List<LogEntityLink> oldLinks = new ArrayList<>();
+                            List<String> otherAnchors = new ArrayList<>();
+                            for (LogEntityLink link : logLinks) {
+                                if (section.getId().equals(link.getSourceId())) {
+                                    oldLinks.add(link);
+                                } else {
+                                    otherAnchors.add(link.getAnchorText());
+                                }
+                            }
+
+                            return linkReconciler.reconcile(oldLinks, newLinks)
+                                    .then(keywordGraphService.applyLinkChange(
+                                            dailyLog.getUserId(),
+                                            oldLinks.stream().map(LogEntityLink::getAnchorText).toList(),
+                                            newLinks.stream().map(LogEntityLink::getAnchorText).toList(),
+                                            otherAnchors
+                                    ));
+                        }))
+                .thenReturn(section);
+    }
+
+    /**
+     * Start de mood-classificatie pas na de commit, zodat de update de nieuwe mood ook echt ziet.
+     */
+    private Mono<LogSection> classifyMoodAfterCommit(LogSection section) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        moodAnalysisService.classifyInBackground(section);
+                        return Mono.empty();
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> {
+                    moodAnalysisService.classifyInBackground(section);
+                    return Mono.empty();
+                })
+                .thenReturn(section);
+    }
+
+    /**
+     * Haalt de secties van een daglog op, inclusief autosaves die nog niet naar de database zijn geschreven.
+     */
     public Flux<LogSection> getSectionsForLog(Long logId) {
         log.debug("Fetching sections for logId: {}", logId);
 
-        return logSectionRepository.findByDailyLogId(logId);
+        return logSectionRepository.findByDailyLogId(logId)
+                .map(pendingSectionWrites::overlay);
     }
 
     public Mono<FullLogbookDto> getFullLogbook(UUID userId, LocalDate date) {
         log.info("Fetching full logbook for user: {} on date: {}", userId, date);
         return findOrCreateDailyLog(userId, date)
-                .flatMap(dailyLog -> {
-                    Mono<List<LogSectionDto>> sectionsMono = getSectionsForLog(dailyLog.getId())
-                            .map(s -> new LogSectionDto(s.getSectionType(), s.getSummary(), s.getMood()))
-                            .collectList();
-
-                    // OUTGOING = previews based on TARGET content
-                    Mono<List<LinkPreviewDto>> outgoingLinksMono = getSectionsForLog(dailyLog.getId())
-                            .map(section -> section.getId().toString())
-                            .collectList()
-                            .flatMapMany(sectionIds -> {
-                                if (sectionIds.isEmpty()) return Flux.empty();
-                                return logEntityLinkRepository.findBySourceEntityTypeAndSourceEntityIdIn(EntityType.LOG_SECTION, sectionIds);
-                            })
-                            .flatMap(this::createOutgoingLinkPreview)
-                            .collectList();
-
-                    // INCOMING = backlinks, previews based on SOURCE context
-                    Mono<List<LinkPreviewDto>> incomingLinksMono = logEntityLinkRepository
-                            .findByTargetEntityTypeAndTargetEntityId(EntityType.DAILY_LOG, dailyLog.getId().toString())
-                            .flatMap(this::createIncomingLinkPreview)
-                            .collectList();
-
-                    return Mono.zip(sectionsMono, outgoingLinksMono, incomingLinksMono)
-                            .map(tuple -> {
-                                List<LogSectionDto> sections = tuple.getT1();
-                                List<LinkPreviewDto> outgoingLinks = tuple.getT2();
-                                List<LinkPreviewDto> incomingLinks = tuple.getT3();
-
-                                MoodStatsDto moodStats = moodAnalysisService.calculateMoodStats(sections);
-
-                                return new FullLogbookDto(
-                                        dailyLog.getId(),
-                                        dailyLog.getLogDate(),
-                                        sections,
-                                        outgoingLinks,
-                                        incomingLinks,
-                                        moodStats
-                                );
-                            });
-                });
-
+                .flatMap(dailyLog -> getSectionsForLog(dailyLog.getId())
+                        .collectList()
+                        .flatMap(sections -> {
+                            // OUTGOING = previews based on TARGET content
+                            List<Long> sectionIds = sections.stream().map(LogSection::getId).toList();
+                            Mono<List<LinkPreviewDto>> outgoingLinksMono = (sectionIds.isEmpty()
+                                    ? Mono.just(List.<LogEntityLink>of())
+                                    : logEntityLinkRepository.findBySourceEntityTypeAndSourceIdIn(EntityType.LOG_SECTION, sectionIds).collectList())
+                                    .flatMap(links -> linkPreviewResolver.resolveOutgoing(sections, links));
+
+                            // INCOMING = backlinks, previews based on SOURCE context
+                            Mono<List<LinkPreviewDto>> incomingLinksMono = logEntityLinkRepository
+                                    .findByTargetEntityTypeAndTargetId(EntityType.DAILY_LOG, dailyLog.getId())
+                                    .collectList()
+                                    .flatMap(linkPreviewResolver::resolveIncoming);
+
+                            return Mono.zip(outgoingLinksMono, incomingLinksMono, moodAnalysisService.calculateMoodStats(sections))
+                                    .map(tuple -> new FullLogbookDto(
+                                            dailyLog.getId(),
+                                            dailyLog.getLogDate(),
+                                            sections.stream()
+                                                    .map(s -> new LogSectionDto(s.getSectionType(), s.getSummary(), s.getMood()))
+                                                    .toList(),
+                                            tuple.getT1(),
+                                            tuple.getT2(),
+                                            tuple.getT3()
+                                    ));
+                        }));
     }
 
-    public Mono<GraphDataDto> getKeywordGraphData(UUID userId) {
-        return logEntityLinkRepository.findAllByUserId(userId)
-                .collectList()
-                .flatMap(userLinks -> {
-                    if (userLinks.isEmpty()) {
-                        return Mono.just(new GraphDataDto(List.<GraphNodeDto>of(), List.<GraphEdgeDto>of()));
-                    }
-
-                    Map<String, Long> nodeWeights = userLinks.stream()
-                            .collect(Collectors.groupingBy(LogEntityLink::getAnchorText, Collectors.counting()));
-
-                    List<GraphNodeDto> nodes = nodeWeights.entrySet().stream()
-                            .map(entry -> new GraphNodeDto(entry.getKey(), entry.getKey(), entry.getValue().intValue()))
-                            .toList();
-
-                    List<Long> relevantSectionIds = userLinks.stream()
-                            .map(link -> Long.parseLong(link.getSourceEntityId()))
-                            .distinct()
-                            .toList();
-
-                    Mono<Map<Long, Long>> sectionToLogMapMono = logSectionRepository.findAllById(relevantSectionIds)
-                            .collectMap(LogSection::getId, LogSection::getDailyLogId);
-
-                    return sectionToLogMapMono.map(sectionToLogMap -> {
-                        Map<Long, List<String>> keywordsByLogId = userLinks.stream()
-                                .collect(Collectors.groupingBy(
-                                        link -> sectionToLogMap.get(Long.parseLong(link.getSourceEntityId())),
-                                        Collectors.mapping(LogEntityLink::getAnchorText, Collectors.toList())
-                                ));
-
-                        Map<String, Integer> edgeWeights = new HashMap<>();
-                        for (List<String> keywordsInLog : keywordsByLogId.values()) {
-                            List<String> uniqueKeywords = keywordsInLog.stream().distinct().sorted().toList();
-                            if (uniqueKeywords.size() < 2) continue;
-
-                            for (int i = 0; i < uniqueKeywords.size(); i++) {
-                                for (int j = i + 1; j < uniqueKeywords.size(); j++) {
-                                    String key = uniqueKeywords.get(i) + "::" + uniqueKeywords.get(j);
-                                    edgeWeights.put(key, edgeWeights.getOrDefault(key, 0) + 1);
-                                }
-                            }
-                        }
-
-                        List<GraphEdgeDto> edges = edgeWeights.entrySet().stream()
-                                .map(entry -> {
-                                    String[] keys = entry.getKey().split("::");
-                                    return new GraphEdgeDto(keys[0], keys[1], entry.getValue());
-                                })
-                                .toList();
+    /**
+     * Haalt de voorberekende keyword graph van een gebruiker op.
+     *
+     * @param limit     Alleen de {@code limit} zwaarste keywords (en de edges daartussen), of {@code null} voor alles.
+     * @param minWeight Het minimale gewicht van nodes en edges.
+     */
+    public Mono<GraphDataDto> getKeywordGraphData(UUID userId, Integer limit, int minWeight) {
+        return keywordGraphService.getGraph(userId, limit, minWeight);
+    }
 
-                        return new GraphDataDto(nodes, edges);
-                    });
-                });
+    /**
+     * Streamt de keyword graph van een gebruiker: eerst de nodes, daarna de edges.
+     */
+    public Flux<GraphElementDto> streamKeywordGraphData(UUID userId, Integer limit, int minWeight) {
+        return keywordGraphService.streamGraph(userId, limit, minWeight);
     }
 
-    private Mono<LogSection> parseAndSaveLinks(LogSection section) {
+    private List<LogEntityLink> parseLinks(LogSection section, UUID userId) {
         log.debug("Parsing links for sectionId: {}", section.getId());
-        Matcher matcher = LINK_PATTERN.matcher(section.getSummary());
         List<LogEntityLink> linksToSave = new ArrayList<>();
+        if (section.getSummary() == null) {
+            return linksToSave;
+        }
+        Matcher matcher = LINK_PATTERN.matcher(section.getSummary());
 
         while (matcher.find()) {
             try {
@@ -293,167 +329,25 @@ public class LogbookService {
                 LogEntityLink link = new LogEntityLink();
                 link.setSourceEntityType(EntityType.LOG_SECTION);
                 link.setSourceEntityId(section.getId().toString());
+                link.setSourceId(section.getId());
+                link.setUserId(userId);
                 link.setAnchorText(anchorText);
                 link.setTargetEntityType(targetType);
                 link.setTargetEntityId(targetId);
+                // Personen hebben een UUID, logs en secties een numeriek ID.
+                if (targetType == EntityType.PERSON) {
+                    link.setTargetUuid(UUID.fromString(targetId));
+                } else {
+                    link.setTargetId(Long.parseLong(targetId));
+                }
 
                 linksToSave.add(link);
             } catch (IllegalArgumentException e) {
-                log.warn("Invalid entity type found in link: '{}'. Skipping.", matcher.group(2));
+                log.warn("Invalid entity type or id found in link: '{}:{}'. Skipping.", matcher.group(2), matcher.group(3));
             }
         }
 
         log.debug("Found {} valid links to save for sectionId: {}", linksToSave.size(), section.getId());
-        if (linksToSave.isEmpty()) {
-            return Mono.just(section);
-        }
-        return logEntityLinkRepository.saveAll(linksToSave)
-                .doOnComplete(() -> log.debug("Successfully saved {} links for sectionId: {}", linksToSave.size(), section.getId()))
-                .then(Mono.just(section));
-    }
-
-    private String generateSnippet(String summary, String anchorText) {
-        if (summary == null || anchorText == null) return "...";
-        int index = summary.indexOf(anchorText);
-        if (index == -1) return createSummaryPreview(summary);
-
-        int start = Math.max(0, index - 100);
-        int end = Math.min(summary.length(), index + anchorText.length() + 100);
-
-        String snippet = summary.substring(start, end);
-        if (start > 0) snippet = "..." + snippet;
-        if (end < summary.length()) snippet = snippet + "...";
-
-        return snippet;
-    }
-
-    private String createSummaryPreview(String summary) {
-        final int maxLength = 100;
-        if (summary == null || summary.length() <= maxLength) {
-            return summary;
-        }
-
-        // Zoek de laatste spatie vóór de maximale lengte om te voorkomen dat woorden worden afgekapt.
-        int lastSpace = summary.lastIndexOf(' ', maxLength);
-        if (lastSpace > 0) {
-            return summary.substring(0, lastSpace) + "...";
-        } else {
-            // Fallback voor het geval er geen spaties zijn in de eerste 100 tekens.
-            return summary.substring(0, maxLength) + "...";
-        }
-    }
-
-    private Mono<LinkPreviewDto> createOutgoingLinkPreview(LogEntityLink link) {
-        log.debug("Creating OUTGOING link preview for linkId: {}, type: {}", link.getId(), link.getTargetEntityType());
-
-        // Hier komt de magie: afhankelijk van het type doel, roepen we een andere methode aan.
-        switch (link.getTargetEntityType()) {
-            case DAILY_LOG: return createDailyLogOutgoingPreview(link);
-            case PERSON: return createPersonOutgoingPreview(link);
-            default: return createGenericPreview(link);
-        }
-    }
-
-    private Mono<LinkPreviewDto> createIncomingLinkPreview(LogEntityLink link) {
-        log.debug("Creating INCOMING link preview for linkId: {}, type: {}", link.getId(), link.getSourceEntityType());
-
-        switch (link.getSourceEntityType()) {
-            case LOG_SECTION: return createLogSectionIncomingPreview(link);
-            default: return createGenericPreview(link);
-        }
-    }
-
-    private Mono<LinkPreviewDto> createGenericPreview(LogEntityLink link) {
-        return Mono.just(new LinkPreviewDto(
-                null, link.getAnchorText(), "UNKNOWN", null, "0",
-                link.getAnchorText(), "Preview not implemented.", null
-        ));
-    }
-
-    private Mono<LinkPreviewDto> createDailyLogOutgoingPreview(LogEntityLink link) {
-        Mono<LogSection> sourceSectionMono = logSectionRepository.findById(Long.parseLong(link.getSourceEntityId()));
-        Mono<DailyLog> targetLogMono = dailyLogRepository.findById(Long.parseLong(link.getTargetEntityId()));
-        Mono<String> targetSnippetMono = bestTargetSnippetForDailyLog(Long.parseLong(link.getTargetEntityId()), link.getAnchorText());
-
-        return Mono.zip(sourceSectionMono, targetLogMono, targetSnippetMono)
-                .map(tuple -> {
-                    DailyLog targetLog = tuple.getT2();
-                    return new LinkPreviewDto(
-                            tuple.getT1().getSectionType(),
-                            link.getAnchorText(),
-                            link.getTargetEntityType().name(),
-                            null,
-                            link.getTargetEntityId(),
-                            targetLog.getLogDate().toString(),
-                            tuple.getT3(),
-                            "/api/logbook/by-date/" + targetLog.getLogDate()
-                    );
-                });
-    }
-
-    private Mono<LinkPreviewDto> createPersonOutgoingPreview(LogEntityLink link) {
-        Mono<LogSection> sourceSectionMono = logSectionRepository.findById(Long.parseLong(link.getSourceEntityId()));
-        Mono<Person> targetPersonMono = personRepository.findById(link.getTargetEntityId());
-
-        return Mono.zip(sourceSectionMono, targetPersonMono)
-                .map(tuple -> {
-                    Person targetPerson = tuple.getT2();
-                    return new LinkPreviewDto(
-                            tuple.getT1().getSectionType(),
-                            link.getAnchorText(),
-                            link.getTargetEntityType().name(),
-                            null,
-                            link.getTargetEntityId(),
-                            targetPerson.getFullName(),
-                            targetPerson.getShortBio(),
-                            "/api/persons/by-date/" + targetPerson.getId()
-                    );
-                })
-                .defaultIfEmpty(new LinkPreviewDto(
-                        null, link.getAnchorText(), EntityType.PERSON.name(), null, link.getTargetEntityId(),
-                        "Unknown Person", "Person not found.", null
-                ));
-    }
-
-
-
-    private Mono<LinkPreviewDto> createLogSectionIncomingPreview(LogEntityLink link) {
-        Mono<LogSection> sourceSectionMono = logSectionRepository.findById(Long.parseLong(link.getSourceEntityId()));
-        Mono<DailyLog> sourceLogMono = sourceSectionMono.flatMap(s -> dailyLogRepository.findById(s.getDailyLogId()));
-
-        return Mono.zip(sourceSectionMono, sourceLogMono)
-                .map(tuple -> {
-                    LogSection sourceSection = tuple.getT1();
-                    DailyLog sourceLog = tuple.getT2();
-                    return new LinkPreviewDto(
-                            null,
-                            link.getAnchorText(),
-                            link.getSourceEntityType().name(),
-                            sourceSection.getSectionType(),
-                            link.getSourceEntityId(),
-                            "From log on " + sourceLog.getLogDate(),
-                            generateSnippet(sourceSection.getSummary(), link.getAnchorText()),
-                            "/api/logbook/by-date/" + sourceLog.getLogDate()
-                    );
-                });
-    }
-
-    private Mono<String> bestTargetSnippetForDailyLog(Long targetLogId, String anchorText) {
-        return logSectionRepository.findByDailyLogId(targetLogId)
-                .collectList()
-                .map(sections -> {
-                    if (sections.isEmpty()) return anchorText;
-                    for (LogSection s : sections) {
-                        if (s.getSummary() != null && s.getSummary().contains(anchorText)) {
-                            return generateSnippet(s.getSummary(), anchorText);
-                        }
-                    }
-                    for (LogSection s : sections) {
-                        if (s.getSummary() != null && !s.getSummary().isBlank()) {
-                            return createSummaryPreview(s.getSummary());
-                        }
-                    }
-                    return anchorText;
-                });
+        return linksToSave;
     }
-}
\ No newline at end of file
+}
@@ -1,76 +1,125 @@
 package rp.fitkit.api.service.logbook;
 
-import ai.djl.Application;
-import ai.djl.inference.Predictor;
-import ai.djl.modality.Classifications;
-import ai.djl.repository.zoo.Criteria;
-import ai.djl.repository.zoo.ZooModel;
-import ai.djl.training.util.ProgressBar;
-
-import jakarta.annotation.PostConstruct;
-import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import rp.fitkit.api.dto.logbook.LogSectionDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import rp.fitkit.api.dto.logbook.MoodStatsDto;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.logbook.MoodCategory;
+import rp.fitkit.api.model.logbook.MoodClassification;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
 
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class MoodAnalysisService {
 
-    private ZooModel<String, Classifications> model;
-    private Predictor<String, Classifications> predictor;
-
     private static final Pattern DIGITS = Pattern.compile("^\\d+$");
 
-    @PostConstruct
-    public void init() throws Exception {
-        log.info("Loading sentiment model...");
+    private final MoodInferenceEngine moodInferenceEngine;
+    private final LogSectionRepository logSectionRepository;
 
-        Criteria<String, Classifications> criteria = Criteria.<String, Classifications>builder()
-                .optApplication(Application.NLP.TEXT_CLASSIFICATION)  // right app for sentiment
-                .setTypes(String.class, Classifications.class)
-                .optEngine("PyTorch")
-                .optModelUrls("djl://ai.djl.huggingface.pytorch/distilbert-base-uncased-finetuned-sst-2-english")
-                .optArgument("task", "text-classification")
-                .optProgress(new ProgressBar())
-                .build();
+    /**
+     * Aggregates the mood labels of the given sections. Labels are normally precomputed at write time;
+     * only sections whose classification is still pending are classified on the fly.
+     */
+    public Mono<MoodStatsDto> calculateMoodStats(List<LogSection> sections) {
+        if (sections == null || sections.isEmpty()) {
+            return Mono.just(new MoodStatsDto(0, 0, 0));
+        }
 
-        this.model = criteria.loadModel();
-        this.predictor = model.newPredictor();
+        return Flux.fromIterable(sections)
+                .filter(section -> hasValue(section.getMood()))
+                .flatMap(section -> section.getMoodLabel() != null
+                        ? Mono.just(new MoodClassification(section.getMoodLabel(), confidenceOf(section)))
+                        : categorizeMood(section.getMood()))
+                .collect(Collectors.groupingBy(MoodClassification::getCategory, () -> new EnumMap<>(MoodCategory.class), Collectors.counting()))
+                .map(this::toMoodStats);
+    }
 
-        log.info("Sentiment model loaded.");
+    /**
+     * Classifies a single mood. Numeric ratings (1-5 stars) are mapped directly; free text goes through
+     * the {@link MoodInferenceEngine}. Failures never propagate: an unclassifiable mood counts as neutral.
+     * Only meant for reading; use {@link #classifyAndStore} for anything that is persisted.
+     */
+    public Mono<MoodClassification> categorizeMood(Object mood) {
+        return classify(mood)
+                .onErrorResume(e -> {
+                    log.error("Failed to categorize mood: {}", mood, e);
+                    return Mono.just(MoodClassification.NEUTRAL);
+                });
     }
 
-    @PreDestroy
-    public void destroy() {
-        if (predictor != null) {
-            predictor.close();
+    /**
+     * Like {@link #categorizeMood}, but inference errors (queue full, timeout, model failure) are passed on.
+     */
+    private Mono<MoodClassification> classify(Object mood) {
+        log.debug("Categorizing mood input: '{}'", mood);
+
+        if (mood instanceof Number n) {
+            return Mono.just(starsToClassification(n.intValue()));
         }
-        if (model != null) {
-            model.close();
+
+        String text = mood.toString().trim();
+        if (text.isEmpty()) {
+            return Mono.just(MoodClassification.NEUTRAL);
         }
-        log.info("Sentiment analysis model closed.");
+
+        if (DIGITS.matcher(text).matches()) {
+            return Mono.just(starsToClassification(Integer.parseInt(text)));
+        }
+
+        return moodInferenceEngine.classify(text);
     }
 
-    public MoodStatsDto calculateMoodStats(List<LogSectionDto> sections) {
-        if (sections == null || sections.isEmpty()) {
-            return new MoodStatsDto(0, 0, 0);
+    /**
+     * Classifies the mood of a saved section and stores the label on its row, without making the caller wait.
+     */
+    public void classifyInBackground(LogSection section) {
+        classifyAndStore(section)
+                .subscribe(
+                        updated -> log.debug("Stored mood classification for sectionId: {} (updated: {})", section.getId(), updated),
+                        e -> log.warn("Could not store mood classification for sectionId: {}", section.getId(), e)
+                );
+    }
+
+    /**
+     * Classifies the mood of a section and stores the label and confidence on its row.
+     *
+     * @return A Mono emitting whether the row was updated. It is not updated when the section has no mood
+     * or when the mood was changed while it was being classified. If inference fails the Mono fails and the
+     * row keeps no label, so {@link MoodBackfillJob} picks it up again instead of storing a fake NEUTRAL.
+     */
+    public Mono<Boolean> classifyAndStore(LogSection section) {
+        if (!hasValue(section.getMood())) {
+            return Mono.just(false);
         }
+        return classify(section.getMood())
+                .flatMap(classification -> logSectionRepository.updateMoodClassification(
+                        section.getId(),
+                        section.getMood(),
+                        classification.getCategory().name(),
+                        classification.getConfidence()
+                ))
+                .map(updatedRows -> updatedRows > 0);
+    }
 
-        Map<String, Long> counts = sections.stream()
-                .map(LogSectionDto::getMood)
-                .filter(this::hasValue)
-                .collect(Collectors.groupingBy(this::categorizeMood, Collectors.counting()));
+    private double confidenceOf(LogSection section) {
+        return section.getMoodConfidence() != null ? section.getMoodConfidence() : 1.0;
+    }
 
-        long positive = counts.getOrDefault("Positive", 0L);
-        long neutral  = counts.getOrDefault("Neutral", 0L);
-        long negative = counts.getOrDefault("Negative", 0L);
+    private MoodStatsDto toMoodStats(Map<MoodCategory, Long> counts) {
+        long positive = counts.getOrDefault(MoodCategory.POSITIVE, 0L);
+        long neutral  = counts.getOrDefault(MoodCategory.NEUTRAL, 0L);
+        long negative = counts.getOrDefault(MoodCategory.NEGATIVE, 0L);
 
         log.debug("Final mood counts calculated: Positive={}, Neutral={}, Negative={}", positive, neutral, negative);
 
@@ -83,48 +132,15 @@ public class MoodAnalysisService {
         return true;
     }
 
-    private String categorizeMood(Object mood) {
-        log.debug("Categorizing mood input: '{}'", mood);
-
-        try {
-            if (mood instanceof Number n) {
-                return starsToLabel(n.intValue());
-            }
-
-            String text = mood.toString().trim();
-            if (text.isEmpty()) {
-                return "Neutral";
-            }
-
-            if (DIGITS.matcher(text).matches()) {
-                return starsToLabel(Integer.parseInt(text));
-            }
-
-            Classifications.Classification result = predictor.predict(text).best();
-            String rawLabel = result.getClassName();
-
-            String finalCategory = switch (rawLabel.toUpperCase()) {
-                case "POSITIVE" -> "Positive";
-                case "NEGATIVE" -> "Negative";
-                default -> "Neutral";
-            };
-
-            log.debug("Model predicted raw label: '{}', Mapped to category: '{}'", rawLabel, finalCategory);
-            return finalCategory;
-        } catch (Exception e) {
-            log.error("Failed to categorize mood: {}", mood, e);
-            return "Neutral";
-        }
-    }
-
-    private String starsToLabel(int stars) {
+    private MoodClassification starsToClassification(int stars) {
         log.debug("Mapping numeric mood rating: {}", stars);
-        if (stars <= 0) return "Neutral";
-        return switch (stars) {
-            case 1, 2 -> "Negative";
-            case 3 -> "Neutral";
-            case 4, 5 -> "Positive";
-            default -> "Positive";
+        if (stars <= 0) return MoodClassification.NEUTRAL;
+        MoodCategory category = switch (stars) {
+            case 1, 2 -> MoodCategory.NEGATIVE;
+            case 3 -> MoodCategory.NEUTRAL;
+            case 4, 5 -> MoodCategory.POSITIVE;
+            default -> MoodCategory.POSITIVE;
         };
+        return new MoodClassification(category, 1.0);
     }
 }
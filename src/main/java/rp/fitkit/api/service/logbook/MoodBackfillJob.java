@@ -0,0 +1,91 @@
+package rp.fitkit.api.service.logbook;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
+
+import java.util.List;
+
+/**
+ * Classifies the moods of log sections that were saved before the classification was stored at write time.
+ * <p>
+ * Rows are read in chunks ordered by id (keyset, so each chunk is an index range scan) and the sections
+ * within a chunk are classified in parallel. The inference engine groups those concurrent requests into
+ * batches for the model.
+ */
+@Component
+@Slf4j
+public class MoodBackfillJob {
+
+    private final LogSectionRepository logSectionRepository;
+    private final MoodAnalysisService moodAnalysisService;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public MoodBackfillJob(
+            LogSectionRepository logSectionRepository,
+            MoodAnalysisService moodAnalysisService,
+            @Value("${fitkit.api.mood.backfill.enabled:true}") boolean enabled,
+            @Value("${fitkit.api.mood.backfill.chunk-size:200}") int chunkSize,
+            @Value("${fitkit.api.mood.backfill.parallelism:8}") int parallelism
+    ) {
+        this.logSectionRepository = logSectionRepository;
+        this.moodAnalysisService = moodAnalysisService;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Mood backfill is disabled.");
+            return;
+        }
+        run().subscribe(
+                count -> log.info("Mood backfill finished. Classified {} log sections.", count),
+                e -> log.error("Mood backfill failed.", e)
+        );
+    }
+
+    /**
+     * Classifies all sections that have a mood but no stored label yet.
+     *
+     * @return A Mono emitting the number of sections that were updated.
+     */
+    public Mono<Long> run() {
+        log.info("Starting mood backfill (chunk size {}, parallelism {}).", chunkSize, parallelism);
+        return nextChunk(0L)
+                .expand(chunk -> chunk.size() < chunkSize
+                        ? Mono.empty()
+                        : nextChunk(chunk.get(chunk.size() - 1).getId()))
+                .concatMap(this::classifyChunk)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<List<LogSection>> nextChunk(Long afterId) {
+        return logSectionRepository.findUnclassifiedMoodsAfter(afterId, chunkSize)
+                .collectList()
+                .filter(chunk -> !chunk.isEmpty());
+    }
+
+    private Mono<Long> classifyChunk(List<LogSection> chunk) {
+        return Flux.fromIterable(chunk)
+                .flatMap(section -> moodAnalysisService.classifyAndStore(section)
+                        .onErrorResume(e -> {
+                            log.warn("Could not backfill mood for sectionId: {}", section.getId(), e);
+                            return Mono.just(false);
+                        }), parallelism)
+                .filter(Boolean::booleanValue)
+                .count()
+                .doOnNext(count -> log.debug("Backfilled {} of {} moods up to sectionId: {}",
+                        count, chunk.size(), chunk.get(chunk.size() - 1).getId()));
+    }
+}
@@ -0,0 +1,262 @@
+package rp.fitkit.api.service.logbook;
+
+import ai.djl.Application;
+import ai.djl.inference.Predictor;
+import ai.djl.modality.Classifications;
+import ai.djl.repository.zoo.Criteria;
+import ai.djl.repository.zoo.ZooModel;
+import ai.djl.training.util.ProgressBar;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import rp.fitkit.api.model.logbook.MoodCategory;
+import rp.fitkit.api.model.logbook.MoodClassification;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Runs sentiment inference for free-text moods off the request threads.
+ * <p>
+ * Requests are queued and grouped into micro-batches, which are executed with {@code batchPredict} on a
+ * dedicated scheduler. Every batch borrows one predictor from a fixed-size pool, because a DJL
+ * {@link Predictor} is not thread-safe. Results are kept in a size-bounded cache keyed by the normalized
+ * mood text, so the same mood is never sent to the model twice while it is cached.
+ */
+@Component
+@Slf4j
+public class MoodInferenceEngine {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MeterRegistry meterRegistry;
+    private final int predictorPoolSize;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final int queueCapacity;
+
+    private final AsyncCache<String, MoodClassification> cache;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Sinks.Many<PendingClassification> requests = Sinks.many().unicast().onBackpressureBuffer();
+
+    private ZooModel<String, Classifications> model;
+    private BlockingQueue<Predictor<String, Classifications>> predictors;
+    private Scheduler inferenceScheduler;
+    private Disposable batchSubscription;
+    private DistributionSummary batchSizeSummary;
+    private Timer batchTimer;
+
+    public MoodInferenceEngine(
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.mood.inference.predictor-pool-size:2}") int predictorPoolSize,
+            @Value("${fitkit.api.mood.inference.max-batch-size:16}") int maxBatchSize,
+            @Value("${fitkit.api.mood.inference.max-batch-delay-ms:10}") long maxBatchDelayMs,
+            @Value("${fitkit.api.mood.inference.queue-capacity:512}") int queueCapacity,
+            @Value("${fitkit.api.mood.inference.cache-size:10000}") long cacheSize
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.predictorPoolSize = predictorPoolSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = Duration.ofMillis(maxBatchDelayMs);
+        this.queueCapacity = queueCapacity;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @PostConstruct
+    public void init() throws Exception {
+        log.info("Loading sentiment model...");
+
+        Criteria<String, Classifications> criteria = Criteria.<String, Classifications>builder()
+                .optApplication(Application.NLP.TEXT_CLASSIFICATION)  // right app for sentiment
+                .setTypes(String.class, Classifications.class)
+                .optEngine("PyTorch")
+                .optModelUrls("djl://ai.djl.huggingface.pytorch/distilbert-base-uncased-finetuned-sst-2-english")
+                .optArgument("task", "text-classification")
+                .optProgress(new ProgressBar())
+                .build();
+
+        this.model = criteria.loadModel();
+        List<Predictor<String, Classifications>> pool = new ArrayList<>(predictorPoolSize);
+        for (int i = 0; i < predictorPoolSize; i++) {
+            pool.add(model.newPredictor());
+        }
+        start(pool);
+
+        log.info("Sentiment model loaded with {} predictors (max batch size {}, max batch delay {} ms).",
+                predictorPoolSize, maxBatchSize, maxBatchDelay.toMillis());
+    }
+
+    /**
+     * Starts the batching pipeline on the given predictors. Separate from {@link #init()} so the pipeline can be
+     * run without loading the model.
+     */
+    void start(List<Predictor<String, Classifications>> pool) {
+        this.predictors = new ArrayBlockingQueue<>(pool.size(), false, pool);
+        registerMetrics();
+        this.inferenceScheduler = Schedulers.newBoundedElastic(pool.size(), queueCapacity, "mood-inference");
+        // Fair bufferTimeout only cuts a batch when flatMap can take it; the unfair variant fails with an
+        // overflow error as soon as all predictors are busy while a batch fills up or the timer fires.
+        this.batchSubscription = requests.asFlux()
+                .bufferTimeout(maxBatchSize, maxBatchDelay, true)
+                .doOnNext(batch -> queueDepth.addAndGet(-batch.size()))
+                .flatMap(batch -> Mono.fromRunnable(() -> runBatch(batch))
+                        .subscribeOn(inferenceScheduler)
+                        .onErrorResume(e -> {
+                            // One broken batch must not end the only subscription; its callers get the error.
+                            log.error("Mood inference batch of {} failed.", batch.size(), e);
+                            batch.forEach(pending -> pending.result().completeExceptionally(e));
+                            return Mono.empty();
+                        }), pool.size())
+                .subscribe(
+                        null,
+                        e -> log.error("Mood inference pipeline stopped; new moods will not be classified.", e)
+                );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (batchSubscription != null) {
+            batchSubscription.dispose();
+        }
+        if (inferenceScheduler != null) {
+            inferenceScheduler.dispose();
+        }
+        if (predictors != null) {
+            predictors.forEach(Predictor::close);
+            predictors.clear();
+        }
+        if (model != null) {
+            model.close();
+        }
+        log.info("Sentiment analysis model closed.");
+    }
+
+    /**
+     * Classifies a free-text mood. Cached results are returned immediately; everything else is queued for
+     * the next micro-batch. Identical moods that are requested while a prediction is in flight share it.
+     *
+     * @param text The raw mood text.
+     * @return A Mono with the classification, or an error if the model failed or the queue is full.
+     */
+    public Mono<MoodClassification> classify(String text) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return Mono.just(MoodClassification.NEUTRAL);
+        }
+        return Mono.defer(() -> {
+            CompletableFuture<MoodClassification> future = cache.get(key, (k, executor) -> enqueue(k));
+            // suppressCancel: one cancelled caller must not cancel a prediction that others are waiting on.
+            // Caffeine drops a failed future only after this caller has seen it, so drop it here: a retry must
+            // reach the model again instead of the cached failure.
+            return Mono.fromFuture(future, true)
+                    .doOnError(e -> cache.asMap().remove(key, future));
+        });
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        // The model is uncased, so lower-casing does not change its prediction but does improve cache hits.
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private CompletableFuture<MoodClassification> enqueue(String text) {
+        if (queueDepth.incrementAndGet() > queueCapacity) {
+            queueDepth.decrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Mood inference queue is full."));
+        }
+
+        CompletableFuture<MoodClassification> result = new CompletableFuture<>();
+        try {
+            requests.emitNext(new PendingClassification(text, result), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        } catch (Sinks.EmissionException e) {
+            queueDepth.decrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void runBatch(List<PendingClassification> batch) {
+        batchSizeSummary.record(batch.size());
+
+        List<String> texts = new ArrayList<>(batch.size());
+        for (PendingClassification pending : batch) {
+            texts.add(pending.text());
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Predictor<String, Classifications> predictor = null;
+        try {
+            predictor = predictors.take();
+            List<Classifications> results = predictor.batchPredict(texts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(toClassification(results.get(i).best()));
+            }
+            log.debug("Classified a batch of {} moods.", batch.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        } catch (Exception e) {
+            log.error("Failed to classify a batch of {} moods.", batch.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        } finally {
+            if (predictor != null) {
+                predictors.offer(predictor);
+            }
+            sample.stop(batchTimer);
+        }
+    }
+
+    private MoodClassification toClassification(Classifications.Classification best) {
+        MoodCategory category = switch (best.getClassName().toUpperCase(Locale.ROOT)) {
+            case "POSITIVE" -> MoodCategory.POSITIVE;
+            case "NEGATIVE" -> MoodCategory.NEGATIVE;
+            default -> MoodCategory.NEUTRAL;
+        };
+        log.debug("Model predicted raw label: '{}', Mapped to category: '{}'", best.getClassName(), category);
+        return new MoodClassification(category, best.getProbability());
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("mood.inference.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Moods waiting to be picked up by a batch")
+                .register(meterRegistry);
+        Gauge.builder("mood.inference.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .description("Share of mood lookups answered from the cache")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("mood.inference.batch.size")
+                .description("Number of moods sent to the model in one batchPredict call")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("mood.inference.batch.latency")
+                .description("Time spent waiting for a predictor and running one batch")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "moodInference");
+    }
+
+    private record PendingClassification(String text, CompletableFuture<MoodClassification> result) {
+    }
+}
@@ -0,0 +1,76 @@
+package rp.fitkit.api.service.logbook;
+
+import org.springframework.stereotype.Component;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.root.SectionType;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds section content that was accepted by an autosave but is not written to the database yet.
+ * Reads overlay this content on top of the stored sections, so a client always sees its latest save. This covers
+ * the sections of a log and the history previews; full-text search only sees content once it is written.
+ */
+@Component
+public class PendingSectionWrites {
+
+    public record Key(Long dailyLogId, SectionType sectionType) {
+    }
+
+    public record PendingWrite(String summary, String mood) {
+    }
+
+    private final Map<Key, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    void put(Key key, PendingWrite write) {
+        pending.put(key, write);
+    }
+
+    /**
+     * Removes the pending content, but only if it was not replaced by a newer save in the meantime.
+     */
+    void remove(Key key, PendingWrite write) {
+        pending.remove(key, write);
+    }
+
+    PendingWrite get(Key key) {
+        return pending.get(key);
+    }
+
+    /**
+     * @return Whether any section of the daily log has pending content. Cheap: only sections saved within the
+     * last autosave window are held here.
+     */
+    public boolean hasPendingFor(Long dailyLogId) {
+        for (Key key : pending.keySet()) {
+            if (key.dailyLogId().equals(dailyLogId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the section with its pending content applied, or the section itself if nothing is pending.
+     */
+    public LogSection overlay(LogSection section) {
+        PendingWrite write = pending.get(new Key(section.getDailyLogId(), section.getSectionType()));
+        if (write == null) {
+            return section;
+        }
+        LogSection copy = new LogSection();
+        copy.setId(section.getId());
+        copy.setDailyLogId(section.getDailyLogId());
+        copy.setSectionType(section.getSectionType());
+        copy.setSummary(write.summary());
+        copy.setMood(write.mood());
+        // The stored label belongs to the stored mood; a pending mood is classified on the fly when needed.
+        if (Objects.equals(section.getMood(), write.mood())) {
+            copy.setMoodLabel(section.getMoodLabel());
+            copy.setMoodConfidence(section.getMoodConfidence());
+        }
+        return copy;
+    }
+}
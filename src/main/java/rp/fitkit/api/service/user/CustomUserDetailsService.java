@@ -20,8 +20,8 @@ public class CustomUserDetailsService implements ReactiveUserDetailsService {
     public Mono<UserDetails> findByUsername(String username) {
         return userRepository
 
-                .findByUsername(username)
-                .switchIfEmpty(Mono.defer(() -> userRepository.findByEmail(username)))
+                .findByUsernameOrEmail(username, username)
+                .reduce((first, second) -> username.equals(second.getUsername()) ? second : first)
 
                 .flatMap(user ->
                         userRepository.findRolesByUserId(user.getId())
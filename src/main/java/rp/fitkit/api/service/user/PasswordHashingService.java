@@ -0,0 +1,164 @@
+package rp.fitkit.api.service.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.exception.ServiceOverloadedException;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification off the reactive threads.
+ * <p>
+ * Every hash costs tens of milliseconds of CPU, which would stall an event loop. Work is handed to a fixed pool
+ * with a bounded queue; when the queue is full the call fails fast with a {@link ServiceOverloadedException}
+ * (503) instead of piling up latency. Each call is timed per operation, so slow logins and slow recovery flows
+ * can be told apart.
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    /**
+     * The maximum number of hashes one {@link #encodeAll} call runs at the same time.
+     */
+    static final int MAX_PARALLEL_PER_CALL = 3;
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final String dummyHash;
+
+    public PasswordHashingService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.security.hashing.pool-size:0}") int poolSize,
+            @Value("${fitkit.api.security.hashing.queue-capacity:64}") int queueCapacity
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        // Hashed with the configured encoder, so checking against it costs exactly as much as a real check.
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        Gauge.builder("auth.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.hashing.rejected")
+                .description("Hashing tasks refused because the queue was full")
+                .register(meterRegistry);
+        log.info("Password hashing pool started with {} threads and a queue of {}.", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hashes a raw password.
+     *
+     * @param rawPassword The password to hash.
+     * @param operation   The name under which the latency is recorded, e.g. {@code register}.
+     * @return A Mono with the encoded hash.
+     */
+    public Mono<String> encode(String rawPassword, String operation) {
+        return submit(operation, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Hashes several raw values, at most {@value #MAX_PARALLEL_PER_CALL} at a time, so one batch (e.g. a set of
+     * recovery codes) cannot fill the worker pool and queue on its own and starve logins. If the queue cannot
+     * take a task the whole call fails.
+     *
+     * @param rawValues The values to hash.
+     * @param operation The name under which the latency of each hash is recorded.
+     * @return A Mono with the hashes, in the order of the input.
+     */
+    public Mono<List<String>> encodeAll(List<String> rawValues, String operation) {
+        return Flux.fromIterable(rawValues)
+                .flatMapSequential(raw -> encode(raw, operation), MAX_PARALLEL_PER_CALL)
+                .collectList();
+    }
+
+    /**
+     * Checks a raw value against a stored hash.
+     *
+     * @param rawPassword The value to check.
+     * @param encoded     The stored hash.
+     * @param operation   The name under which the latency is recorded, e.g. {@code login}.
+     * @return A Mono emitting whether the value matches.
+     */
+    public Mono<Boolean> matches(String rawPassword, String encoded, String operation) {
+        return submit(operation, () -> passwordEncoder.matches(rawPassword, encoded));
+    }
+
+    /**
+     * Runs a password check that can never succeed. Used when there is no user to check against, so a
+     * login for an unknown name takes as long as one with a wrong password.
+     *
+     * @param rawPassword The submitted password.
+     * @param operation   The name under which the latency is recorded; use the same one as for real checks.
+     * @return A Mono emitting {@code false}.
+     */
+    public Mono<Boolean> matchesNothing(String rawPassword, String operation) {
+        return submit(operation, () -> {
+            passwordEncoder.matches(rawPassword, dummyHash);
+            return false;
+        });
+    }
+
+    private <T> Mono<T> submit(String operation, Callable<T> task) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    try {
+                        result.complete(task.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                return Mono.error(new ServiceOverloadedException("Password hashing queue is full."));
+            }
+            return Mono.fromFuture(result)
+                    .doFinally(signal -> sample.stop(timerFor(operation)));
+        });
+    }
+
+    private Timer timerFor(String operation) {
+        return timers.computeIfAbsent(operation, op -> Timer.builder("auth.password.hashing.latency")
+                .description("Time from submitting a hashing task until it completes, including queueing")
+                .tag("operation", op)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,205 @@
+package rp.fitkit.api.service.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.RefreshTokenFamily;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.repository.user.RefreshTokenFamilyRepository;
+import rp.fitkit.api.util.JwtUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens per family (one family per login).
+ * <p>
+ * Every refresh replaces the token of the family; presenting a token that has already been replaced means
+ * it leaked, so the whole family is revoked and the user has to log in again. The database holds the SHA-256
+ * of the current token ID per family. Active families are also cached here, so a revoked family is refused
+ * without a query and a valid rotation costs exactly one conditional {@code UPDATE}. A cache that is stale
+ * because another instance rotated or revoked the family only makes that {@code UPDATE} miss, after which the
+ * row is read to decide; the database always has the last word.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final JwtUtil jwtUtil;
+    private final Cache<UUID, FamilyState> families;
+    private final Counter reuseDetected;
+
+    public RefreshTokenService(
+            RefreshTokenFamilyRepository familyRepository,
+            JwtUtil jwtUtil,
+            MeterRegistry meterRegistry,
+            @Value("${fitkit.api.jwt.refresh-token-expiration-ms}") long refreshTokenExpirationMs,
+            @Value("${fitkit.api.jwt.refresh-families.cache-max-size:50000}") long cacheMaxSize
+    ) {
+        this.familyRepository = familyRepository;
+        this.jwtUtil = jwtUtil;
+        // Every write stores a token with a full lifetime, so an entry is useless once that lifetime has passed.
+        this.families = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(refreshTokenExpirationMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, families, "refreshTokenFamilies");
+        this.reuseDetected = Counter.builder("auth.refresh.reuse.detected")
+                .description("Refresh tokens presented after they had been rotated; their family was revoked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a new family for a login and returns its first refresh token.
+     *
+     * @param user The user who logged in, with its authorities loaded.
+     * @return A Mono with the compact refresh token.
+     */
+    public Mono<String> issue(User user) {
+        UUID familyId = UUID.randomUUID();
+        JwtUtil.IssuedToken issued = jwtUtil.generateRefreshToken(user, familyId);
+        String hash = hashTokenId(issued.id());
+        RefreshTokenFamily family = new RefreshTokenFamily(familyId, user.getId(), hash, issued.expiresAt());
+        return familyRepository.save(family)
+                .doOnSuccess(saved -> families.put(familyId, new FamilyState(user.getId(), hash, false)))
+                .thenReturn(issued.token());
+    }
+
+    /**
+     * Replaces a refresh token with the next one of its family.
+     *
+     * @param claims The claims of a refresh token with a valid signature.
+     * @param user   The owner of the token, with its authorities loaded.
+     * @return A Mono with the new refresh token, or a {@link BadCredentialsException} if the token is not
+     * the current one of an active family.
+     */
+    public Mono<String> rotate(Claims claims, User user) {
+        UUID familyId = familyIdOf(claims);
+        if (familyId == null || claims.getId() == null) {
+            return Mono.error(new BadCredentialsException("Refresh token does not belong to a token family."));
+        }
+        String presentedHash = hashTokenId(claims.getId());
+
+        FamilyState cached = families.getIfPresent(familyId);
+        if (cached != null && cached.revoked()) {
+            return Mono.error(new BadCredentialsException("Refresh token family has been revoked."));
+        }
+        if (cached != null && !cached.currentHash().equals(presentedHash)) {
+            // Either an old token is being replayed, or another instance rotated the family; the row decides.
+            return rotateAfterCheckingDatabase(familyId, presentedHash, user);
+        }
+
+        return compareAndRotate(familyId, presentedHash, user)
+                .switchIfEmpty(Mono.defer(() -> rotateAfterCheckingDatabase(familyId, presentedHash, user)));
+    }
+
+    /**
+     * Revokes the family of a refresh token, e.g. on logout. Tokens without a family are ignored.
+     *
+     * @param claims The claims of a refresh token with a valid signature.
+     * @return A Mono that completes when the family is revoked.
+     */
+    public Mono<Void> revoke(Claims claims) {
+        UUID familyId = familyIdOf(claims);
+        if (familyId == null) {
+            return Mono.empty();
+        }
+        return revokeFamily(familyId);
+    }
+
+    /**
+     * Revokes every family of a user, e.g. after a password reset.
+     *
+     * @param userId The ID of the user.
+     * @return A Mono that completes when all families are revoked.
+     */
+    public Mono<Void> revokeAllForUser(UUID userId) {
+        return familyRepository.revokeAllByUserId(userId)
+                .doOnSuccess(count -> {
+                    // Rare enough to scan; dropped entries are reloaded from the database as revoked.
+                    families.asMap().values().removeIf(state -> state.userId().equals(userId));
+                    log.debug("Revoked {} refresh token families of user {}.", count, userId);
+                })
+                .then();
+    }
+
+    private Mono<String> compareAndRotate(UUID familyId, String expectedHash, User user) {
+        JwtUtil.IssuedToken next = jwtUtil.generateRefreshToken(user, familyId);
+        String nextHash = hashTokenId(next.id());
+        return familyRepository.rotate(familyId, expectedHash, nextHash, next.expiresAt(), Instant.now())
+                .filter(updated -> updated > 0)
+                .map(updated -> {
+                    families.put(familyId, new FamilyState(user.getId(), nextHash, false));
+                    return next.token();
+                });
+    }
+
+    private Mono<String> rotateAfterCheckingDatabase(UUID familyId, String presentedHash, User user) {
+        return familyRepository.findById(familyId)
+                .switchIfEmpty(Mono.error(new BadCredentialsException("Unknown refresh token family.")))
+                .flatMap(family -> {
+                    if (family.isRevoked()) {
+                        families.put(familyId, new FamilyState(family.getUserId(), family.getCurrentTokenHash(), true));
+                        return Mono.error(new BadCredentialsException("Refresh token family has been revoked."));
+                    }
+                    if (!family.getUserId().equals(user.getId())) {
+                        return Mono.error(new BadCredentialsException("Refresh token family belongs to another user."));
+                    }
+                    if (!family.getCurrentTokenHash().equals(presentedHash)) {
+                        reuseDetected.increment();
+                        log.warn("Refresh token reuse detected for family {} of user {}. Revoking the family.",
+                                familyId, family.getUserId());
+                        return revokeFamily(familyId)
+                                .then(Mono.error(new BadCredentialsException("Refresh token has already been used.")));
+                    }
+                    return compareAndRotate(familyId, presentedHash, user)
+                            .switchIfEmpty(Mono.error(new BadCredentialsException("Refresh token was rotated concurrently.")));
+                });
+    }
+
+    private Mono<Void> revokeFamily(UUID familyId) {
+        return familyRepository.revoke(familyId)
+                .doOnSuccess(count -> families.asMap().computeIfPresent(familyId,
+                        (id, state) -> new FamilyState(state.userId(), state.currentHash(), true)))
+                .then();
+    }
+
+    private static UUID familyIdOf(Claims claims) {
+        String familyId = claims.get(JwtUtil.CLAIM_FAMILY_ID, String.class);
+        try {
+            return familyId != null ? UUID.fromString(familyId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes a token ID for storage, so a leaked table cannot be matched against tokens that were issued.
+     */
+    static String hashTokenId(String tokenId) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(tokenId.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record FamilyState(UUID userId, String currentHash, boolean revoked) {
+    }
+}
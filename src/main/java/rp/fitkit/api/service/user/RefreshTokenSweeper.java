@@ -0,0 +1,88 @@
+package rp.fitkit.api.service.user;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.repository.user.RefreshTokenFamilyRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Periodically deletes refresh token families whose last token has expired.
+ * <p>
+ * Rows are deleted in bounded batches through the index on {@code expires_at}; a run keeps going until a
+ * batch comes back smaller than the batch size, so a backlog is cleared in one run without one huge delete.
+ */
+@Component
+@Slf4j
+public class RefreshTokenSweeper {
+
+    private final RefreshTokenFamilyRepository familyRepository;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int batchSize;
+    private Disposable schedule;
+
+    public RefreshTokenSweeper(
+            RefreshTokenFamilyRepository familyRepository,
+            @Value("${fitkit.api.jwt.refresh-families.sweeper.enabled:true}") boolean enabled,
+            @Value("${fitkit.api.jwt.refresh-families.sweeper.interval-ms:3600000}") long intervalMs,
+            @Value("${fitkit.api.jwt.refresh-families.sweeper.batch-size:500}") int batchSize
+    ) {
+        this.familyRepository = familyRepository;
+        this.enabled = enabled;
+        this.interval = Duration.ofMillis(intervalMs);
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Refresh token sweeper is disabled.");
+            return;
+        }
+        schedule = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> run()
+                        .onErrorResume(e -> {
+                            log.error("Refresh token sweep failed.", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    /**
+     * Deletes all families that expired before now.
+     *
+     * @return A Mono emitting the number of deleted families.
+     */
+    public Mono<Long> run() {
+        Instant now = Instant.now();
+        return deleteBatch(now)
+                .expand(deleted -> deleted < batchSize ? Mono.empty() : deleteBatch(now))
+                .reduce(0L, Long::sum)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("Refresh token sweep deleted {} expired families.", total);
+                    }
+                });
+    }
+
+    private Mono<Long> deleteBatch(Instant now) {
+        return familyRepository.deleteExpired(now, batchSize).map(Integer::longValue);
+    }
+}
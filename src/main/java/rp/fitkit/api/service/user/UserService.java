@@ -1,10 +1,11 @@
 package rp.fitkit.api.service.user;
 
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -13,65 +14,97 @@ import rp.fitkit.api.dto.auth.*;
 import rp.fitkit.api.exception.UserAlreadyExistsException;
 import rp.fitkit.api.model.user.PasswordRecoveryCode;
 import rp.fitkit.api.model.user.User;
-import rp.fitkit.api.model.user.UserRole;
 import rp.fitkit.api.repository.user.RecoveryCodeRepository;
 import rp.fitkit.api.repository.user.UserRepository;
-import rp.fitkit.api.repository.user.UserRoleRepository;
+import rp.fitkit.api.security.PrincipalCache;
+import rp.fitkit.api.security.TokenDenyList;
+import rp.fitkit.api.security.UnknownLoginCache;
 import rp.fitkit.api.util.JwtUtil;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class UserService {
 
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+    private static final int RECOVERY_CODE_COUNT = 10;
+
     private final UserRepository userRepository;
-    private final UserRoleRepository userRoleRepository;
     private final RecoveryCodeRepository recoveryCodeRepository;
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
+    private final TokenDenyList tokenDenyList;
+    private final RefreshTokenService refreshTokenService;
+    private final UnknownLoginCache unknownLoginCache;
+    // Thread-safe and seeded once; creating one per call costs a seed read every time.
+    private final SecureRandom secureRandom = new SecureRandom();
 
     @Autowired
     public UserService(
             UserRepository userRepository,
-            UserRoleRepository userRoleRepository,
             RecoveryCodeRepository recoveryCodeRepository,
-            PasswordEncoder passwordEncoder,
-            JwtUtil jwtUtil
+            PasswordHashingService passwordHashingService,
+            JwtUtil jwtUtil,
+            PrincipalCache principalCache,
+            TokenDenyList tokenDenyList,
+            RefreshTokenService refreshTokenService,
+            UnknownLoginCache unknownLoginCache
     ) {
         this.userRepository = userRepository;
-        this.userRoleRepository = userRoleRepository;
         this.recoveryCodeRepository = recoveryCodeRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
+        this.tokenDenyList = tokenDenyList;
+        this.refreshTokenService = refreshTokenService;
+        this.unknownLoginCache = unknownLoginCache;
     }
 
     public Mono<LoginResponseDto> registerUser(UserRegistrationDto registrationDto) {
-        return userRepository.findByUsername(registrationDto.getUsername())
-                .flatMap(existingUser -> Mono.error(new UserAlreadyExistsException(
-                        "Username '" + registrationDto.getUsername() + "' is al in gebruik.")))
-                .then(userRepository.findByEmail(registrationDto.getEmail()))
-                .flatMap(existingUser -> Mono.error(new UserAlreadyExistsException(
-                        "Email '" + registrationDto.getEmail() + "' is al geregistreerd.")))
-                .then(Mono.defer(() -> {
-                    String hashedPassword = passwordEncoder.encode(registrationDto.getPassword());
+        return userRepository.findByUsernameOrEmail(registrationDto.getUsername(), registrationDto.getEmail())
+                .collectList()
+                .flatMap(existingUsers -> {
+                    if (existingUsers.stream().anyMatch(user -> user.getUsername().equals(registrationDto.getUsername()))) {
+                        return Mono.error(new UserAlreadyExistsException(
+                                "Username '" + registrationDto.getUsername() + "' is al in gebruik."));
+                    }
+                    if (!existingUsers.isEmpty()) {
+                        return Mono.error(new UserAlreadyExistsException(
+                                "Email '" + registrationDto.getEmail() + "' is al geregistreerd."));
+                    }
+                    return passwordHashingService.encode(registrationDto.getPassword(), "register");
+                })
+                .flatMap(hashedPassword -> {
                     User newUser = new User(
                             registrationDto.getUsername(),
                             registrationDto.getEmail(),
                             hashedPassword
                     );
 
-                    return userRepository.save(newUser)
-                            .flatMap(savedUser -> userRoleRepository
-                                    .save(new UserRole(savedUser.getId(), "ROLE_USER"))
-                                    .thenReturn(savedUser)
-                            )
-                            .flatMap(this::createLoginResponse);
-                }));
+                    // Gebruiker en rol in één statement; een gelijktijdige registratie met dezelfde naam
+                    // loopt hier op de unique constraint.
+                    return userRepository.insertWithRole(newUser, DEFAULT_ROLE)
+                            .onErrorMap(DataIntegrityViolationException.class, e -> new UserAlreadyExistsException(
+                                    "Username of email is al in gebruik."))
+                            .then(Mono.defer(() -> {
+                                unknownLoginCache.forget(newUser.getUsername(), newUser.getEmail());
+                                // Written with plain SQL, so the save callback does not run; a subject that
+                                // resolved to another user by email now resolves to this username.
+                                principalCache.invalidate(newUser);
+                                return createLoginResponse(newUser, List.of(DEFAULT_ROLE));
+                            }));
+                });
     }
 
     /**
@@ -81,21 +114,28 @@ public class UserService {
      * @return A Mono containing the complete LoginResponseDto.
      */
     private Mono<LoginResponseDto> createLoginResponse(User user) {
-        return userRoleRepository.findByUserId(user.getId())
-                .map(UserRole::getRoleName)
+        return userRepository.findRolesByUserId(user.getId())
                 .collectList()
-                .map(roles -> {
-                    user.setAuthoritiesFromRoles(roles);
-                    String accessToken = jwtUtil.generateAccessToken(user);
-                    String refreshToken = jwtUtil.generateRefreshToken(user);
-                    UserResponseDto userDetails = new UserResponseDto(
-                            user.getId(),
-                            user.getUsername(),
-                            user.getEmail(),
-                            user.getDateJoined()
-                    );
-                    return new LoginResponseDto(accessToken, refreshToken, "Bearer", userDetails);
-                });
+                .flatMap(roles -> createLoginResponse(user, roles));
+    }
+
+    /**
+     * Creates the LoginResponseDto for a user whose roles are already known, e.g. right after registration.
+     * @param user The user for whom to generate tokens.
+     * @param roles The role names of the user.
+     * @return A Mono containing the complete LoginResponseDto.
+     */
+    private Mono<LoginResponseDto> createLoginResponse(User user, List<String> roles) {
+        user.setAuthoritiesFromRoles(roles);
+        String accessToken = jwtUtil.generateAccessToken(user);
+        UserResponseDto userDetails = new UserResponseDto(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getDateJoined()
+        );
+        return refreshTokenService.issue(user)
+                .map(refreshToken -> new LoginResponseDto(accessToken, refreshToken, "Bearer", userDetails));
     }
 
     /**
@@ -104,67 +144,188 @@ public class UserService {
      * @return Een Mono die de User bevat bij succes, of een error Mono bij falen.
      */
     public Mono<LoginResponseDto> loginUserAndGenerateToken(UserLoginDto loginDto) {
-        return userRepository.findByUsername(loginDto.getUsername())
-                .switchIfEmpty(userRepository.findByEmail(loginDto.getUsername()))
-                .flatMap(user -> {
-                    if (passwordEncoder.matches(loginDto.getPassword(), user.getPasswordHash())) {
-                        return createLoginResponse(user);
-                    }
-                    return Mono.error(new BadCredentialsException("Ongeldige inloggegevens."));
-                })
-                .switchIfEmpty(Mono.error(new BadCredentialsException("Gebruiker niet gevonden.")));
+        String login = loginDto.getUsername();
+        // Een naam uit de cache deelt de lookup met gelijktijdige pogingen op dezelfde naam, maar gaat wel
+        // naar de database: een gebruiker die net op een andere instance is geregistreerd, wordt dus gevonden.
+        return Mono.defer(() -> unknownLoginCache.isKnownToBeUnknown(login)
+                        ? unknownLoginCache.lookUpShared(login, () -> timedFindByLogin(login))
+                        : timedFindByLogin(login))
+                .flatMap(user -> passwordHashingService.matches(loginDto.getPassword(), user.getPasswordHash(), "login")
+                        .flatMap(matches -> {
+                            if (!matches) {
+                                return Mono.error(new BadCredentialsException("Ongeldige inloggegevens."));
+                            }
+                            if (!user.isEnabled() || !user.isAccountNonLocked()) {
+                                return Mono.error(new BadCredentialsException("Account is disabled or locked."));
+                            }
+                            return createLoginResponse(user);
+                        }))
+                // Onbekende gebruiker: dezelfde BCrypt-controle en dezelfde fout als bij een verkeerd wachtwoord,
+                // zodat de responstijd niet verraadt of een account bestaat.
+                .switchIfEmpty(Mono.defer(() -> passwordHashingService.matchesNothing(loginDto.getPassword(), "login")
+                        .then(Mono.error(new BadCredentialsException("Ongeldige inloggegevens.")))));
+    }
+
+    /**
+     * Zoekt een gebruiker voor een login, houdt de duur bij voor de {@link UnknownLoginCache} en onthoudt
+     * namen zonder gebruiker; een naam die inmiddels wel bestaat, wordt vergeten.
+     */
+    private Mono<User> timedFindByLogin(String login) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return findByLogin(login).doOnSuccess(user -> {
+                unknownLoginCache.recordLookupTime(System.nanoTime() - start);
+                if (user == null) {
+                    unknownLoginCache.remember(login);
+                } else {
+                    unknownLoginCache.forget(login);
+                }
+            });
+        });
+    }
+
+    /**
+     * Zoekt een gebruiker op username of email in één query. Een match op username gaat voor.
+     */
+    private Mono<User> findByLogin(String login) {
+        return userRepository.findByUsernameOrEmail(login, login)
+                .reduce((first, second) -> login.equals(second.getUsername()) ? second : first);
     }
 
-    public Mono<String> refreshAccessToken(String refreshToken) {
-        if (!jwtUtil.validateToken(refreshToken)) {
+    /**
+     * Wisselt een refresh token in voor een nieuw access token én een nieuw refresh token. Het oude refresh
+     * token is daarna ongeldig; wordt het toch nog eens aangeboden, dan wordt de hele sessie ingetrokken.
+     * @param refreshToken Het huidige refresh token.
+     * @return Een Mono met het nieuwe tokenpaar.
+     */
+    public Mono<AccessTokenResponseDto> refreshAccessToken(String refreshToken) {
+        Claims claims = jwtUtil.parseValidClaims(refreshToken);
+        if (claims == null || JwtUtil.TYPE_ACCESS.equals(claims.get(JwtUtil.CLAIM_TYPE, String.class))) {
             return Mono.error(new BadCredentialsException("Invalid refresh token."));
         }
 
-        String username = jwtUtil.getUsernameFromToken(refreshToken);
-        return userRepository.findByUsername(username)
+        return userRepository.findByUsername(claims.getSubject())
                 .switchIfEmpty(Mono.error(new BadCredentialsException("User not found for refresh token.")))
-                .map(jwtUtil::generateAccessToken);
+                .flatMap(user -> {
+                    if (tokenDenyList.isRevoked(claims, user.getId())) {
+                        return Mono.error(new BadCredentialsException("Refresh token has been revoked."));
+                    }
+                    if (!user.isEnabled() || !user.isAccountNonLocked()) {
+                        return Mono.error(new BadCredentialsException("Account is disabled or locked."));
+                    }
+                    return userRepository.findRolesByUserId(user.getId())
+                            .collectList()
+                            .flatMap(roles -> {
+                                user.setAuthoritiesFromRoles(roles);
+                                return refreshTokenService.rotate(claims, user)
+                                        .map(nextRefreshToken -> new AccessTokenResponseDto(
+                                                jwtUtil.generateAccessToken(user), nextRefreshToken, "Bearer"));
+                            });
+                });
     }
 
-    @Transactional
-    public Mono<List<String>> generateAndStoreRecoveryCodes(User user) {
-        return recoveryCodeRepository.deleteAllByUserId(user.getId())
-                .then(Mono.fromCallable(() -> {
-                    List<String> plainTextCodes = new ArrayList<>();
-                    List<PasswordRecoveryCode> codesToSave = new ArrayList<>();
-                    SecureRandom random = new SecureRandom();
+    /**
+     * Trekt de aangeboden tokens in, zodat ze niet meer gebruikt kunnen worden tot ze verlopen.
+     * @param accessToken Het access token van het huidige verzoek.
+     * @param refreshToken Het bijbehorende refresh token, of {@code null}.
+     * @return Een Mono die voltooit als de tokens op de deny-list staan.
+     */
+    public Mono<Void> logout(String accessToken, String refreshToken) {
+        Claims accessClaims = accessToken == null ? null : jwtUtil.parseValidClaims(accessToken);
+        if (accessClaims != null) {
+            tokenDenyList.revoke(accessClaims);
+        }
+        Claims refreshClaims = refreshToken == null ? null : jwtUtil.parseValidClaims(refreshToken);
+        if (refreshClaims == null) {
+            return Mono.empty();
+        }
+        tokenDenyList.revoke(refreshClaims);
+        return refreshTokenService.revoke(refreshClaims);
+    }
+
+    /**
+     * Haalt het actuele profiel van een gebruiker op. Een principal uit een access token bevat alleen
+     * ID, username en rollen, dus profielvelden komen uit de database.
+     */
+    public Mono<UserResponseDto> getUserProfile(UUID userId) {
+        return userRepository.findById(userId)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
+                .map(user -> new UserResponseDto(
+                        user.getId(),
+                        user.getUsername(),
+                        user.getEmail(),
+                        user.getDateJoined()
+                ));
+    }
 
-                    for (int i = 0; i < 10; i++) {
-                        byte[] bytes = new byte[12];
-                        random.nextBytes(bytes);
-                        String code = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
-                        plainTextCodes.add(code);
+    public Mono<List<String>> generateAndStoreRecoveryCodes(User user) {
+        List<String> plainTextCodes = new ArrayList<>(RECOVERY_CODE_COUNT);
+        for (int i = 0; i < RECOVERY_CODE_COUNT; i++) {
+            byte[] bytes = new byte[12];
+            secureRandom.nextBytes(bytes);
+            plainTextCodes.add(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+        }
 
+        return passwordHashingService.encodeAll(plainTextCodes, "recovery.generate")
+                .flatMap(hashes -> {
+                    List<PasswordRecoveryCode> codesToSave = new ArrayList<>();
+                    for (int i = 0; i < plainTextCodes.size(); i++) {
                         PasswordRecoveryCode recoveryCode = new PasswordRecoveryCode();
                         recoveryCode.setUserId(user.getId());
-                        recoveryCode.setCodeHash(passwordEncoder.encode(code));
+                        recoveryCode.setCodeHash(hashes.get(i));
+                        recoveryCode.setCodePrefix(recoveryCodePrefix(plainTextCodes.get(i)));
                         recoveryCode.setUsed(false);
                         codesToSave.add(recoveryCode);
                     }
-                    return recoveryCodeRepository.saveAll(codesToSave).then(Mono.just(plainTextCodes));
-                }).flatMap(mono -> mono));
+                    // Oude codes weg en nieuwe erin in één statement, dus zonder aparte transactie atomair.
+                    return recoveryCodeRepository.replaceAllForUser(user.getId(), codesToSave)
+                            .thenReturn(plainTextCodes);
+                });
     }
 
     @Transactional
     public Mono<Void> resetPasswordWithRecoveryCode(ResetPasswordWithCodeRequestDto dto) {
         return userRepository.findByUsername(dto.getUsername())
                 .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")))
-                .flatMap(user -> recoveryCodeRepository.findByUserIdAndIsUsed(user.getId(), false)
-                        .filter(code -> passwordEncoder.matches(dto.getRecoveryCode(), code.getCodeHash()))
-                        .next()
+                .flatMap(user -> findMatchingRecoveryCode(user.getId(), dto.getRecoveryCode())
                         .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid or used recovery code")))
-                        .flatMap(code -> {
-                            user.setPassword(passwordEncoder.encode(dto.getNewPassword()));
+                        .flatMap(code -> passwordHashingService.encode(dto.getNewPassword(), "recovery.reset")
+                                .flatMap(hashedPassword -> {
+                                    user.setPassword(hashedPassword);
 
-                            code.setUsed(true);
-                            return userRepository.save(user)
-                                    .then(recoveryCodeRepository.save(code));
-                        })
+                                    code.setUsed(true);
+                                    return userRepository.save(user)
+                                            .then(recoveryCodeRepository.save(code))
+                                            .then(refreshTokenService.revokeAllForUser(user.getId()))
+                                            // The cached principal is dropped by the save callback of PrincipalCache.
+                                            .doOnSuccess(done -> tokenDenyList.revokeAllFor(user.getId()));
+                                }))
                 ).then();
     }
+
+    /**
+     * Zoekt de ongebruikte herstelcode die bij de opgegeven code hoort. Via de prefix is er normaal maar één
+     * kandidaat om met BCrypt te controleren; codes van vóór de prefix-kolom worden nog één voor één vergeleken.
+     */
+    private Mono<PasswordRecoveryCode> findMatchingRecoveryCode(UUID userId, String plainCode) {
+        return recoveryCodeRepository.findUnusedByUserIdAndCodePrefix(userId, recoveryCodePrefix(plainCode))
+                .concatWith(recoveryCodeRepository.findUnusedLegacyByUserId(userId))
+                .concatMap(code -> passwordHashingService.matches(plainCode, code.getCodeHash(), "recovery.verify")
+                        .filter(Boolean::booleanValue)
+                        .map(matches -> code))
+                .next();
+    }
+
+    /**
+     * Derives the lookup prefix of a recovery code: the first 8 bytes of its SHA-256 digest, Base64url-encoded.
+     * It identifies the row without revealing any characters of the code itself.
+     */
+    static String recoveryCodePrefix(String plainCode) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(plainCode.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
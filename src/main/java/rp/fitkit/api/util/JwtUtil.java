@@ -4,20 +4,37 @@ package rp.fitkit.api.util;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import rp.fitkit.api.model.user.User;
 
 import javax.crypto.SecretKey;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 @Slf4j
 public class JwtUtil {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_PREMIUM = "premium";
+    public static final String CLAIM_TYPE = "typ";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+    public static final String CLAIM_FAMILY_ID = "fid";
+    /**
+     * The issue time in milliseconds; {@code iat} only has second precision.
+     */
+    public static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+
     @Value("${fitkit.api.jwt.secret}")
     private String jwtSecretString;
 
@@ -27,28 +44,80 @@ public class JwtUtil {
     @Value("${fitkit.api.jwt.refresh-token-expiration-ms}")
     private long refreshTokenExpirationMs;
 
-    private SecretKey getSigningKey() {
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * Derives the HMAC key and the parser once; both are immutable and thread-safe.
+     */
+    @PostConstruct
+    public void init() {
         byte[] keyBytes = Base64.getDecoder().decode(jwtSecretString);
-        return Keys.hmacShaKeyFor(keyBytes);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
     }
 
     public String generateAccessToken(User user) {
-        return generateToken(user.getUsername(), jwtExpirationMs);
+        return generateToken(user, jwtExpirationMs, TYPE_ACCESS, null).token();
     }
 
-    public String generateRefreshToken(User user) {
-        return generateToken(user.getUsername(), refreshTokenExpirationMs);
+    /**
+     * Issues a refresh token that belongs to a rotation family.
+     *
+     * @param user     The user the token is for.
+     * @param familyId The family the token belongs to; carried in the {@code fid} claim.
+     * @return The token together with its ID and expiry, which the family store keeps track of.
+     */
+    public IssuedToken generateRefreshToken(User user, UUID familyId) {
+        return generateToken(user, refreshTokenExpirationMs, TYPE_REFRESH, familyId);
     }
 
-    private String generateToken(String subject, long expirationMs) {
-        return Jwts.builder()
-                .claims()
-                .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expirationMs))
-                .and()
-                .signWith(getSigningKey())
+    public long getRefreshTokenExpirationMs() {
+        return refreshTokenExpirationMs;
+    }
+
+    /**
+     * Builds a signed token for a user. Besides the username as subject, the token carries the user ID,
+     * the roles and the premium flag, so an access token can be turned into a principal without a database
+     * lookup, and a unique ID ({@code jti}) so it can be revoked individually.
+     */
+    private IssuedToken generateToken(User user, long expirationMs, String type, UUID familyId) {
+        long now = System.currentTimeMillis();
+        String tokenId = UUID.randomUUID().toString();
+        Date expiration = new Date(now + expirationMs);
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+        ClaimsBuilder claims = Jwts.claims()
+                .id(tokenId)
+                .subject(user.getUsername())
+                .add(CLAIM_USER_ID, user.getId().toString())
+                .add(CLAIM_ROLES, roles)
+                .add(CLAIM_PREMIUM, user.isPremium())
+                .add(CLAIM_TYPE, type)
+                .issuedAt(new Date(now))
+                .add(CLAIM_ISSUED_AT_MS, now)
+                .expiration(expiration);
+        if (familyId != null) {
+            claims.add(CLAIM_FAMILY_ID, familyId.toString());
+        }
+        String token = Jwts.builder()
+                .claims(claims.build())
+                .signWith(signingKey)
                 .compact();
+        return new IssuedToken(token, tokenId, expiration.toInstant());
+    }
+
+    /**
+     * A freshly signed token.
+     *
+     * @param token     The compact JWT.
+     * @param id        The token ID ({@code jti}).
+     * @param expiresAt When the token expires.
+     */
+    public record IssuedToken(String token, String id, Instant expiresAt) {
     }
 
     public String getUsernameFromToken(String token) {
@@ -67,11 +136,7 @@ public class JwtUtil {
 
     public Claims getAllClaimsFromToken(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
             log.warn("JWT token is expired: {}", e.getMessage());
             return e.getClaims();
@@ -92,12 +157,18 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(String token) {
+        return parseValidClaims(token) != null;
+    }
+
+    /**
+     * Verifies the signature and expiry of a token and returns its claims, parsing the token only once.
+     *
+     * @param token The compact JWT.
+     * @return The claims of a valid token, or {@code null} if the token is invalid or expired.
+     */
+    public Claims parseValidClaims(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return parser.parseSignedClaims(token).getPayload();
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -109,6 +180,6 @@ public class JwtUtil {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty or null: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 }
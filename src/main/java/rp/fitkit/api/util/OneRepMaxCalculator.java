@@ -0,0 +1,19 @@
+package rp.fitkit.api.util;
+
+/**
+ * Estimates a one-rep max from a set. The database rollups use the same formula in SQL
+ * ({@code ExerciseDailyStatsRepository}); keep both in step.
+ */
+public final class OneRepMaxCalculator {
+
+    private OneRepMaxCalculator() {
+    }
+
+    /**
+     * Berekent de e1RM met de Epley formule.
+     */
+    public static double epley(double weight, int reps) {
+        if (reps == 1) return weight;
+        return weight * (1 + (reps / 30.0));
+    }
+}
@@ -0,0 +1,57 @@
+package rp.fitkit.api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a BCrypt hash and a BCrypt check cost per {@code fitkit.api.security.hashing.bcrypt-strength}.
+ * <p>
+ * Run it from the IDE via {@link #main(String[])}, or after {@code mvn test-compile} with the test classpath.
+ * A login costs one {@code matches}; generating recovery codes costs ten {@code encode}s spread over the
+ * hashing pool. Pick the highest strength whose {@code matches} still fits the login latency budget.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"8", "10", "12"})
+    private int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String password;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        encoder = new BCryptPasswordEncoder(strength);
+        password = "correct horse battery staple";
+        hash = encoder.encode(password);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(password);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(password, hash);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PasswordHashingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
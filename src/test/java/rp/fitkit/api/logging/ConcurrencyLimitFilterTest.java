@@ -0,0 +1,114 @@
+package rp.fitkit.api.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(passed::incrementAndGet);
+
+    private GradientConcurrencyLimiter writes;
+    private GradientConcurrencyLimiter history;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        writes = new GradientConcurrencyLimiter("logging-writes", GradientConcurrencyLimiter.Priority.CRITICAL, 10, 100, 20, 1.5);
+        history = new GradientConcurrencyLimiter("history", GradientConcurrencyLimiter.Priority.SHEDDABLE, 1, 1, 1, 1.5);
+        RouteMatcher<GradientConcurrencyLimiter> routeMatcher = RouteMatcher.<GradientConcurrencyLimiter>builder()
+                .add("POST /api/v1/log/workout", writes)
+                .add("/api/v1/workouts/history/**", history)
+                .build();
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.setUseCodeAsDefaultMessage(true);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(routeMatcher, meterRegistry, new ObjectMapper().findAndRegisterModules(), messageSource);
+    }
+
+    @Test
+    @DisplayName("A request beyond the limit of its group gets an immediate 503")
+    void filter_GroupAtLimit_Returns503() {
+        Sinks.Empty<Void> slow = Sinks.empty();
+        Disposable inFlight = filter.filter(get("/api/v1/workouts/history/1"), exchange -> slow.asMono()).subscribe();
+        MockServerWebExchange rejected = get("/api/v1/workouts/history/2");
+
+        StepVerifier.create(filter.filter(rejected, chain)).verifyComplete();
+
+        assertThat(passed).hasValue(0);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejectedCount("history", "limit")).isEqualTo(1);
+
+        slow.tryEmitEmpty();
+        assertThat(inFlight.isDisposed()).isTrue();
+        StepVerifier.create(filter.filter(get("/api/v1/workouts/history/3"), chain)).verifyComplete();
+        assertThat(passed).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Sheddable groups are refused while a critical group is congested")
+    void filter_CriticalGroupCongested_ShedsSheddableGroup() {
+        GradientConcurrencyLimiterTest.sample(writes, 10_000_000L, 1);
+        GradientConcurrencyLimiterTest.sample(writes, 200_000_000L, 10);
+        MockServerWebExchange shed = get("/api/v1/workouts/history/1");
+
+        StepVerifier.create(filter.filter(shed, chain)).verifyComplete();
+        StepVerifier.create(filter.filter(post("/api/v1/log/workout"), chain)).verifyComplete();
+
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejectedCount("history", "shed")).isEqualTo(1);
+        assertThat(passed).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Requests outside every group, or with another method, are not limited")
+    void filter_UnmatchedRequest_PassesWithoutSlot() {
+        StepVerifier.create(filter.filter(get("/api/v1/log/workout"), chain)).verifyComplete();
+        StepVerifier.create(filter.filter(get("/api/v1/plans"), chain)).verifyComplete();
+
+        assertThat(passed).hasValue(2);
+        assertThat(writes.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("The slot is released when the request completes")
+    void filter_CompletedRequest_ReleasesSlot() {
+        StepVerifier.create(filter.filter(post("/api/v1/log/workout"), chain)).verifyComplete();
+        StepVerifier.create(filter.filter(post("/api/v1/log/workout"), exchange -> Mono.error(new IllegalStateException())))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertThat(writes.getInFlight()).isZero();
+    }
+
+    private double rejectedCount(String group, String reason) {
+        return meterRegistry.get("http.concurrency.rejected").tags("group", group, "reason", reason).counter().count();
+    }
+
+    private static MockServerWebExchange get(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private static MockServerWebExchange post(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post(path));
+    }
+}
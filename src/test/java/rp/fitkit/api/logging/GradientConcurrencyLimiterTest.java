@@ -0,0 +1,86 @@
+package rp.fitkit.api.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientConcurrencyLimiterTest {
+
+    private static final long FAST = 10_000_000L;
+    private static final long SLOW = 200_000_000L;
+
+    @Test
+    @DisplayName("Requests beyond the limit are refused until a slot is released")
+    void tryAcquire_AtLimit_RefusesUntilRelease() {
+        GradientConcurrencyLimiter limiter = limiter(GradientConcurrencyLimiter.Priority.NORMAL, 2, 2);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(FAST, true);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A rising latency shrinks the limit and marks the group as congested")
+    void release_SlowerThanBaseline_ShrinksLimit() {
+        GradientConcurrencyLimiter limiter = limiter(GradientConcurrencyLimiter.Priority.CRITICAL, 5, 100);
+        sample(limiter, FAST, 1);
+        int before = limiter.getLimit();
+
+        sample(limiter, SLOW, 10);
+
+        assertThat(limiter.getLimit()).isLessThan(before);
+        assertThat(limiter.isCongested()).isTrue();
+    }
+
+    @Test
+    @DisplayName("A busy group with a steady latency grows its limit")
+    void release_SteadyLatencyWhileBusy_GrowsLimit() {
+        GradientConcurrencyLimiter limiter = limiter(GradientConcurrencyLimiter.Priority.NORMAL, 5, 100);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int j = 0; j < acquired; j++) {
+                limiter.release(FAST, true);
+            }
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(before);
+        assertThat(limiter.isCongested()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Cancelled requests free their slot without moving the limit")
+    void release_WithoutSample_KeepsLimit() {
+        GradientConcurrencyLimiter limiter = limiter(GradientConcurrencyLimiter.Priority.NORMAL, 5, 100);
+        sample(limiter, FAST, 1);
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(before);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    static GradientConcurrencyLimiter limiter(GradientConcurrencyLimiter.Priority priority, int minLimit, int maxLimit) {
+        return new GradientConcurrencyLimiter("test-" + priority, priority, minLimit, maxLimit, Math.min(maxLimit, 20), 1.5);
+    }
+
+    static void sample(GradientConcurrencyLimiter limiter, long latencyNanos, int times) {
+        for (int i = 0; i < times; i++) {
+            limiter.tryAcquire();
+            limiter.release(latencyNanos, true);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package rp.fitkit.api.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+import rp.fitkit.api.model.user.User;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitingFilterTest {
+
+    private static final String PATH = "/api/v1/stats/history";
+
+    private final AtomicInteger passed = new AtomicInteger();
+    private final WebFilterChain chain = exchange -> Mono.fromRunnable(passed::incrementAndGet);
+
+    private RateLimitingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = filter(new LocalRateLimitBucketStore(100, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    @DisplayName("Every limited response carries the RateLimit headers of the policy")
+    void filter_AllowedRequest_WritesRateLimitHeaders() {
+        MockServerWebExchange exchange = exchange(PATH, "203.0.113.7");
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertThat(passed).hasValue(1);
+        assertThat(headers.getFirst("RateLimit-Limit")).isEqualTo("2");
+        assertThat(headers.getFirst("RateLimit-Remaining")).isEqualTo("1");
+        assertThat(headers.getFirst("RateLimit-Policy")).isEqualTo("2;w=60");
+        assertThat(headers.getFirst("RateLimit-Reset")).isEqualTo("60");
+    }
+
+    @Test
+    @DisplayName("Once the bucket is empty the request is refused with 429 and Retry-After")
+    void filter_BucketEmpty_Returns429() {
+        filter.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        filter.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        MockServerWebExchange blocked = exchange(PATH, "203.0.113.7");
+
+        StepVerifier.create(filter.filter(blocked, chain)).verifyComplete();
+
+        assertThat(passed).hasValue(2);
+        assertThat(blocked.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(blocked.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+        assertThat(blocked.getResponse().getHeaders().getFirst("RateLimit-Remaining")).isEqualTo("0");
+    }
+
+    @Test
+    @DisplayName("Anonymous clients are limited per IP address")
+    void filter_DifferentAddresses_HaveSeparateBuckets() {
+        filter.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        filter.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        MockServerWebExchange other = exchange(PATH, "203.0.113.8");
+
+        StepVerifier.create(filter.filter(other, chain)).verifyComplete();
+
+        assertThat(passed).hasValue(3);
+        assertThat(other.getResponse().getHeaders().getFirst("RateLimit-Remaining")).isEqualTo("1");
+    }
+
+    @Test
+    @DisplayName("Premium users get the premium tier of the policy")
+    void filter_PremiumUser_UsesPremiumLimit() {
+        User premium = user("ROLE_USER", "ROLE_PREMIUM");
+        MockServerWebExchange exchange = exchange(PATH, "203.0.113.7");
+
+        StepVerifier.create(filter.filter(exchange, chain).contextWrite(authenticatedAs(premium)))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getHeaders().getFirst("RateLimit-Limit")).isEqualTo("4");
+        assertThat(exchange.getResponse().getHeaders().getFirst("RateLimit-Remaining")).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("Paths outside every policy are not limited")
+    void filter_UnlimitedPath_PassesWithoutHeaders() {
+        MockServerWebExchange exchange = exchange("/api/v1/plans", "203.0.113.7");
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertThat(passed).hasValue(1);
+        assertThat(exchange.getResponse().getHeaders().containsKey("RateLimit-Limit")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Nodes with a shared store enforce one budget together")
+    void filter_SharedStore_NodesShareOneBudget() {
+        InMemoryProxyManager sharedBackend = new InMemoryProxyManager();
+        RateLimitingFilter nodeA = filter(new ProxyManagerBucketStore(sharedBackend));
+        RateLimitingFilter nodeB = filter(new ProxyManagerBucketStore(sharedBackend));
+        nodeA.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        nodeB.filter(exchange(PATH, "203.0.113.7"), chain).block();
+        MockServerWebExchange blocked = exchange(PATH, "203.0.113.7");
+
+        StepVerifier.create(nodeA.filter(blocked, chain)).verifyComplete();
+
+        assertThat(passed).hasValue(2);
+        assertThat(blocked.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(blocked.getResponse().getHeaders().getFirst("RateLimit-Remaining")).isEqualTo("0");
+    }
+
+    private static RateLimitingFilter filter(RateLimitBucketStore bucketStore) {
+        RateLimitPolicy history = new RateLimitPolicy("history",
+                new RateLimitPolicy.Limit("history", 2, 2, Duration.ofMinutes(1)),
+                new RateLimitPolicy.Limit("history-premium", 4, 4, Duration.ofMinutes(1)));
+        RouteMatcher<RateLimitPolicy> routeMatcher = RouteMatcher.<RateLimitPolicy>builder()
+                .add("/api/v1/stats/**", history)
+                .build();
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.setUseCodeAsDefaultMessage(true);
+        return new RateLimitingFilter(routeMatcher, bucketStore, new ClientIpResolver(List.of()),
+                new ObjectMapper().findAndRegisterModules(), messageSource);
+    }
+
+    private static MockServerWebExchange exchange(String path, String clientIp) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .remoteAddress(new InetSocketAddress(clientIp, 40000)));
+    }
+
+    private static User user(String... roles) {
+        return User.restore(UUID.randomUUID(), "rik", "rik@example.com", "hash", null,
+                true, true, true, true, List.of(roles));
+    }
+
+    private static Context authenticatedAs(User user) {
+        return ReactiveSecurityContextHolder.withAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+}
@@ -0,0 +1,72 @@
+package rp.fitkit.api.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteMatcherTest {
+
+    @Test
+    @DisplayName("The most specific matching pattern wins, regardless of the order in which routes were added")
+    void resolve_OverlappingPatterns_ReturnsMostSpecific() {
+        RouteMatcher<String> matcher = RouteMatcher.<String>builder()
+                .add("/api/v1/**", "api")
+                .add("/api/v1/logbook/stats/**", "stats")
+                .add("/api/v1/logbook/{date}", "day")
+                .build();
+
+        assertThat(matcher.resolve(HttpMethod.GET, "/api/v1/logbook/stats/total-count")).isEqualTo("stats");
+        assertThat(matcher.resolve(HttpMethod.GET, "/api/v1/logbook/2025-05-28")).isEqualTo("day");
+        assertThat(matcher.resolve(HttpMethod.GET, "/api/v1/plans/1")).isEqualTo("api");
+        assertThat(matcher.resolve(HttpMethod.GET, "/actuator/health")).isNull();
+    }
+
+    @Test
+    @DisplayName("A pattern can only be configured once")
+    void add_DuplicateRoute_Throws() {
+        RouteMatcher.Builder<String> builder = RouteMatcher.<String>builder()
+                .add("/api/v1/plans/**", "plans");
+
+        assertThatThrownBy(() -> builder.add("/api/v1/plans/**", "other"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("A route with methods only matches requests with one of those methods")
+    void resolve_MethodRoute_MatchesOnlyListedMethods() {
+        RouteMatcher<String> matcher = RouteMatcher.<String>builder()
+                .add("PUT,patch /api/v1/logbook/*/*", "writes")
+                .add("/api/v1/logbook/**", "reads")
+                .build();
+
+        assertThat(matcher.resolve(HttpMethod.PUT, "/api/v1/logbook/2025-05-28/MORNING")).isEqualTo("writes");
+        assertThat(matcher.resolve(HttpMethod.PATCH, "/api/v1/logbook/2025-05-28/MORNING")).isEqualTo("writes");
+        assertThat(matcher.resolve(HttpMethod.GET, "/api/v1/logbook/stats/total-count")).isEqualTo("reads");
+    }
+
+    @Test
+    @DisplayName("For the same pattern a route for the request's method wins over one for all methods")
+    void resolve_SamePatternWithAndWithoutMethod_PrefersMethodRoute() {
+        RouteMatcher<String> matcher = RouteMatcher.<String>builder()
+                .add("/api/v1/log/workout", "any")
+                .add("POST /api/v1/log/workout", "post")
+                .build();
+
+        assertThat(matcher.resolve(HttpMethod.POST, "/api/v1/log/workout")).isEqualTo("post");
+        assertThat(matcher.resolve(HttpMethod.GET, "/api/v1/log/workout")).isEqualTo("any");
+    }
+
+    @Test
+    @DisplayName("A pattern can only be configured once per set of methods, in any order")
+    void add_DuplicateMethodRoute_Throws() {
+        RouteMatcher.Builder<String> builder = RouteMatcher.<String>builder()
+                .add("PUT,POST /api/v1/log/workout", "writes")
+                .add("/api/v1/log/workout", "any");
+
+        assertThatThrownBy(() -> builder.add("POST,PUT /api/v1/log/workout", "other"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
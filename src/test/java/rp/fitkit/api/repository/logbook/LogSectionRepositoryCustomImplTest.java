@@ -0,0 +1,81 @@
+package rp.fitkit.api.repository.logbook;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LogSectionRepositoryCustomImplTest {
+
+    @Mock
+    private DatabaseClient databaseClient;
+    @Mock
+    private DatabaseClient.GenericExecuteSpec spec;
+    @Mock
+    private RowsFetchSpec<LogSectionSearchRow> rows;
+
+    private LogSectionRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new LogSectionRepositoryCustomImpl(databaseClient);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.bind(anyString(), any())).thenReturn(spec);
+        when(spec.<LogSectionSearchRow>map(any(BiFunction.class))).thenReturn(rows);
+        when(rows.all()).thenReturn(Flux.empty());
+    }
+
+    @Test
+    @DisplayName("Headlines are only generated for the rows of the requested page")
+    void search_Headline_RunsAfterPageLimit() {
+        repository.search(UUID.randomUUID(), "squat", null, null, null, null, 20).blockLast();
+
+        String sql = capturedSql();
+        String hits = sql.substring(sql.indexOf("hits AS"), sql.indexOf("page AS"));
+        String page = sql.substring(sql.indexOf("page AS"), sql.indexOf("SELECT page."));
+        assertThat(hits).doesNotContain("ts_headline");
+        assertThat(page).contains("LIMIT :limit").doesNotContain("ts_headline");
+        assertThat(sql.substring(sql.indexOf("SELECT page."))).contains("ts_headline").contains("FROM page");
+    }
+
+    @Test
+    @DisplayName("The cursor continues after the last hit by rank, then by section id")
+    void search_WithCursor_FiltersAfterLastHit() {
+        repository.search(UUID.randomUUID(), "squat", null, null, 0.5f, 42L, 20).blockLast();
+
+        assertThat(capturedSql()).contains("WHERE rank < :afterRank OR (rank = :afterRank AND section_id < :afterId)")
+                .contains("ORDER BY rank DESC, section_id DESC");
+        verify(spec).bind("afterRank", 0.5f);
+        verify(spec).bind("afterId", 42L);
+    }
+
+    @Test
+    @DisplayName("The first page has no cursor filter")
+    void search_WithoutCursor_HasNoCursorFilter() {
+        repository.search(UUID.randomUUID(), "squat", null, null, null, null, 20).blockLast();
+
+        assertThat(capturedSql()).doesNotContain(":afterRank");
+    }
+
+    private String capturedSql() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(databaseClient).sql(sql.capture());
+        return sql.getValue();
+    }
+}
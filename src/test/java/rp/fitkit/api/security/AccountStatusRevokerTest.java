@@ -0,0 +1,78 @@
+package rp.fitkit.api.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.service.user.RefreshTokenService;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccountStatusRevokerTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TokenDenyList tokenDenyList;
+    @Mock
+    private ObjectProvider<RefreshTokenService> refreshTokenServiceProvider;
+
+    private AccountStatusRevoker revoker;
+
+    @BeforeEach
+    void setUp() {
+        revoker = new AccountStatusRevoker(refreshTokenServiceProvider, tokenDenyList);
+    }
+
+    @Test
+    @DisplayName("Saving a disabled user revokes its refresh tokens and denies its access tokens")
+    void onAfterSave_DisabledUser_RevokesAllTokens() {
+        User user = user(false, true);
+        when(refreshTokenServiceProvider.getObject()).thenReturn(refreshTokenService);
+        when(refreshTokenService.revokeAllForUser(USER_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(revoker.onAfterSave(user, null, null)).expectNext(user).verifyComplete();
+
+        verify(tokenDenyList).revokeAllFor(USER_ID);
+    }
+
+    @Test
+    @DisplayName("Saving a locked user revokes its tokens")
+    void onAfterSave_LockedUser_RevokesAllTokens() {
+        when(refreshTokenServiceProvider.getObject()).thenReturn(refreshTokenService);
+        when(refreshTokenService.revokeAllForUser(USER_ID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(revoker.onAfterSave(user(true, false), null, null)).expectNextCount(1).verifyComplete();
+
+        verify(tokenDenyList).revokeAllFor(USER_ID);
+    }
+
+    @Test
+    @DisplayName("Saving an active user keeps its tokens")
+    void onAfterSave_ActiveUser_KeepsTokens() {
+        StepVerifier.create(revoker.onAfterSave(user(true, true), null, null)).expectNextCount(1).verifyComplete();
+
+        verify(refreshTokenService, never()).revokeAllForUser(any());
+        verify(tokenDenyList, never()).revokeAllFor(any());
+    }
+
+    private static User user(boolean enabled, boolean accountNonLocked) {
+        return User.restore(USER_ID, "rik", "rik@example.com", "hash", null,
+                enabled, accountNonLocked, true, true, List.of("ROLE_USER"));
+    }
+}
@@ -0,0 +1,84 @@
+package rp.fitkit.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.service.user.CustomUserDetailsService;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalCacheTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+    @Mock
+    private ObjectProvider<CustomUserDetailsService> userDetailsServiceProvider;
+
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        when(userDetailsServiceProvider.getObject()).thenReturn(userDetailsService);
+        principalCache = new PrincipalCache(userDetailsServiceProvider, new SimpleMeterRegistry(), 60_000, 100);
+    }
+
+    @Test
+    @DisplayName("Lookups of the same subject are served from the cache")
+    void get_RepeatedSubject_LoadsOnce() {
+        when(userDetailsService.findByUsername("rik")).thenReturn(Mono.just(user("rik")));
+
+        principalCache.get("rik").block();
+        principalCache.get("rik").block();
+
+        verify(userDetailsService, times(1)).findByUsername("rik");
+    }
+
+    @Test
+    @DisplayName("Invalidating a user drops every subject that resolved to it, including an old username")
+    void invalidate_RenamedUser_DropsAllSubjectsOfUser() {
+        when(userDetailsService.findByUsername("rik")).thenReturn(Mono.just(user("rik")));
+        when(userDetailsService.findByUsername("rik-old")).thenReturn(Mono.just(user("rik")));
+        principalCache.get("rik").block();
+        principalCache.get("rik-old").block();
+
+        principalCache.invalidate(user("rik"));
+        principalCache.get("rik").block();
+        principalCache.get("rik-old").block();
+
+        verify(userDetailsService, times(2)).findByUsername("rik");
+        verify(userDetailsService, times(2)).findByUsername("rik-old");
+    }
+
+    @Test
+    @DisplayName("Invalidating one user leaves the principals of other users cached")
+    void invalidate_OtherUser_KeepsEntry() {
+        when(userDetailsService.findByUsername("rik")).thenReturn(Mono.just(user("rik")));
+        principalCache.get("rik").block();
+
+        principalCache.invalidate(User.restore(UUID.randomUUID(), "someone", "someone@example.com", "hash", null,
+                true, true, true, true, List.of("ROLE_USER")));
+        principalCache.get("rik").block();
+
+        verify(userDetailsService, times(1)).findByUsername("rik");
+    }
+
+    private static User user(String username) {
+        return User.restore(USER_ID, username, "rik@example.com", "hash", null,
+                true, true, true, true, List.of("ROLE_USER"));
+    }
+}
@@ -0,0 +1,73 @@
+package rp.fitkit.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.user.User;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnknownLoginCacheTest {
+
+    private UnknownLoginCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UnknownLoginCache(new SimpleMeterRegistry(), 10_000, 100);
+    }
+
+    @Test
+    @DisplayName("Concurrent attempts at a cached name share one lookup")
+    void lookUpShared_ConcurrentAttempts_RunOneLookup() {
+        AtomicInteger lookups = new AtomicInteger();
+        Sinks.One<User> result = Sinks.one();
+        cache.remember("ghost");
+
+        Mono<User> first = cache.lookUpShared("ghost", () -> {
+            lookups.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<User> second = cache.lookUpShared("ghost", () -> {
+            lookups.incrementAndGet();
+            return result.asMono();
+        });
+
+        StepVerifier.create(Mono.when(first, second).then(Mono.fromSupplier(lookups::get)))
+                .then(result::tryEmitEmpty)
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A name registered elsewhere is found although it is cached as unknown")
+    void lookUpShared_NameRegisteredElsewhere_ReturnsUser() {
+        User registered = User.restore(UUID.randomUUID(), "ghost", "ghost@example.com", "hash", null,
+                true, true, true, true, List.of("ROLE_USER"));
+        cache.remember("ghost");
+
+        StepVerifier.create(cache.lookUpShared("ghost", () -> Mono.just(registered)))
+                .expectNext(registered)
+                .verifyComplete();
+        StepVerifier.create(cache.lookUpShared("ghost", () -> Mono.empty()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Only names that matched no user are cached")
+    void isKnownToBeUnknown_AfterForget_ReturnsFalse() {
+        cache.remember("ghost");
+        assertThat(cache.isKnownToBeUnknown("ghost")).isTrue();
+
+        cache.forget("ghost");
+
+        assertThat(cache.isKnownToBeUnknown("ghost")).isFalse();
+    }
+}
@@ -0,0 +1,153 @@
+package rp.fitkit.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.dto.PersonalRecordDto;
+import rp.fitkit.api.model.PersonalRecordType;
+import rp.fitkit.api.model.SetLog;
+import rp.fitkit.api.repository.PersonalBest;
+import rp.fitkit.api.repository.PersonalBestRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PersonalRecordServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final String EXERCISE_ID = UUID.randomUUID().toString();
+    private static final LocalDate EARLIER = LocalDate.of(2025, 5, 1);
+    private static final LocalDate TODAY = LocalDate.of(2025, 5, 28);
+
+    @Mock
+    private PersonalBestRepository personalBestRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PersonalRecordService personalRecordService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        personalRecordService = new PersonalRecordService(personalBestRepository, meterRegistry, 100, 60_000);
+    }
+
+    @Test
+    @DisplayName("The first session of an exercise only stores the baseline")
+    void detectAndRecord_FirstSession_StoresBaselineWithoutRecords() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID)).thenReturn(Flux.empty());
+        when(personalBestRepository.mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY)))
+                .thenReturn(Flux.just(5));
+
+        StepVerifier.create(detect(set(5, 80)))
+                .expectNext(List.of())
+                .verifyComplete();
+        verify(personalBestRepository).mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY));
+    }
+
+    @Test
+    @DisplayName("A heavier set for the same reps is a rep-max and an e1RM record")
+    void detectAndRecord_HeavierSet_ReturnsRepMaxAndEstimatedOneRepMax() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID))
+                .thenReturn(Flux.just(new PersonalBest(5, 80, EARLIER)));
+        when(personalBestRepository.mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY)))
+                .thenReturn(Flux.just(5));
+
+        StepVerifier.create(detect(set(5, 85), set(5, 82.5)))
+                .assertNext(records -> {
+                    assertThat(records).extracting(PersonalRecordDto::getType)
+                            .containsExactly(PersonalRecordType.ESTIMATED_ONE_REP_MAX, PersonalRecordType.REP_MAX);
+                    PersonalRecordDto repMax = records.get(1);
+                    assertThat(repMax.getWeight()).isEqualTo(85);
+                    assertThat(repMax.getPreviousBest()).isEqualTo(80);
+                    assertThat(records.get(0).getValue()).isGreaterThan(records.get(0).getPreviousBest());
+                })
+                .verifyComplete();
+        assertThat(meterRegistry.counter("workout.personal_records.detected").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A session below the bests writes nothing")
+    void detectAndRecord_NoImprovement_DoesNotWrite() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID))
+                .thenReturn(Flux.just(new PersonalBest(5, 80, EARLIER)));
+
+        StepVerifier.create(detect(set(5, 75), set(0, 100)))
+                .expectNext(List.of())
+                .verifyComplete();
+        verify(personalBestRepository, never()).mergeBests(any(), any(), anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("The new bests are cached, so the next session does not read them again")
+    void detectAndRecord_AfterSuccess_UsesCachedBests() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID))
+                .thenReturn(Flux.just(new PersonalBest(5, 80, EARLIER)));
+        when(personalBestRepository.mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY)))
+                .thenReturn(Flux.just(5));
+
+        detect(set(5, 85)).block();
+        StepVerifier.create(detect(set(5, 85)))
+                .expectNext(List.of())
+                .verifyComplete();
+        verify(personalBestRepository, times(1)).findByUserAndExercise(USER_ID, EXERCISE_ID);
+    }
+
+    @Test
+    @DisplayName("A rep count another writer already beat is not reported and the bests are reloaded")
+    void detectAndRecord_WhenNotWritten_DropsRecordAndReloads() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID))
+                .thenReturn(Flux.just(new PersonalBest(5, 80, EARLIER)));
+        when(personalBestRepository.mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY)))
+                .thenReturn(Flux.empty());
+
+        StepVerifier.create(detect(set(5, 85)))
+                .expectNext(List.of())
+                .verifyComplete();
+        detect(set(5, 85)).block();
+        verify(personalBestRepository, times(2)).findByUserAndExercise(USER_ID, EXERCISE_ID);
+    }
+
+    @Test
+    @DisplayName("A failed write leaves no bests in the cache")
+    void detectAndRecord_WhenWriteFails_DoesNotCacheBests() {
+        when(personalBestRepository.findByUserAndExercise(USER_ID, EXERCISE_ID))
+                .thenReturn(Flux.just(new PersonalBest(5, 80, EARLIER)));
+        when(personalBestRepository.mergeBests(eq(USER_ID), eq(EXERCISE_ID), anyCollection(), eq(TODAY)))
+                .thenReturn(Flux.error(new IllegalStateException("rolled back")))
+                .thenReturn(Flux.just(5));
+
+        StepVerifier.create(detect(set(5, 85)))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(detect(set(5, 85)))
+                .assertNext(records -> assertThat(records).hasSize(2))
+                .verifyComplete();
+        verify(personalBestRepository, times(2)).findByUserAndExercise(USER_ID, EXERCISE_ID);
+    }
+
+    private Mono<List<PersonalRecordDto>> detect(SetLog... sets) {
+        return personalRecordService.detectAndRecord(USER_ID, EXERCISE_ID, "Bench Press", TODAY, List.of(sets));
+    }
+
+    private static SetLog set(int reps, double weight) {
+        return new SetLog(UUID.randomUUID(), reps, weight, 8);
+    }
+}
@@ -0,0 +1,129 @@
+package rp.fitkit.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.dto.PersonalRecordDto;
+import rp.fitkit.api.dto.TrainingBucketDto;
+import rp.fitkit.api.exception.InvalidDateRangeException;
+import rp.fitkit.api.model.AnalyticsPeriod;
+import rp.fitkit.api.model.PersonalRecordType;
+import rp.fitkit.api.repository.ExerciseDailyStatsRepository;
+import rp.fitkit.api.repository.MuscleGroupBucketSets;
+import rp.fitkit.api.repository.RecordDay;
+import rp.fitkit.api.repository.TrainingBucketTotals;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StatisticsServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    // Maandag en zondag, dus precies drie weken.
+    private static final LocalDate FROM = LocalDate.of(2025, 5, 12);
+    private static final LocalDate TO = LocalDate.of(2025, 6, 1);
+
+    @Mock
+    private ExerciseDailyStatsRepository exerciseDailyStatsRepository;
+
+    private StatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = new StatisticsService(exerciseDailyStatsRepository);
+    }
+
+    @Test
+    @DisplayName("Weeks without training are returned as empty buckets")
+    void getTrainingAnalytics_GapInTraining_FillsEmptyBuckets() {
+        LocalDate firstWeek = FROM;
+        LocalDate lastWeek = LocalDate.of(2025, 5, 26);
+        when(exerciseDailyStatsRepository.findBucketTotals(USER_ID, AnalyticsPeriod.WEEK, FROM, TO)).thenReturn(Flux.just(
+                new TrainingBucketTotals(firstWeek, 2, 10, 80, 4000.0, 30, 4),
+                new TrainingBucketTotals(lastWeek, 1, 5, 25, 2000.0, 0, 0)));
+        when(exerciseDailyStatsRepository.findMuscleGroupSets(USER_ID, AnalyticsPeriod.WEEK, FROM, TO)).thenReturn(Flux.just(
+                new MuscleGroupBucketSets(firstWeek, "CHEST", 6),
+                new MuscleGroupBucketSets(firstWeek, "TRICEPS", 4)));
+        when(exerciseDailyStatsRepository.findRecordDays(USER_ID, FROM, TO, "en")).thenReturn(Flux.empty());
+
+        StepVerifier.create(statisticsService.getTrainingAnalytics(USER_ID, AnalyticsPeriod.WEEK, FROM.plusDays(2), TO, "en"))
+                .assertNext(analytics -> {
+                    assertThat(analytics.getFrom()).isEqualTo(FROM);
+                    assertThat(analytics.getTo()).isEqualTo(TO);
+                    assertThat(analytics.getBuckets()).extracting(TrainingBucketDto::getStart)
+                            .containsExactly(firstWeek, firstWeek.plusWeeks(1), lastWeek);
+
+                    TrainingBucketDto first = analytics.getBuckets().get(0);
+                    assertThat(first.getTrainingDays()).isEqualTo(2);
+                    assertThat(first.getSets()).isEqualTo(10);
+                    assertThat(first.getAverageRpe()).isEqualTo(7.5);
+                    assertThat(first.getSetsPerMuscleGroup()).isEqualTo(Map.of("CHEST", 6L, "TRICEPS", 4L));
+
+                    assertThat(analytics.getBuckets().get(1))
+                            .isEqualTo(new TrainingBucketDto(firstWeek.plusWeeks(1), 0, 0, 0, 0.0, null, Map.of()));
+                    assertThat(analytics.getBuckets().get(2).getAverageRpe()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Record days are returned with the best estimate before them")
+    void getTrainingAnalytics_RecordDays_MapsPreviousBest() {
+        LocalDate day = LocalDate.of(2025, 5, 20);
+        when(exerciseDailyStatsRepository.findBucketTotals(any(), any(), any(), any())).thenReturn(Flux.empty());
+        when(exerciseDailyStatsRepository.findMuscleGroupSets(any(), any(), any(), any())).thenReturn(Flux.empty());
+        when(exerciseDailyStatsRepository.findRecordDays(USER_ID, FROM, TO, "nl")).thenReturn(Flux.just(
+                new RecordDay(day, UUID.randomUUID().toString(), "Bankdrukken", 90.0, 5, 105.0, 102.5)));
+
+        StepVerifier.create(statisticsService.getTrainingAnalytics(USER_ID, AnalyticsPeriod.WEEK, FROM, TO, "nl"))
+                .assertNext(analytics -> assertThat(analytics.getPersonalRecords()).containsExactly(
+                        new PersonalRecordDto(day, "Bankdrukken", PersonalRecordType.ESTIMATED_ONE_REP_MAX,
+                                90.0, 5, 105.0, 102.5)))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A range of exactly the maximum number of buckets is accepted")
+    void getTrainingAnalytics_MaxBuckets_IsAccepted() {
+        LocalDate from = FROM.minusWeeks(StatisticsService.MAX_BUCKETS - 3L);
+        when(exerciseDailyStatsRepository.findBucketTotals(any(), any(), any(), any())).thenReturn(Flux.empty());
+        when(exerciseDailyStatsRepository.findMuscleGroupSets(any(), any(), any(), any())).thenReturn(Flux.empty());
+        when(exerciseDailyStatsRepository.findRecordDays(any(), any(), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(statisticsService.getTrainingAnalytics(USER_ID, AnalyticsPeriod.WEEK, from, TO, "en"))
+                .assertNext(analytics -> assertThat(analytics.getBuckets()).hasSize(StatisticsService.MAX_BUCKETS))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A range of more than the maximum number of buckets is rejected without a query")
+    void getTrainingAnalytics_TooManyBuckets_ReturnsError() {
+        LocalDate from = FROM.minusWeeks(StatisticsService.MAX_BUCKETS - 2L);
+
+        StepVerifier.create(statisticsService.getTrainingAnalytics(USER_ID, AnalyticsPeriod.WEEK, from, TO, "en"))
+                .expectError(InvalidDateRangeException.class)
+                .verify();
+        verifyNoInteractions(exerciseDailyStatsRepository);
+    }
+
+    @Test
+    @DisplayName("A start date after the end date is rejected")
+    void getTrainingAnalytics_StartAfterEnd_ReturnsError() {
+        StepVerifier.create(statisticsService.getTrainingAnalytics(USER_ID, AnalyticsPeriod.MONTH, TO, FROM, "en"))
+                .expectError(InvalidDateRangeException.class)
+                .verify();
+        verifyNoInteractions(exerciseDailyStatsRepository);
+    }
+}
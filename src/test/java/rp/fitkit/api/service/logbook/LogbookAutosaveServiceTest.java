@@ -0,0 +1,166 @@
+package rp.fitkit.api.service.logbook;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.root.SectionType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LogbookAutosaveServiceTest {
+
+    private static final long WINDOW_MS = 500;
+    private static final long LOG_ID = 1L;
+
+    @Mock
+    private LogbookService logbookService;
+
+    private PendingSectionWrites pendingSectionWrites;
+    private SimpleMeterRegistry meterRegistry;
+    private LogbookAutosaveService autosaveService;
+
+    @BeforeEach
+    void setUp() {
+        pendingSectionWrites = new PendingSectionWrites();
+        meterRegistry = new SimpleMeterRegistry();
+        autosaveService = new LogbookAutosaveService(logbookService, pendingSectionWrites, meterRegistry, WINDOW_MS, 3);
+        autosaveService.start();
+    }
+
+    @Test
+    @DisplayName("Saves within the window are coalesced into one deferred write of the last version")
+    void save_WithinWindow_CoalescesIntoLastVersion() {
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> Mono.just(section(invocation.getArgument(2))));
+
+        StepVerifier.create(autosaveService.save(LOG_ID, SectionType.MORNING, "a", null))
+                .expectNextMatches(saved -> saved.getSummary().equals("a"))
+                .verifyComplete();
+        StepVerifier.create(autosaveService.save(LOG_ID, SectionType.MORNING, "ab", null))
+                .expectNextMatches(saved -> saved.getSummary().equals("ab"))
+                .verifyComplete();
+        StepVerifier.create(autosaveService.save(LOG_ID, SectionType.MORNING, "abc", null))
+                .expectNextMatches(saved -> saved.getSummary().equals("abc"))
+                .verifyComplete();
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isTrue();
+
+        verify(logbookService, timeout(3000)).saveLogSection(LOG_ID, SectionType.MORNING, "abc", null);
+        verify(logbookService, never()).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        verify(logbookService, times(2)).saveLogSection(anyLong(), any(), any(), any());
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isFalse();
+    }
+
+    @Test
+    @DisplayName("A failed write-through is returned to the caller")
+    void save_WhenWriteThroughFails_PropagatesError() {
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("db down")));
+
+        StepVerifier.create(autosaveService.save(LOG_ID, SectionType.MORNING, "a", null))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("A failed deferred write stays pending and is retried until it succeeds")
+    void flush_WhenDeferredWriteFails_RetriesWithPendingContent() {
+        AtomicInteger deferredCalls = new AtomicInteger();
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    String summary = invocation.getArgument(2);
+                    if (summary.equals("ab") && deferredCalls.incrementAndGet() == 1) {
+                        return Mono.error(new IllegalStateException("db hiccup"));
+                    }
+                    return Mono.just(section(summary));
+                });
+
+        autosaveService.save(LOG_ID, SectionType.MORNING, "a", null).block();
+        autosaveService.save(LOG_ID, SectionType.MORNING, "ab", null).block();
+
+        verify(logbookService, timeout(3000).times(2)).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isFalse();
+        assertThat(meterRegistry.counter("logbook.autosave.lost").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("A deferred write is kept pending while retrying and given up after the maximum number of attempts")
+    void flush_WhenDeferredWriteKeepsFailing_GivesUpAfterMaxAttempts() {
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    String summary = invocation.getArgument(2);
+                    return summary.equals("a") ? Mono.just(section(summary)) : Mono.error(new IllegalStateException("db down"));
+                });
+
+        autosaveService.save(LOG_ID, SectionType.MORNING, "a", null).block();
+        autosaveService.save(LOG_ID, SectionType.MORNING, "ab", null).block();
+
+        verify(logbookService, timeout(3000)).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isTrue();
+
+        verify(logbookService, timeout(5000).times(3)).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        verify(logbookService, after(1500).times(3)).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isFalse();
+        assertThat(meterRegistry.counter("logbook.autosave.lost").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("stop writes the pending content without waiting for the window")
+    void stop_FlushesPendingContent() {
+        LogbookAutosaveService slowService =
+                new LogbookAutosaveService(logbookService, pendingSectionWrites, meterRegistry, 60_000, 3);
+        slowService.start();
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> Mono.just(section(invocation.getArgument(2))));
+
+        slowService.save(LOG_ID, SectionType.MORNING, "a", null).block();
+        slowService.save(LOG_ID, SectionType.MORNING, "ab", null).block();
+        verify(logbookService, never()).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+
+        slowService.stop();
+
+        verify(logbookService).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        assertThat(slowService.isRunning()).isFalse();
+    }
+
+    @Test
+    @DisplayName("After stop every save is written through")
+    void save_AfterStop_WritesThrough() {
+        when(logbookService.saveLogSection(anyLong(), any(), any(), any()))
+                .thenAnswer(invocation -> Mono.just(section(invocation.getArgument(2))));
+        autosaveService.stop();
+
+        autosaveService.save(LOG_ID, SectionType.MORNING, "a", null).block();
+        autosaveService.save(LOG_ID, SectionType.MORNING, "ab", null).block();
+
+        verify(logbookService).saveLogSection(LOG_ID, SectionType.MORNING, "a", null);
+        verify(logbookService).saveLogSection(LOG_ID, SectionType.MORNING, "ab", null);
+        assertThat(pendingSectionWrites.hasPendingFor(LOG_ID)).isFalse();
+    }
+
+    private static LogSection section(String summary) {
+        LogSection section = new LogSection();
+        section.setId(10L);
+        section.setDailyLogId(LOG_ID);
+        section.setSectionType(SectionType.MORNING);
+        section.setSummary(summary);
+        return section;
+    }
+}
@@ -0,0 +1,130 @@
+package rp.fitkit.api.service.logbook;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.dto.logbook.LogbookSearchHitDto;
+import rp.fitkit.api.dto.logbook.LogbookSearchResultDto;
+import rp.fitkit.api.exception.InvalidCursorException;
+import rp.fitkit.api.model.root.SectionType;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
+import rp.fitkit.api.repository.logbook.LogSectionSearchRow;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LogbookSearchServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final LocalDate DATE = LocalDate.of(2025, 5, 28);
+
+    @Mock
+    private LogSectionRepository logSectionRepository;
+
+    private LogbookSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        searchService = new LogbookSearchService(logSectionRepository);
+    }
+
+    @Test
+    @DisplayName("Paging with the cursor returns every hit once, by rank and then section id, also across equal ranks")
+    void search_FollowingCursor_ReturnsAllHitsInRankOrder() {
+        // 0.1f has no exact decimal form, so a rounded cursor would skip or repeat the hits on that rank.
+        List<LogSectionSearchRow> rows = List.of(
+                row(7, 0.6f), row(3, 0.1f), row(9, 0.1f), row(5, 0.1f), row(2, 0.05f));
+        givenIndex(rows);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            LogbookSearchResultDto page = searchService.search(USER_ID, "squat", null, null, cursor, 2).block();
+            assertThat(page.getHits()).hasSizeLessThanOrEqualTo(2);
+            page.getHits().stream().map(LogbookSearchHitDto::getLogId).forEach(seen::add);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(seen).containsExactly(7L, 9L, 5L, 3L, 2L);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Hits keep the rank order and the highlight of the repository")
+    void search_FirstPage_MapsHitsInRankOrder() {
+        when(logSectionRepository.search(eq(USER_ID), eq("squat"), isNull(), isNull(), isNull(), isNull(), eq(10)))
+                .thenReturn(Flux.just(row(1, 0.9f), row(2, 0.4f)));
+
+        StepVerifier.create(searchService.search(USER_ID, "squat", null, null, null, 10))
+                .assertNext(result -> {
+                    assertThat(result.getHits()).extracting(LogbookSearchHitDto::getRank).containsExactly(0.9f, 0.4f);
+                    assertThat(result.getHits().get(0).getHighlight()).isEqualTo("<mark>squat</mark> 1");
+                    assertThat(result.getNextCursor()).isNull();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("The page size is capped")
+    void search_LargePageSize_IsCapped() {
+        when(logSectionRepository.search(any(), any(), any(), any(), any(), any(), anyInt())).thenReturn(Flux.empty());
+
+        StepVerifier.create(searchService.search(USER_ID, "squat", null, null, null, 1000))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(logSectionRepository).search(USER_ID, "squat", null, null, null, null, LogbookSearchService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    @DisplayName("A cursor that cannot be decoded is rejected")
+    void search_InvalidCursor_ReturnsError() {
+        StepVerifier.create(searchService.search(USER_ID, "squat", null, null, "not a cursor", 10))
+                .expectError(InvalidCursorException.class)
+                .verify();
+    }
+
+    /**
+     * Answers like the keyset query: hits by rank and section id, both descending, after the cursor.
+     */
+    private void givenIndex(List<LogSectionSearchRow> rows) {
+        Comparator<LogSectionSearchRow> order = Comparator.comparing(LogSectionSearchRow::rank)
+                .thenComparing(LogSectionSearchRow::sectionId)
+                .reversed();
+        when(logSectionRepository.search(eq(USER_ID), eq("squat"), isNull(), isNull(), any(), any(), anyInt()))
+                .thenAnswer(invocation -> {
+                    Float afterRank = invocation.getArgument(4);
+                    Long afterId = invocation.getArgument(5);
+                    int limit = invocation.getArgument(6);
+                    return Flux.fromIterable(rows)
+                            .sort(order)
+                            .filter(row -> afterRank == null || row.rank() < afterRank
+                                    || (row.rank() == afterRank && row.sectionId() < afterId))
+                            .take(limit);
+                });
+    }
+
+    private static LogSectionSearchRow row(long sectionId, float rank) {
+        return new LogSectionSearchRow(sectionId, sectionId, DATE, SectionType.MORNING, rank,
+                "<mark>squat</mark> " + sectionId);
+    }
+}
@@ -0,0 +1,101 @@
+package rp.fitkit.api.service.logbook;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.logbook.LogSection;
+import rp.fitkit.api.model.logbook.MoodCategory;
+import rp.fitkit.api.model.logbook.MoodClassification;
+import rp.fitkit.api.repository.logbook.LogSectionRepository;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MoodAnalysisServiceTest {
+
+    @Mock
+    private MoodInferenceEngine moodInferenceEngine;
+    @Mock
+    private LogSectionRepository logSectionRepository;
+
+    @InjectMocks
+    private MoodAnalysisService moodAnalysisService;
+
+    @Test
+    @DisplayName("classifyAndStore stores the label the model returned")
+    void classifyAndStore_StoresClassification() {
+        LogSection section = section(1L, "had a great day");
+        when(moodInferenceEngine.classify("had a great day"))
+                .thenReturn(Mono.just(new MoodClassification(MoodCategory.POSITIVE, 0.97)));
+        when(logSectionRepository.updateMoodClassification(1L, "had a great day", "POSITIVE", 0.97))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(moodAnalysisService.classifyAndStore(section))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("classifyAndStore fails and stores nothing when inference fails")
+    void classifyAndStore_WhenInferenceFails_DoesNotStoreNeutral() {
+        LogSection section = section(2L, "meh");
+        when(moodInferenceEngine.classify("meh"))
+                .thenReturn(Mono.error(new RejectedExecutionException("Mood inference queue is full.")));
+
+        StepVerifier.create(moodAnalysisService.classifyAndStore(section))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+        verify(logSectionRepository, never()).updateMoodClassification(anyLong(), anyString(), anyString(), anyDouble());
+    }
+
+    @Test
+    @DisplayName("classifyAndStore maps star ratings without the model")
+    void classifyAndStore_StarRating_SkipsModel() {
+        LogSection section = section(3L, "2");
+        when(logSectionRepository.updateMoodClassification(3L, "2", "NEGATIVE", 1.0)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(moodAnalysisService.classifyAndStore(section))
+                .expectNext(true)
+                .verifyComplete();
+        verify(moodInferenceEngine, never()).classify(any());
+    }
+
+    @Test
+    @DisplayName("calculateMoodStats still counts a failed classification as neutral")
+    void calculateMoodStats_WhenInferenceFails_CountsNeutral() {
+        LogSection labelled = section(4L, "fine");
+        labelled.setMoodLabel(MoodCategory.POSITIVE);
+        LogSection pending = section(5L, "unclear");
+        when(moodInferenceEngine.classify("unclear")).thenReturn(Mono.error(new IllegalStateException("model down")));
+
+        StepVerifier.create(moodAnalysisService.calculateMoodStats(List.of(labelled, pending)))
+                .assertNext(stats -> {
+                    assertThat(stats.getPositiveCount()).isEqualTo(1);
+                    assertThat(stats.getNeutralCount()).isEqualTo(1);
+                    assertThat(stats.getNegativeCount()).isZero();
+                })
+                .verifyComplete();
+    }
+
+    private static LogSection section(Long id, String mood) {
+        LogSection section = new LogSection();
+        section.setId(id);
+        section.setMood(mood);
+        return section;
+    }
+}
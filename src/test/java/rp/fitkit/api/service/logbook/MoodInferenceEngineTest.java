@@ -0,0 +1,166 @@
+package rp.fitkit.api.service.logbook;
+
+import ai.djl.inference.Predictor;
+import ai.djl.modality.Classifications;
+import ai.djl.translate.TranslateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.logbook.MoodCategory;
+import rp.fitkit.api.model.logbook.MoodClassification;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MoodInferenceEngineTest {
+
+    private MoodInferenceEngine engine;
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("classify keeps working when every predictor is busy while new batches fill up")
+    void classify_WhenAllPredictorsAreBusy_QueuesBatchesInsteadOfFailing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger busy = new AtomicInteger();
+        CountDownLatch bothBusy = new CountDownLatch(2);
+        engine = startEngine(2, 4, 5, blockingPredictor(release, busy, bothBusy), blockingPredictor(release, busy, bothBusy));
+
+        List<Mono<MoodClassification>> first = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            first.add(engine.classify("mood " + i).cache());
+        }
+        first.forEach(Mono::subscribe);
+        assertThat(bothBusy.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Both predictors are held; these moods fill several more batches and let the timer fire.
+        List<Mono<MoodClassification>> queued = new ArrayList<>();
+        for (int i = 8; i < 40; i++) {
+            queued.add(engine.classify("mood " + i).cache());
+        }
+        queued.forEach(Mono::subscribe);
+        Thread.sleep(50);
+        release.countDown();
+
+        StepVerifier.create(Flux.concat(first).concatWith(Flux.concat(queued)))
+                .expectNextCount(40)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+        StepVerifier.create(engine.classify("after saturation"))
+                .assertNext(result -> assertThat(result.getCategory()).isEqualTo(MoodCategory.POSITIVE))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A failing batch fails its own callers only; later moods are still classified")
+    void classify_WhenABatchFails_KeepsThePipelineRunning() throws Exception {
+        @SuppressWarnings("unchecked")
+        Predictor<String, Classifications> predictor = mock(Predictor.class);
+        when(predictor.batchPredict(anyList()))
+                .thenThrow(new TranslateException("model crashed"))
+                .thenAnswer(invocation -> positives(invocation.getArgument(0)));
+        engine = startEngine(1, 4, 5, predictor);
+
+        StepVerifier.create(engine.classify("first"))
+                .expectError(TranslateException.class)
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(engine.classify("second"))
+                .assertNext(result -> assertThat(result.getCategory()).isEqualTo(MoodCategory.POSITIVE))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("A failed classification is not cached, so the same mood is tried again")
+    void classify_AfterFailure_RetriesSameText() throws Exception {
+        @SuppressWarnings("unchecked")
+        Predictor<String, Classifications> predictor = mock(Predictor.class);
+        when(predictor.batchPredict(anyList()))
+                .thenThrow(new TranslateException("model crashed"))
+                .thenAnswer(invocation -> positives(invocation.getArgument(0)));
+        engine = startEngine(1, 4, 5, predictor);
+
+        StepVerifier.create(engine.classify("Great day"))
+                .expectError(TranslateException.class)
+                .verify(Duration.ofSeconds(5));
+        StepVerifier.create(engine.classify("great   DAY"))
+                .assertNext(result -> assertThat(result.getCategory()).isEqualTo(MoodCategory.POSITIVE))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("classify rejects moods when the queue is full")
+    void classify_WhenQueueIsFull_Rejects() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch busy = new CountDownLatch(1);
+        engine = new MoodInferenceEngine(new SimpleMeterRegistry(), 1, 1, 1, 2, 100);
+        engine.start(List.of(blockingPredictor(release, new AtomicInteger(), busy)));
+
+        engine.classify("held").subscribe();
+        assertThat(busy.await(5, TimeUnit.SECONDS)).isTrue();
+        engine.classify("queued 1").subscribe();
+        engine.classify("queued 2").subscribe();
+
+        StepVerifier.create(engine.classify("one too many"))
+                .expectError(java.util.concurrent.RejectedExecutionException.class)
+                .verify(Duration.ofSeconds(5));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Empty moods are neutral without touching the model")
+    void classify_EmptyText_IsNeutral() {
+        engine = startEngine(1, 4, 5, mock(Predictor.class));
+
+        StepVerifier.create(engine.classify("   "))
+                .expectNext(MoodClassification.NEUTRAL)
+                .verifyComplete();
+    }
+
+    @SafeVarargs
+    private static MoodInferenceEngine startEngine(int poolSize, int batchSize, long delayMs,
+                                                   Predictor<String, Classifications>... predictors) {
+        MoodInferenceEngine engine = new MoodInferenceEngine(new SimpleMeterRegistry(), poolSize, batchSize, delayMs, 512, 1000);
+        engine.start(List.of(predictors));
+        return engine;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predictor<String, Classifications> blockingPredictor(CountDownLatch release, AtomicInteger busy,
+                                                                        CountDownLatch started) throws TranslateException {
+        Predictor<String, Classifications> predictor = mock(Predictor.class);
+        when(predictor.batchPredict(anyList())).thenAnswer(invocation -> {
+            busy.incrementAndGet();
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            busy.decrementAndGet();
+            return positives(invocation.getArgument(0));
+        });
+        return predictor;
+    }
+
+    private static List<Classifications> positives(List<String> texts) {
+        List<Classifications> results = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            results.add(new Classifications(List.of("POSITIVE", "NEGATIVE"), List.of(0.9, 0.1)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,149 @@
+package rp.fitkit.api.service.user;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import rp.fitkit.api.model.user.RefreshTokenFamily;
+import rp.fitkit.api.model.user.User;
+import rp.fitkit.api.repository.user.RefreshTokenFamilyRepository;
+import rp.fitkit.api.util.JwtUtil;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    private static final long REFRESH_EXPIRATION_MS = 60_000;
+
+    @Mock
+    private RefreshTokenFamilyRepository familyRepository;
+
+    private JwtUtil jwtUtil;
+    private SimpleMeterRegistry meterRegistry;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecretString",
+                Base64.getEncoder().encodeToString("a-test-secret-that-is-long-enough-for-hs256".getBytes()));
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshTokenExpirationMs", REFRESH_EXPIRATION_MS);
+        jwtUtil.init();
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = new RefreshTokenService(familyRepository, jwtUtil, meterRegistry, REFRESH_EXPIRATION_MS, 100);
+        user = User.restore(UUID.randomUUID(), "rik", "rik@example.com", "hash", null,
+                true, true, true, true, List.of("ROLE_USER"));
+    }
+
+    @Test
+    @DisplayName("The current token of a family is rotated with one conditional update")
+    void rotate_CurrentToken_ReturnsNextTokenOfSameFamily() {
+        Claims first = issue();
+        UUID familyId = familyIdOf(first);
+        when(familyRepository.rotate(eq(familyId), eq(RefreshTokenService.hashTokenId(first.getId())), anyString(), any(), any()))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(refreshTokenService.rotate(first, user))
+                .assertNext(token -> {
+                    Claims next = claimsOf(token);
+                    assertThat(familyIdOf(next)).isEqualTo(familyId);
+                    assertThat(next.getId()).isNotEqualTo(first.getId());
+                })
+                .verifyComplete();
+        verify(familyRepository, never()).findById(any(UUID.class));
+    }
+
+    @Test
+    @DisplayName("Presenting a rotated token revokes the whole family")
+    void rotate_ReplayedToken_RevokesFamily() {
+        Claims first = issue();
+        UUID familyId = familyIdOf(first);
+        when(familyRepository.rotate(eq(familyId), anyString(), anyString(), any(), any())).thenReturn(Mono.just(1));
+        Claims second = claimsOf(refreshTokenService.rotate(first, user).block());
+        when(familyRepository.findById(familyId))
+                .thenReturn(Mono.just(family(familyId, RefreshTokenService.hashTokenId(second.getId()), false)));
+        when(familyRepository.revoke(familyId)).thenReturn(Mono.just(1));
+
+        StepVerifier.create(refreshTokenService.rotate(first, user))
+                .expectError(BadCredentialsException.class)
+                .verify();
+        verify(familyRepository).revoke(familyId);
+        assertThat(meterRegistry.counter("auth.refresh.reuse.detected").count()).isEqualTo(1);
+
+        // The current token of the revoked family is refused from the cache.
+        StepVerifier.create(refreshTokenService.rotate(second, user))
+                .expectError(BadCredentialsException.class)
+                .verify();
+        verify(familyRepository).rotate(eq(familyId), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    @DisplayName("A token whose family was revoked elsewhere is refused after checking the database")
+    void rotate_FamilyRevokedByOtherInstance_IsRejected() {
+        Claims first = issue();
+        UUID familyId = familyIdOf(first);
+        when(familyRepository.rotate(eq(familyId), anyString(), anyString(), any(), any())).thenReturn(Mono.just(0));
+        when(familyRepository.findById(familyId))
+                .thenReturn(Mono.just(family(familyId, RefreshTokenService.hashTokenId(first.getId()), true)));
+
+        StepVerifier.create(refreshTokenService.rotate(first, user))
+                .expectError(BadCredentialsException.class)
+                .verify();
+        verify(familyRepository, never()).revoke(any(UUID.class));
+        assertThat(meterRegistry.counter("auth.refresh.reuse.detected").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("A refresh token without a family is refused")
+    void rotate_TokenWithoutFamily_IsRejected() {
+        Claims claims = claimsOf(jwtUtil.generateAccessToken(user));
+
+        StepVerifier.create(refreshTokenService.rotate(claims, user))
+                .expectError(BadCredentialsException.class)
+                .verify();
+    }
+
+    private Claims issue() {
+        when(familyRepository.save(any(RefreshTokenFamily.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        return claimsOf(refreshTokenService.issue(user).block());
+    }
+
+    private Claims claimsOf(String token) {
+        return jwtUtil.parseValidClaims(token);
+    }
+
+    private static UUID familyIdOf(Claims claims) {
+        return UUID.fromString(claims.get(JwtUtil.CLAIM_FAMILY_ID, String.class));
+    }
+
+    private RefreshTokenFamily family(UUID familyId, String currentHash, boolean revoked) {
+        RefreshTokenFamily family = new RefreshTokenFamily(familyId, user.getId(), currentHash,
+                Instant.now().plusMillis(REFRESH_EXPIRATION_MS));
+        family.setRevoked(revoked);
+        family.setNew(false);
+        return family;
+    }
+}